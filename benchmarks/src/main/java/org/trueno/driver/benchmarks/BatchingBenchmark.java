@@ -0,0 +1,65 @@
+package org.trueno.driver.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.communication.BatchPolicy;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small writes per second with and without micro-batching, against the local stand-in
+ * server.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchingBenchmark {
+
+    static final int CALLS = 1000;
+
+    /* Zero disables batching */
+    @Param({"0", "32", "128"})
+    int batchSize;
+
+    private Fixture fixture;
+    private Vertex vertex;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        this.fixture = new Fixture();
+        if (this.batchSize > 0) {
+            this.fixture.trueno.setBatchPolicy(new BatchPolicy(this.batchSize, 0, 200));
+        }
+        this.fixture.connect();
+
+        this.vertex = Payloads.vertex(1, 4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.fixture.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void createVertex() throws InterruptedException {
+        RoundTripBenchmark.pipeline(this.fixture.trueno, this.vertex, CALLS);
+    }
+}
@@ -0,0 +1,77 @@
+package org.trueno.driver.benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.communication.Message;
+import org.trueno.driver.lib.core.communication.codec.MessagePackCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a request message with the JSON text path and with the
+ * MessagePack codec. The encoded size of both is printed when the trial starts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    @Param({"4", "16", "64"})
+    int attributes;
+
+    private final MessagePackCodec msgpack = new MessagePackCodec();
+    private Message message;
+    private byte[] json;
+    private byte[] packed;
+
+    @Setup
+    public void setup() throws IOException {
+
+        this.message = new Message();
+        this.message.setPayload(Payloads.vertex(1, this.attributes));
+        this.message.setRequestId(1234567);
+
+        this.json = this.message.toString().getBytes(StandardCharsets.UTF_8);
+        this.packed = this.msgpack.pack(this.message);
+
+        System.out.println();
+        System.out.println("payload size, " + this.attributes + " attributes: json=" + this.json.length
+                + " bytes, msgpack=" + this.packed.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return this.message.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object decodeJson() throws JSONException {
+        return new JSONObject(new String(this.json, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] encodeMsgpack() throws IOException {
+        return this.msgpack.pack(this.message);
+    }
+
+    @Benchmark
+    public Object decodeMsgpack() throws IOException {
+        return this.msgpack.unpack(this.packed);
+    }
+}
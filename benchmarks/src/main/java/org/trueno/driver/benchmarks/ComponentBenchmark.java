@@ -0,0 +1,98 @@
+package org.trueno.driver.benchmarks;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attribute access, change tracking and (de)serialization of a single component.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ComponentBenchmark {
+
+    @Param({"4", "16", "64"})
+    int attributes;
+
+    private Vertex vertex;
+    private JSONObject document;
+    private String[] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+
+        this.vertex = Payloads.vertex(1, this.attributes);
+        this.document = this.vertex.toJSON();
+
+        this.keys = new String[this.attributes];
+        for (int i = 0; i < this.attributes; i++) {
+            this.keys[i] = Payloads.key(i);
+        }
+    }
+
+    private String nextKey() {
+        if (++this.next == this.keys.length) {
+            this.next = 0;
+        }
+        return this.keys[this.next];
+    }
+
+    @Benchmark
+    public Object getAttribute() {
+        return this.vertex.getAttribute(this.nextKey());
+    }
+
+    @Benchmark
+    public long getLongAttribute() {
+        return this.vertex.getLongAttribute(this.keys[this.attributes - 1], 0);
+    }
+
+    @Benchmark
+    public Vertex setAttribute() {
+        this.vertex.setAttribute(this.nextKey(), (long) this.next);
+        return this.vertex;
+    }
+
+    @Benchmark
+    public Object flush() {
+        this.vertex.setAttribute(this.nextKey(), (long) this.next);
+        return this.vertex.flush();
+    }
+
+    @Benchmark
+    public JSONObject delta() {
+        this.vertex.setAttribute(this.nextKey(), (long) this.next);
+        JSONObject delta = this.vertex.delta();
+        this.vertex.clear();
+        return delta;
+    }
+
+    @Benchmark
+    public JSONObject toJSON() {
+        return this.vertex.toJSON();
+    }
+
+    @Benchmark
+    public Vertex load() {
+        Vertex v = new Vertex();
+        v.load(this.document);
+        return v;
+    }
+}
@@ -0,0 +1,107 @@
+package org.trueno.driver.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.communication.codec.DeflateCodec;
+import org.trueno.driver.lib.core.communication.codec.MessagePackCodec;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Bandwidth against CPU of deflating payloads: encode and decode cost of a list reply
+ * with the MessagePack codec alone and wrapped in a {@link DeflateCodec}, at the fastest
+ * and the default level. The frame size of each is printed when the trial starts, so the
+ * bytes saved can be read next to the time spent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+
+    /* A single vertex, a page of a list, and a large page */
+    @Param({"1", "100", "1000"})
+    int vertices;
+
+    @Param({"16", "64"})
+    int attributes;
+
+    private final MessagePackCodec msgpack = new MessagePackCodec();
+    private final DeflateCodec fast = new DeflateCodec(this.msgpack, 1024, Deflater.BEST_SPEED);
+    private final DeflateCodec dense = new DeflateCodec(this.msgpack, 1024, Deflater.DEFAULT_COMPRESSION);
+    private JSONObject reply;
+    private byte[] plainFrame;
+    private byte[] fastFrame;
+    private byte[] denseFrame;
+
+    @Setup
+    public void setup() throws IOException, JSONException {
+
+        JSONArray list = new JSONArray();
+        for (int i = 0; i < this.vertices; i++) {
+            list.put(Payloads.vertex(i, this.attributes).toJSON());
+        }
+
+        JSONObject meta = new JSONObject();
+        meta.put("_rid", 1234567);
+        this.reply = new JSONObject();
+        this.reply.put("_meta", meta);
+        this.reply.put("_payload", list);
+        this.reply.put("_status", "success");
+
+        this.plainFrame = (byte[]) this.msgpack.encode(this.reply);
+        this.fastFrame = (byte[]) this.fast.encode(this.reply);
+        this.denseFrame = (byte[]) this.dense.encode(this.reply);
+
+        System.out.println();
+        System.out.println(this.vertices + " vertices of " + this.attributes + " attributes: msgpack="
+                + this.plainFrame.length + " bytes, deflate fastest=" + this.fastFrame.length
+                + " bytes, deflate default=" + this.denseFrame.length + " bytes");
+    }
+
+    @Benchmark
+    public Object encodePlain() throws IOException {
+        return this.msgpack.encode(this.reply);
+    }
+
+    @Benchmark
+    public Object encodeFastest() throws IOException {
+        return this.fast.encode(this.reply);
+    }
+
+    @Benchmark
+    public Object encodeDefault() throws IOException {
+        return this.dense.encode(this.reply);
+    }
+
+    @Benchmark
+    public Object decodePlain() throws IOException {
+        return this.msgpack.decode(this.plainFrame);
+    }
+
+    @Benchmark
+    public Object decodeFastest() throws IOException {
+        return this.fast.decode(this.fastFrame);
+    }
+
+    @Benchmark
+    public Object decodeDefault() throws IOException {
+        return this.dense.decode(this.denseFrame);
+    }
+}
@@ -0,0 +1,61 @@
+package org.trueno.driver.benchmarks;
+
+import com.github.nkzawa.socketio.client.Socket;
+import org.trueno.driver.lib.core.Trueno;
+import org.trueno.driver.lib.core.communication.Callback;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stand-in server on a free local port and a client connected to it.
+ */
+final class Fixture {
+
+    final StandInServer server;
+    final Trueno trueno;
+
+    Fixture() throws IOException, InterruptedException {
+
+        int port = freePort();
+        this.server = new StandInServer(port);
+        this.server.start();
+
+        this.trueno = new Trueno("http://localhost", port);
+    }
+
+    /* Connects the client, waiting for the handshake */
+    Fixture connect() throws InterruptedException {
+
+        final CountDownLatch connected = new CountDownLatch(1);
+        this.trueno.connect(new Callback() {
+            public void method(Socket socket) {
+                connected.countDown();
+            }
+        }, new Callback() {
+            public void method(Socket socket) {
+            }
+        });
+
+        if (!connected.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Could not connect to the stand-in server");
+        }
+
+        return this;
+    }
+
+    void close() {
+        this.server.stop();
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.trueno.driver.benchmarks;
+
+import com.github.nkzawa.socketio.client.Socket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.Trueno;
+import org.trueno.driver.lib.core.communication.Callback;
+import org.trueno.driver.lib.core.communication.LoadBalancing;
+import org.trueno.driver.lib.core.communication.codec.JsonCodec;
+import org.trueno.driver.lib.core.communication.codec.MessagePackCodec;
+import org.trueno.driver.lib.core.communication.transport.EchoHandler;
+import org.trueno.driver.lib.core.communication.transport.FramedServer;
+import org.trueno.driver.lib.core.communication.transport.FramedTransport;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRUD calls over the framed TCP transport against the local reference server, to
+ * compare with the socket.io round trips of {@link RoundTripBenchmark}.
+ */
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FramedBenchmark {
+
+    @Param({"json", "msgpack"})
+    String codec;
+
+    private FramedServer server;
+    private Trueno trueno;
+    private Vertex vertex;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        this.server = new FramedServer(0, new EchoHandler());
+        this.server.start();
+
+        this.trueno = new Trueno("http://localhost", this.server.getPort(), 1, LoadBalancing.ROUND_ROBIN,
+                FramedTransport.factory());
+        this.trueno.setCodec("msgpack".equals(this.codec) ? new MessagePackCodec() : new JsonCodec());
+
+        final CountDownLatch connected = new CountDownLatch(1);
+        this.trueno.connect(new Callback() {
+            public void method(Socket socket) {
+                connected.countDown();
+            }
+        }, new Callback() {
+            public void method(Socket socket) {
+            }
+        });
+        if (!connected.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Could not connect to the reference server");
+        }
+
+        this.vertex = Payloads.vertex(1, 16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.trueno.disconnect();
+        this.server.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object getVertexLatency() throws InterruptedException {
+        return RoundTripBenchmark.await(this.trueno.getVertex(this.vertex));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(RoundTripBenchmark.WINDOW)
+    public void createVertexPipelined() throws InterruptedException {
+        RoundTripBenchmark.pipeline(this.trueno, this.vertex, RoundTripBenchmark.WINDOW);
+    }
+}
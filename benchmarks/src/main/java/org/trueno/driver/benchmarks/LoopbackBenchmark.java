@@ -0,0 +1,90 @@
+package org.trueno.driver.benchmarks;
+
+import com.github.nkzawa.socketio.client.Socket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.Trueno;
+import org.trueno.driver.lib.core.communication.BatchPolicy;
+import org.trueno.driver.lib.core.communication.Callback;
+import org.trueno.driver.lib.core.communication.codec.JsonCodec;
+import org.trueno.driver.lib.core.communication.codec.MessagePackCodec;
+import org.trueno.driver.lib.core.communication.transport.EchoHandler;
+import org.trueno.driver.lib.core.communication.transport.LoopbackTransport;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client overhead alone: calls go through the codec, the in-flight table and promise
+ * handling, and are answered in-process by an echo handler with no network involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark {
+
+    static final int CALLS = 1000;
+
+    @Param({"json", "msgpack"})
+    String codec;
+
+    /* Zero disables batching */
+    @Param({"0", "64"})
+    int batchSize;
+
+    private Trueno trueno;
+    private Vertex vertex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        this.trueno = new Trueno();
+        this.trueno.setTransport(LoopbackTransport.factory(new EchoHandler()));
+        this.trueno.setCodec("msgpack".equals(this.codec) ? new MessagePackCodec() : new JsonCodec());
+        if (this.batchSize > 0) {
+            this.trueno.setBatchPolicy(new BatchPolicy(this.batchSize, 0, 200));
+        }
+
+        /* The loopback transport opens on the calling thread */
+        this.trueno.connect(new Callback() {
+            public void method(Socket socket) {
+            }
+        }, new Callback() {
+            public void method(Socket socket) {
+            }
+        });
+
+        this.vertex = Payloads.vertex(1, 16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.trueno.disconnect();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void createVertex() throws InterruptedException {
+        RoundTripBenchmark.pipeline(this.trueno, this.vertex, CALLS);
+    }
+
+    @Benchmark
+    public Object getVertex() throws InterruptedException {
+        return RoundTripBenchmark.await(this.trueno.getVertex(this.vertex));
+    }
+}
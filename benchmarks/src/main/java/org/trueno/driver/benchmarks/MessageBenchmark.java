@@ -0,0 +1,68 @@
+package org.trueno.driver.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.communication.Message;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a request message around a component and serializing it to JSON text, as the
+ * socket does for every emit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+    @Param({"4", "16", "64"})
+    int attributes;
+
+    private Vertex vertex;
+    private Message message;
+
+    @Setup
+    public void setup() {
+        this.vertex = Payloads.vertex(1, this.attributes);
+        this.message = new Message();
+        this.message.setPayload(this.vertex);
+    }
+
+    @Benchmark
+    public Message construct() {
+        return new Message();
+    }
+
+    @Benchmark
+    public Message pack() {
+        Message msg = new Message();
+        msg.setPayload(this.vertex);
+        msg.setRequestId(42);
+        return msg;
+    }
+
+    @Benchmark
+    public String serialize() {
+        return this.message.toString();
+    }
+
+    @Benchmark
+    public String packAndSerialize() {
+        Message msg = new Message();
+        msg.setPayload(this.vertex);
+        return msg.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package org.trueno.driver.benchmarks;
+
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+/**
+ * Graph components shaped like the ones our services store: a handful of string
+ * attributes, mostly numeric counters and scores, and a computed section.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /* Attribute key used for the i-th attribute of a vertex */
+    static String key(int i) {
+        return "attr" + i;
+    }
+
+    static Vertex vertex(int id, int attributes) {
+
+        Vertex v = new Vertex();
+        v.setId(Integer.toString(id));
+        v.setGraphid("benchmark");
+
+        for (int i = 0; i < attributes; i++) {
+            if (i % 4 == 0) {
+                v.setAttribute(key(i), "value-" + id + "-" + i);
+            } else if (i % 4 == 1) {
+                v.setAttribute(key(i), id * 31.5 + i);
+            } else {
+                v.setAttribute(key(i), (long) id * i);
+            }
+        }
+
+        v.setComputedAttribute("pagerank", "rank", 0.15 + id % 100 / 1000.0);
+        v.setComputedAttribute("components", "component", id % 17);
+
+        /* Freshly built payloads are not modified */
+        v.clear();
+
+        return v;
+    }
+}
@@ -0,0 +1,136 @@
+package org.trueno.driver.benchmarks;
+
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.jdeferred.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trueno.driver.lib.core.Trueno;
+import org.trueno.driver.lib.core.TruenoException;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * End-to-end CRUD calls through a connected client against the local stand-in server:
+ * latency of one call at a time, and throughput of a pipelined window of calls.
+ */
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+
+    /* Calls kept in flight by the pipelined benchmarks */
+    static final int WINDOW = 256;
+
+    private Fixture fixture;
+    private Trueno trueno;
+    private Vertex vertex;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.fixture = new Fixture().connect();
+        this.trueno = this.fixture.trueno;
+        this.vertex = Payloads.vertex(1, 16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.fixture.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object createVertexLatency() throws InterruptedException {
+        return await(this.trueno.createVertex(this.vertex));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object getVertexLatency() throws InterruptedException {
+        return await(this.trueno.getVertex(this.vertex));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object updateVertexLatency() throws InterruptedException {
+        this.vertex.setAttribute("attr1", System.nanoTime());
+        return await(this.trueno.updateVertex(this.vertex));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(WINDOW)
+    public void createVertexPipelined() throws InterruptedException {
+        pipeline(this.trueno, this.vertex, WINDOW);
+    }
+
+    /* Blocks until the promise settles, returning its value; a rejection fails the benchmark */
+    static Object await(Promise promise) throws InterruptedException {
+
+        final Object[] result = new Object[1];
+        final Object[] failure = new Object[1];
+        promise.then(new DoneCallback() {
+            public void onDone(Object o) {
+                result[0] = o;
+            }
+        }, new FailCallback() {
+            public void onFail(Object o) {
+                failure[0] = o;
+            }
+        });
+        promise.waitSafely();
+
+        if (promise.isRejected()) {
+            throw TruenoException.of(failure[0]);
+        }
+
+        return result[0];
+    }
+
+    /* Issues count creates back to back and waits for all of them; a rejection fails the benchmark */
+    static void pipeline(Trueno trueno, Vertex vertex, int count) throws InterruptedException {
+
+        final CountDownLatch done = new CountDownLatch(count);
+        final AtomicReference<Object> failure = new AtomicReference<Object>();
+        DoneCallback onDone = new DoneCallback() {
+            public void onDone(Object o) {
+                done.countDown();
+            }
+        };
+        FailCallback onFail = new FailCallback() {
+            public void onFail(Object o) {
+                failure.compareAndSet(null, o);
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < count; i++) {
+            trueno.createVertex(vertex).then(onDone, onFail);
+        }
+
+        done.await();
+
+        if (failure.get() != null) {
+            throw TruenoException.of(failure.get());
+        }
+    }
+}
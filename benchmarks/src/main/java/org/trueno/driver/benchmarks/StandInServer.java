@@ -0,0 +1,84 @@
+package org.trueno.driver.benchmarks;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.listener.DataListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal socket.io server standing in for TruenoDB. Every request is acknowledged
+ * right away with a success reply echoing the request id and payload, and batch frames
+ * with one such reply per entry, so the round trip benchmarks measure the driver and the
+ * transport rather than the database.
+ */
+public class StandInServer {
+
+    /* Events answered by the server */
+    private static final String[] METHODS = {
+            "ex_createGraph", "ex_updateGraph", "ex_deleteGraph", "ex_getGraph", "ex_getGraphList",
+            "ex_createVertex", "ex_updateVertex", "ex_deleteVertex", "ex_getVertex", "ex_getVertexList",
+            "ex_createEdge", "ex_updateEdge", "ex_deleteEdge", "ex_getEdge", "ex_getEdgeList"
+    };
+
+    /* Private properties */
+    private final SocketIOServer server;
+
+    public StandInServer(int port) {
+
+        Configuration config = new Configuration();
+        config.setHostname("localhost");
+        config.setPort(port);
+
+        this.server = new SocketIOServer(config);
+
+        for (String method : METHODS) {
+            this.server.addEventListener(method, Map.class, new DataListener<Map>() {
+                public void onData(SocketIOClient client, Map msg, AckRequest ack) {
+                    ack.sendAckData(reply(msg));
+                }
+            });
+        }
+
+        this.server.addEventListener("ex_batch", Map.class, new DataListener<Map>() {
+            public void onData(SocketIOClient client, Map frame, AckRequest ack) {
+                List entries = (List) frame.get("_batch");
+                List<Object> replies = new ArrayList<Object>(entries.size());
+                for (Object entry : entries) {
+                    replies.add(reply((Map) ((Map) entry).get("_payload")));
+                }
+                ack.sendAckData(replies);
+            }
+        });
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop();
+    }
+
+    /* Success reply for the message, echoing its request id and payload */
+    private static Map<String, Object> reply(Map msg) {
+
+        Map<String, Object> meta = new HashMap<String, Object>();
+        Map request = msg != null ? (Map) msg.get("_meta") : null;
+        if (request != null) {
+            meta.put("_rid", request.get("_rid"));
+        }
+
+        Map<String, Object> reply = new HashMap<String, Object>();
+        reply.put("_meta", meta);
+        reply.put("_payload", msg != null ? msg.get("_payload") : null);
+        reply.put("_status", "success");
+
+        return reply;
+    }
+}
@@ -0,0 +1,62 @@
+package org.trueno.driver.lib.core;
+
+import org.trueno.driver.lib.core.data_structures.Component;
+
+/**
+ * A change the server pushed to a subscription: which component of which graph was
+ * created, updated or deleted, and the component as stored after the change when the
+ * server sent it along.
+ */
+public class ChangeEvent {
+
+    /* Kinds of change */
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    /* Private properties */
+    private final String graphid;
+    private final String type;
+    private final String id;
+    private final Operation operation;
+    private final Component component;
+
+    /* Constructor with Parameters */
+    public ChangeEvent(String graphid, String type, String id, Operation operation, Component component) {
+        this.graphid = graphid;
+        this.type = type;
+        this.id = id;
+        this.operation = operation;
+        this.component = component;
+    }
+
+    /* Getters */
+    public String getGraphid() {
+        return this.graphid;
+    }
+
+    /* "v" for a vertex, "e" for an edge, as in ComponentCache */
+    public String getType() {
+        return this.type;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    /* Component after the change, null for deletes or when the server sent only its id */
+    public Component getComponent() {
+        return this.component;
+    }
+
+    @Override
+    public String toString() {
+        return this.operation + " " + this.type + " " + this.graphid + "/" + this.id;
+    }
+}
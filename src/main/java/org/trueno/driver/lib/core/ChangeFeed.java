@@ -0,0 +1,198 @@
+package org.trueno.driver.lib.core;
+
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trueno.driver.lib.core.cache.ComponentCache;
+import org.trueno.driver.lib.core.communication.ConnectionPool;
+import org.trueno.driver.lib.core.communication.Message;
+import org.trueno.driver.lib.core.communication.Method;
+import org.trueno.driver.lib.core.communication.RPC;
+import org.trueno.driver.lib.core.data_structures.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscriptions of a client to the changes of the server. Subscribing sends the filter to
+ * the server on the first connection of the pool, which then pushes every matching change
+ * on that connection as an "ex_change" event:
+ *
+ *   {"_sub": 1, "_graphid": "g", "_type": "v", "_op": "update", "_id": "7", "_payload": {...}}
+ *
+ * The server keeps subscriptions per connection, so they are sent again each time that
+ * connection reopens. Every change is first handed to the invalidator, which drops the
+ * component from the client's cache, then to the listeners of the matching subscriptions.
+ *
+ * Whether the server accepted a subscription is kept on it, see
+ * {@link Subscription#isRegistered()} and {@link Subscription#getError()}. Refusals are
+ * counted as errors of the operation, subscriptions that could not be sent and failing
+ * listeners as errors of the pool's metrics.
+ */
+class ChangeFeed {
+
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    /* Events exchanged with the server */
+    static final String CHANGE_EVENT = "ex_change";
+    static final String SUBSCRIBE = "ex_subscribe";
+    static final String UNSUBSCRIBE = "ex_unsubscribe";
+
+    /* Private properties */
+    private final ConnectionPool pool;
+    private final ChangeListener invalidator;
+    private final ConcurrentHashMap<Long, Subscription> subscriptions;
+    private final AtomicLong ids;
+
+    /* Constructor with Parameters */
+    ChangeFeed(ConnectionPool pool, ChangeListener invalidator) {
+
+        /* This object reference */
+        final ChangeFeed self = this;
+
+        this.pool = pool;
+        this.invalidator = invalidator;
+        this.subscriptions = new ConcurrentHashMap<Long, Subscription>();
+        this.ids = new AtomicLong();
+
+        /* Changes arrive on the connection the subscriptions were sent on */
+        pool.getConnection(0).expose(CHANGE_EVENT, new Method() {
+            public void method(Object obj) {
+                if (obj instanceof JSONObject) {
+                    self.onChange((JSONObject) obj);
+                }
+            }
+        });
+        pool.setSessionListener(new Runnable() {
+            public void run() {
+                for (Subscription subscription : self.subscriptions.values()) {
+                    subscription.unregistered(null);
+                    self.send(SUBSCRIBE, subscription);
+                }
+            }
+        });
+    }
+
+    Subscription subscribe(ChangeFilter filter, ChangeListener listener) {
+
+        Subscription subscription = new Subscription(this, this.ids.incrementAndGet(), filter, listener);
+        this.subscriptions.put(subscription.getId(), subscription);
+
+        /* Otherwise sent once the connection opens */
+        this.send(SUBSCRIBE, subscription);
+
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        if (this.subscriptions.remove(subscription.getId()) != null) {
+            this.send(UNSUBSCRIBE, subscription);
+        }
+    }
+
+    private void send(final String event, final Subscription subscription) {
+
+        /* This object reference */
+        final ChangeFeed self = this;
+
+        RPC primary = this.pool.getConnection(0);
+        if (!primary.isHealthy()) {
+            return;
+        }
+
+        try {
+            Message msg = new Message();
+            msg.setPayload(subscription.getFilter().toJSON(subscription.getId()));
+            primary.call(event, msg).then(new DoneCallback() {
+                public void onDone(Object o) {
+                    if (SUBSCRIBE.equals(event)) {
+                        subscription.registered();
+                    }
+                }
+            }, new FailCallback() {
+                public void onFail(Object o) {
+                    self.failed(event, subscription, o);
+                }
+            });
+        } catch (JSONException e) {
+            this.pool.getMetrics().error();
+            this.failed(event, subscription, e);
+        } catch (RuntimeException e) {
+            /* Sent again when the connection reopens */
+            this.pool.getMetrics().error();
+            this.failed(event, subscription, e);
+        }
+    }
+
+    /* Keeps why the server did not take the subscription; refused calls are already counted with their operation */
+    private void failed(String event, Subscription subscription, Object reason) {
+
+        log.warn("{} failed: {}", event, reason);
+        if (SUBSCRIBE.equals(event)) {
+            subscription.unregistered(reason);
+        }
+    }
+
+    /* Invalidates the changed component, then hands the change to the matching subscriptions */
+    private void onChange(JSONObject change) {
+
+        String type = change.optString("_type", "");
+        ChangeEvent event = new ChangeEvent(change.optString("_graphid", ""), type, change.optString("_id", ""),
+                operation(change.optString("_op", "")), component(type, change.opt("_payload")));
+
+        this.invalidator.onChange(event);
+
+        /* Changes addressed to one subscription go to it alone */
+        if (change.has("_sub")) {
+            Subscription subscription = this.subscriptions.get(change.optLong("_sub"));
+            if (subscription != null) {
+                this.deliver(subscription, event);
+            }
+            return;
+        }
+
+        for (Subscription subscription : this.subscriptions.values()) {
+            this.deliver(subscription, event);
+        }
+    }
+
+    private void deliver(Subscription subscription, ChangeEvent event) {
+
+        if (subscription.isClosed() || !subscription.getFilter().matches(event)) {
+            return;
+        }
+
+        try {
+            subscription.getListener().onChange(event);
+        } catch (RuntimeException e) {
+            log.warn("Change listener failed", e);
+            this.pool.getMetrics().error();
+        }
+    }
+
+    private static ChangeEvent.Operation operation(String op) {
+
+        if ("create".equals(op)) {
+            return ChangeEvent.Operation.CREATE;
+        } else if ("delete".equals(op)) {
+            return ChangeEvent.Operation.DELETE;
+        }
+
+        return ChangeEvent.Operation.UPDATE;
+    }
+
+    private static Component component(String type, Object payload) {
+
+        if (ComponentCache.VERTEX.equals(type)) {
+            return ComponentDecoder.VERTEX.decode(payload);
+        } else if (ComponentCache.EDGE.equals(type)) {
+            return ComponentDecoder.EDGE.decode(payload);
+        }
+
+        return null;
+    }
+}
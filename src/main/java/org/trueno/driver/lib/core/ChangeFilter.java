@@ -0,0 +1,83 @@
+package org.trueno.driver.lib.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.trueno.driver.lib.core.cache.ComponentCache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Changes a subscription receives: those of one graph, optionally only of its vertices or
+ * its edges, and optionally only of some components. The filter is sent to the server
+ * and applied again as changes arrive, so a server pushing more than asked is harmless.
+ */
+public class ChangeFilter {
+
+    /* Private properties */
+    private final String graphid;
+    private String type;
+    private Set<String> ids;
+
+    /* Constructor with Parameters, every change of the graph */
+    public ChangeFilter(String graphid) {
+
+        if (graphid == null) {
+            throw new IllegalArgumentException("A graph id is required");
+        }
+
+        /* Set parameters */
+        this.graphid = graphid;
+        this.type = null;
+        this.ids = null;
+    }
+
+    /* Getters */
+    public String getGraphid() {
+        return this.graphid;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public Set<String> getIds() {
+        return this.ids;
+    }
+
+    /* Setters */
+    /* ComponentCache.VERTEX or ComponentCache.EDGE, null for both */
+    public void setType(String type) {
+        if (type != null && !ComponentCache.VERTEX.equals(type) && !ComponentCache.EDGE.equals(type)) {
+            throw new IllegalArgumentException("Type must be \"v\", \"e\" or null");
+        }
+        this.type = type;
+    }
+
+    /* Identifiers of the components to follow, null for all */
+    public void setIds(Collection<String> ids) {
+        this.ids = ids != null ? new HashSet<String>(ids) : null;
+    }
+
+    public boolean matches(ChangeEvent event) {
+        return this.graphid.equals(event.getGraphid())
+                && (this.type == null || this.type.equals(event.getType()))
+                && (this.ids == null || this.ids.contains(event.getId()));
+    }
+
+    /* Subscription request payload */
+    JSONObject toJSON(long subscription) throws JSONException {
+
+        JSONObject json = new JSONObject();
+        json.put("_sub", subscription);
+        json.put("_graphid", this.graphid);
+        json.put("_type", this.type != null ? this.type : "");
+        if (this.ids != null) {
+            json.put("_ids", new JSONArray(this.ids));
+        }
+
+        return json;
+    }
+}
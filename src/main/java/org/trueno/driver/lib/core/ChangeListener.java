@@ -0,0 +1,9 @@
+package org.trueno.driver.lib.core;
+
+/**
+ * Receives the changes matching a subscription, in the order the server pushed them.
+ */
+public interface ChangeListener {
+
+    void onChange(ChangeEvent event);
+}
@@ -0,0 +1,86 @@
+package org.trueno.driver.lib.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.trueno.driver.lib.core.data_structures.Component;
+import org.trueno.driver.lib.core.data_structures.Edge;
+import org.trueno.driver.lib.core.data_structures.Graph;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads components of one type from reply payloads.
+ */
+abstract class ComponentDecoder<C extends Component> {
+
+    /* Decoders of the component types */
+    static final ComponentDecoder<Graph> GRAPH = new ComponentDecoder<Graph>() {
+        Graph create() {
+            return new Graph();
+        }
+    };
+    static final ComponentDecoder<Vertex> VERTEX = new ComponentDecoder<Vertex>() {
+        Vertex create() {
+            return new Vertex();
+        }
+    };
+    static final ComponentDecoder<Edge> EDGE = new ComponentDecoder<Edge>() {
+        Edge create() {
+            return new Edge();
+        }
+    };
+
+    /* Characters of a payload quoted in error messages */
+    private static final int DESCRIBE_LIMIT = 200;
+
+    abstract C create();
+
+    /* Component loaded from the payload, null when it holds none */
+    C decode(Object payload) {
+
+        if (!(payload instanceof JSONObject)) {
+            return null;
+        }
+
+        C c = this.create();
+        c.load((JSONObject) payload);
+
+        return c;
+    }
+
+    /* Components loaded from a payload array, failing on any other payload */
+    List<C> decodeAll(Object payload) {
+
+        if (!(payload instanceof JSONArray)) {
+            throw new TruenoException("Expected an array of components, got " + describe(payload), payload);
+        }
+
+        JSONArray array = (JSONArray) payload;
+        List<C> list = new ArrayList<C>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            C c = this.decode(array.opt(i));
+            if (c != null) {
+                list.add(c);
+            }
+        }
+
+        return list;
+    }
+
+    /* Type and beginning of a payload, for error messages */
+    private static String describe(Object payload) {
+
+        if (payload == null || payload == JSONObject.NULL) {
+            return "no payload";
+        }
+
+        String text = String.valueOf(payload);
+        if (text.length() > DESCRIBE_LIMIT) {
+            text = text.substring(0, DESCRIBE_LIMIT) + "...";
+        }
+
+        return payload.getClass().getSimpleName() + " " + text;
+    }
+}
@@ -0,0 +1,140 @@
+package org.trueno.driver.lib.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking iterator over the items of a list call, backed by its publisher. The cursor
+ * keeps at most prefetch items ahead of the caller and asks for more as they are
+ * consumed. Close the cursor to stop fetching when not iterating to the end.
+ */
+public class ListCursor<C> implements Iterator<C>, AutoCloseable {
+
+    /* End of the list marker */
+    private static final Object COMPLETE = new Object();
+
+    /* Private properties */
+    private final LinkedBlockingQueue<Object> queue;
+    private final int replenish;
+    private final long timeoutNanos;
+    private volatile Flow.Subscription subscription;
+    private Object next;
+    private int consumed;
+    private boolean finished;
+
+    /* Constructor with Parameters, a timeout of zero waits indefinitely for each item */
+    ListCursor(Flow.Publisher<C> publisher, final int prefetch, long timeoutNanos) {
+
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("Prefetch must be at least 1");
+        }
+
+        /* This object reference */
+        final ListCursor<C> self = this;
+
+        this.queue = new LinkedBlockingQueue<Object>();
+        this.replenish = Math.max(1, prefetch / 2);
+        this.timeoutNanos = timeoutNanos;
+
+        publisher.subscribe(new Flow.Subscriber<C>() {
+            public void onSubscribe(Flow.Subscription subscription) {
+                self.subscription = subscription;
+                subscription.request(prefetch);
+            }
+
+            public void onNext(C item) {
+                self.queue.add(item);
+            }
+
+            public void onError(Throwable error) {
+                self.queue.add(new Failure(error));
+            }
+
+            public void onComplete() {
+                self.queue.add(COMPLETE);
+            }
+        });
+    }
+
+    public boolean hasNext() {
+
+        if (this.next != null) {
+            return true;
+        }
+        if (this.finished) {
+            return false;
+        }
+
+        Object item;
+        try {
+            if (this.timeoutNanos > 0) {
+                item = this.queue.poll(this.timeoutNanos, TimeUnit.NANOSECONDS);
+                if (item == null) {
+                    this.close();
+                    throw new TruenoException("Timed out waiting for the next item", null);
+                }
+            } else {
+                item = this.queue.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TruenoException("Interrupted while waiting for the next item", e);
+        }
+
+        if (item == COMPLETE) {
+            this.finished = true;
+            return false;
+        }
+        if (item instanceof Failure) {
+            this.finished = true;
+            throw TruenoException.of(((Failure) item).error);
+        }
+
+        /* Asking for more once half of the prefetched items were consumed */
+        if (++this.consumed == this.replenish) {
+            this.consumed = 0;
+            this.subscription.request(this.replenish);
+        }
+
+        this.next = item;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public C next() {
+
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        C item = (C) this.next;
+        this.next = null;
+
+        return item;
+    }
+
+    /* Stops fetching and drops the items not consumed yet */
+    public void close() {
+
+        this.finished = true;
+        this.next = null;
+
+        Flow.Subscription subscription = this.subscription;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        this.queue.clear();
+    }
+
+    private static final class Failure {
+
+        final Throwable error;
+
+        Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+}
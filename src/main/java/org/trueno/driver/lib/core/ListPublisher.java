@@ -0,0 +1,239 @@
+package org.trueno.driver.lib.core;
+
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.json.JSONObject;
+import org.trueno.driver.lib.core.data_structures.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the items of a list call. Each subscription walks the list from the
+ * start, asking the server for one page at a time: a page is only requested once the
+ * subscriber has demand the buffered items cannot cover, and at most two pages are held
+ * at once, so memory stays constant whatever the size of the list.
+ *
+ * Pages are requested with _meta._page {_size, _cursor}. The server answers with the items
+ * in _payload and the cursor of the next page in _meta._cursor; a reply without a cursor
+ * is the last page, while an empty page with a cursor, e.g. one whose items were all
+ * filtered out, is followed like any other. A server that ignores paging answers with
+ * the whole list, which is then published as a single page.
+ */
+class ListPublisher<C extends Component> implements Flow.Publisher<C> {
+
+    /* Private properties */
+    private final Trueno trueno;
+    private final String method;
+    private final Component filter;
+    private final Query query;
+    private final int pageSize;
+    private final ComponentDecoder<C> decoder;
+
+    ListPublisher(Trueno trueno, String method, Component filter, int pageSize, ComponentDecoder<C> decoder) {
+        this(trueno, method, filter, null, pageSize, decoder);
+    }
+
+    /* Pages of the components of the query, null for every component of the filter */
+    ListPublisher(Trueno trueno, String method, Component filter, Query query, int pageSize, ComponentDecoder<C> decoder) {
+
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+
+        /* Set parameters */
+        this.trueno = trueno;
+        this.method = method;
+        this.filter = filter;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.decoder = decoder;
+    }
+
+    public void subscribe(Flow.Subscriber<? super C> subscriber) {
+
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber must not be null");
+        }
+
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /* Subscription state; signals to the subscriber are serialized by the drain loop */
+    private final class PageSubscription implements Flow.Subscription {
+
+        final Flow.Subscriber<? super C> subscriber;
+        final ConcurrentLinkedQueue<C> buffer;
+        final AtomicInteger buffered;
+        final AtomicLong demand;
+        final AtomicInteger wip;
+        volatile Object cursor;
+        volatile boolean fetching;
+        volatile boolean last;
+        volatile boolean cancelled;
+        volatile Throwable error;
+        /* Error ending the subscription at once, ahead of any buffered or arriving item */
+        volatile Throwable terminal;
+        boolean done;
+
+        PageSubscription(Flow.Subscriber<? super C> subscriber) {
+            this.subscriber = subscriber;
+            this.buffer = new ConcurrentLinkedQueue<C>();
+            this.buffered = new AtomicInteger();
+            this.demand = new AtomicLong();
+            this.wip = new AtomicInteger();
+        }
+
+        public void request(long n) {
+
+            if (n <= 0) {
+                this.terminal = new IllegalArgumentException("Requested " + n + " items, demand must be positive");
+                this.drain();
+                return;
+            }
+
+            /* Adding to the demand, capped at Long.MAX_VALUE meaning unbounded */
+            long current;
+            long next;
+            do {
+                current = this.demand.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!this.demand.compareAndSet(current, next));
+
+            this.drain();
+        }
+
+        public void cancel() {
+            this.cancelled = true;
+            this.drain();
+        }
+
+        /* Emits buffered items against the demand, then completes, fails or fetches the next page */
+        void drain() {
+
+            if (this.wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            while (true) {
+                if (this.cancelled || this.done) {
+                    this.buffer.clear();
+                    this.buffered.set(0);
+                    return;
+                }
+                if (this.terminal != null) {
+                    this.done = true;
+                    this.buffer.clear();
+                    this.buffered.set(0);
+                    this.subscriber.onError(this.terminal);
+                    return;
+                }
+
+                long requested = this.demand.get();
+                long emitted = 0;
+                while (emitted != requested && !this.cancelled && this.terminal == null) {
+                    C item = this.buffer.poll();
+                    if (item == null) {
+                        break;
+                    }
+                    this.buffered.decrementAndGet();
+                    this.subscriber.onNext(item);
+                    emitted++;
+                }
+                if (emitted != 0 && requested != Long.MAX_VALUE) {
+                    this.demand.addAndGet(-emitted);
+                }
+
+                if (!this.cancelled && this.terminal == null && this.buffer.isEmpty() && !this.fetching) {
+                    if (this.error != null) {
+                        this.done = true;
+                        this.subscriber.onError(this.error);
+                        return;
+                    }
+                    if (this.last) {
+                        this.done = true;
+                        this.subscriber.onComplete();
+                        return;
+                    }
+                }
+
+                /* Fetching when the demand outgrows the buffer, holding at most two pages */
+                if (!this.cancelled && !this.fetching && !this.last && this.error == null && this.terminal == null
+                        && this.demand.get() > this.buffered.get() && this.buffered.get() < pageSize) {
+                    this.fetching = true;
+                    this.fetch();
+                }
+
+                missed = this.wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        void fetch() {
+
+            /* This object reference */
+            final PageSubscription self = this;
+
+            try {
+                trueno.getListPage(method, filter, query, pageSize, this.cursor).then(new DoneCallback() {
+                    public void onDone(Object reply) {
+                        self.receive(reply);
+                    }
+                }, new FailCallback() {
+                    public void onFail(Object reason) {
+                        self.error = TruenoException.of(reason);
+                        self.fetching = false;
+                        self.drain();
+                    }
+                });
+            } catch (RuntimeException e) {
+                this.error = e;
+                this.fetching = false;
+                this.drain();
+            }
+        }
+
+        void receive(Object reply) {
+
+            /* The subscription ended while the page was in flight */
+            if (this.cancelled || this.terminal != null) {
+                this.fetching = false;
+                this.drain();
+                return;
+            }
+
+            try {
+                Object payload = reply;
+                Object next = null;
+                if (reply instanceof JSONObject) {
+                    JSONObject msg = (JSONObject) reply;
+                    payload = msg.opt("_payload");
+                    JSONObject meta = msg.optJSONObject("_meta");
+                    next = meta != null ? meta.opt("_cursor") : null;
+                }
+
+                List<C> items = decoder.decodeAll(payload);
+                for (C item : items) {
+                    this.buffer.add(item);
+                }
+                this.buffered.addAndGet(items.size());
+
+                /* Only a reply without a cursor ends the list, an empty page with one is followed */
+                this.cursor = next;
+                this.last = next == null || next == JSONObject.NULL;
+            } catch (RuntimeException e) {
+                this.error = e;
+            }
+
+            this.fetching = false;
+            this.drain();
+        }
+    }
+}
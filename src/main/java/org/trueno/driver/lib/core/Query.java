@@ -0,0 +1,240 @@
+package org.trueno.driver.lib.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Selection of the components a list call returns, applied by the server before it
+ * replies: predicates every component must satisfy, a window of limit items after
+ * offset, and the fields each returned component carries. Fields name an attribute,
+ * e.g. "age", or a property of the component when they start with an underscore, e.g.
+ * "_id", "_label", "_computed.pagerank.rank" or "_meta.created". Values are strings,
+ * finite numbers or booleans.
+ *
+ *   Query q = new Query().gte("age", 30).lt("age", 40).select("_id", "name", "city").limit(100);
+ *
+ * is sent along with the list request as
+ *
+ *   {"_where": [{"_field": "_attributes.age", "_op": "gte", "_value": 30}, ...],
+ *    "_select": ["_id", "_attributes.name", "_attributes.city"], "_limit": 100}
+ */
+public class Query {
+
+    /* Private properties */
+    private final ArrayList<JSONObject> predicates;
+    private final ArrayList<String> selected;
+    private final ArrayList<String> excluded;
+    private int limit;
+    private int offset;
+
+    /* Default Constructor, every component with all its fields */
+    public Query() {
+        this.predicates = new ArrayList<JSONObject>();
+        this.selected = new ArrayList<String>();
+        this.excluded = new ArrayList<String>();
+        this.limit = 0;
+        this.offset = 0;
+    }
+
+    /*================================ PREDICATES ================================*/
+
+    public Query eq(String field, Object value) {
+        return this.compare(field, "eq", value);
+    }
+
+    public Query ne(String field, Object value) {
+        return this.compare(field, "ne", value);
+    }
+
+    public Query gt(String field, Object value) {
+        return this.compare(field, "gt", value);
+    }
+
+    public Query gte(String field, Object value) {
+        return this.compare(field, "gte", value);
+    }
+
+    public Query lt(String field, Object value) {
+        return this.compare(field, "lt", value);
+    }
+
+    public Query lte(String field, Object value) {
+        return this.compare(field, "lte", value);
+    }
+
+    /* Field between from and to, both included */
+    public Query between(String field, Object from, Object to) {
+
+        Object low = value(from);
+        Object high = value(to);
+
+        JSONObject predicate = this.predicate(field, "between");
+        try {
+            predicate.put("_from", low);
+            predicate.put("_to", high);
+        } catch (JSONException e) {
+            System.out.println(e);
+        }
+
+        return this;
+    }
+
+    /* Field equal to one of the values */
+    public Query in(String field, Collection<?> values) {
+
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("At least one value is required");
+        }
+
+        JSONArray array = new JSONArray();
+        for (Object v : values) {
+            array.put(value(v));
+        }
+
+        JSONObject predicate = this.predicate(field, "in");
+        try {
+            predicate.put("_values", array);
+        } catch (JSONException e) {
+            System.out.println(e);
+        }
+
+        return this;
+    }
+
+    /* Components having the field, whatever its value */
+    public Query exists(String field) {
+        this.predicate(field, "exists");
+        return this;
+    }
+
+    /*================================ WINDOW ================================*/
+
+    /* At most limit components, zero for all of them */
+    public Query limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /* Skips the first offset matching components */
+    public Query offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /*================================ PROJECTION ================================*/
+
+    /* Returned components carry only these fields */
+    public Query select(String... fields) {
+        for (String field : fields) {
+            this.selected.add(path(field));
+        }
+        return this;
+    }
+
+    /* Returned components carry every field but these, e.g. "_computed" */
+    public Query exclude(String... fields) {
+        for (String field : fields) {
+            this.excluded.add(path(field));
+        }
+        return this;
+    }
+
+    /* Getters */
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /* Query section of the list request payload */
+    JSONObject toJSON() {
+
+        JSONObject json = new JSONObject();
+        try {
+            if (!this.predicates.isEmpty()) {
+                json.put("_where", new JSONArray(this.predicates));
+            }
+            if (!this.selected.isEmpty()) {
+                json.put("_select", new JSONArray(this.selected));
+            }
+            if (!this.excluded.isEmpty()) {
+                json.put("_exclude", new JSONArray(this.excluded));
+            }
+            if (this.limit > 0) {
+                json.put("_limit", this.limit);
+            }
+            if (this.offset > 0) {
+                json.put("_offset", this.offset);
+            }
+        } catch (JSONException e) {
+            System.out.println(e);
+        }
+
+        return json;
+    }
+
+    private Query compare(String field, String op, Object value) {
+
+        Object checked = value(value);
+
+        JSONObject predicate = this.predicate(field, op);
+        try {
+            predicate.put("_value", checked);
+        } catch (JSONException e) {
+            System.out.println(e);
+        }
+
+        return this;
+    }
+
+    private JSONObject predicate(String field, String op) {
+
+        JSONObject predicate = new JSONObject();
+        try {
+            predicate.put("_field", path(field));
+            predicate.put("_op", op);
+        } catch (JSONException e) {
+            System.out.println(e);
+        }
+        this.predicates.add(predicate);
+
+        return predicate;
+    }
+
+    /* Attributes are addressed by name, other properties by their underscored path */
+    private static String path(String field) {
+
+        if (field == null || field.isEmpty()) {
+            throw new IllegalArgumentException("A field name is required");
+        }
+
+        return field.charAt(0) == '_' ? field : "_attributes." + field;
+    }
+
+    private static Object value(Object value) {
+
+        /* NaN and infinities have no JSON form */
+        if ((value instanceof Double && !Double.isFinite((Double) value))
+                || (value instanceof Float && !Float.isFinite((Float) value))) {
+            throw new IllegalArgumentException("Query values must be finite numbers, not " + value);
+        }
+
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+
+        throw new IllegalArgumentException("Query values are strings, numbers or booleans, not " + value);
+    }
+}
@@ -0,0 +1,72 @@
+package org.trueno.driver.lib.core;
+
+/**
+ * A change feed subscription. It stays registered across reconnections until closed.
+ * Until the server accepts its filter it is not registered; if the server refuses it,
+ * the reason is kept until the next attempt, made when the connection reopens.
+ */
+public class Subscription implements AutoCloseable {
+
+    /* Private properties */
+    private final ChangeFeed feed;
+    private final long id;
+    private final ChangeFilter filter;
+    private final ChangeListener listener;
+    private volatile boolean closed;
+    private volatile boolean registered;
+    private volatile Object error;
+
+    /* Constructor with Parameters */
+    Subscription(ChangeFeed feed, long id, ChangeFilter filter, ChangeListener listener) {
+        this.feed = feed;
+        this.id = id;
+        this.filter = filter;
+        this.listener = listener;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public ChangeFilter getFilter() {
+        return this.filter;
+    }
+
+    ChangeListener getListener() {
+        return this.listener;
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /* Whether the server accepted the filter the last time it was sent */
+    public boolean isRegistered() {
+        return this.registered;
+    }
+
+    /* Why the server did not accept the filter, null unless its last attempt failed */
+    public Object getError() {
+        return this.error;
+    }
+
+    void registered() {
+        this.error = null;
+        this.registered = true;
+    }
+
+    void unregistered(Object reason) {
+        this.registered = false;
+        this.error = reason;
+    }
+
+    /* Stops the changes, the server is told to stop pushing them */
+    public void close() {
+
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.feed.unsubscribe(this);
+    }
+}
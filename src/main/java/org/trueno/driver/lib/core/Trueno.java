@@ -2,14 +2,35 @@ package org.trueno.driver.lib.core;
 
 
 import com.github.nkzawa.engineio.client.Socket;
+import org.jdeferred.AlwaysCallback;
+import org.jdeferred.DoneCallback;
+import org.jdeferred.DonePipe;
+import org.jdeferred.FailCallback;
 import org.jdeferred.Promise;
+import org.jdeferred.impl.DeferredObject;
+import org.json.JSONObject;
+import org.trueno.driver.lib.core.cache.ComponentCache;
+import org.trueno.driver.lib.core.cache.SingleFlight;
+import org.trueno.driver.lib.core.communication.Backpressure;
+import org.trueno.driver.lib.core.communication.BatchPolicy;
 import org.trueno.driver.lib.core.communication.Callback;
+import org.trueno.driver.lib.core.communication.ConnectionPool;
+import org.trueno.driver.lib.core.communication.HedgePolicy;
+import org.trueno.driver.lib.core.communication.LoadBalancing;
 import org.trueno.driver.lib.core.communication.Message;
-import org.trueno.driver.lib.core.communication.RPC;
+import org.trueno.driver.lib.core.communication.Method;
+import org.trueno.driver.lib.core.communication.OfflinePolicy;
+import org.trueno.driver.lib.core.communication.ReconnectPolicy;
+import org.trueno.driver.lib.core.communication.WriteBehindPolicy;
+import org.trueno.driver.lib.core.communication.codec.Codec;
+import org.trueno.driver.lib.core.communication.transport.TransportFactory;
 import org.trueno.driver.lib.core.data_structures.Component;
 import org.trueno.driver.lib.core.data_structures.Edge;
 import org.trueno.driver.lib.core.data_structures.Graph;
 import org.trueno.driver.lib.core.data_structures.Vertex;
+import org.trueno.driver.lib.core.metrics.Metrics;
+
+import java.util.concurrent.Executor;
 
 /**
  * Created by victor on 7/19/16.
@@ -19,119 +40,260 @@ public class Trueno {
     /* Private properties */
     private String host;
     private int port;
-    private RPC rpc;
-    private boolean isConnected;
+    private ConnectionPool pool;
+    private ComponentCache cache;
+    private SingleFlight flights;
+    private HedgePolicy hedging;
+    private long timeout;
+    private ChangeFeed feed;
+    private WriteBehind writeBehind;
+    private final Trueno root;
 
 
     /* Default Constructor */
     public Trueno() {
-
-        /* Set default properties */
-        this.host = "http://localhost";
-        this.port = 8000;
-        this.isConnected = false;
-        this.rpc = new RPC(this.host, this.port);
-
+        this(null, null);
     }
 
     /* Constructor with Parameters */
     public Trueno(String host, Integer port) {
+        this(host, port, 1, LoadBalancing.ROUND_ROBIN);
+    }
+
+    /* Constructor with a pool of connections */
+    public Trueno(String host, Integer port, int poolSize, LoadBalancing balancing) {
+        this(host, port, poolSize, balancing, null);
+    }
 
-        /* calling default constructor */
-        this();
-        /* Set parameters */
-        this.host = host != null ? host : this.host;
-        this.port = port != null ? port : this.port;
-        this.rpc = new RPC(this.host, this.port);
+    /* Constructor with a pool of connections and the transport they use, e.g. FramedTransport.factory(); the other constructors end here so the pool is built once */
+    public Trueno(String host, Integer port, int poolSize, LoadBalancing balancing, TransportFactory transport) {
+
+        /* Set parameters, with the defaults for those missing */
+        this.host = host != null ? host : "http://localhost";
+        this.port = port != null ? port : 8000;
+        this.pool = new ConnectionPool(this.host, this.port, poolSize, balancing);
+        this.cache = null;
+        this.flights = new SingleFlight();
+        this.hedging = null;
+        this.timeout = 0;
+        this.root = this;
+
+        /* Set transport, socket.io when none is given */
+        if (transport != null) {
+            this.pool.setTransport(transport);
+        }
     }
 
     public void connect(final Callback connCallback, final Callback discCallback) {
+
+        /* Connect the pool of rpc objects */
+        this.pool.connect(connCallback, discCallback);
+    }
+
+    public void disconnect() {
+
+        /* Buffered updates go out first */
+        WriteBehind writeBehind = this.writeBehind;
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+        this.pool.disconnect();
+    }
+
+    /* Enables transparent batching of calls, or disables it when null */
+    public void setBatchPolicy(BatchPolicy policy) {
+        this.pool.setBatchPolicy(policy);
+    }
+
+    /* Sends the buffered updates and the calls held by the batcher without waiting for their windows */
+    public void flush() {
+
+        WriteBehind writeBehind = this.writeBehind;
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+        this.pool.flush();
+    }
+
+    /* Merges the updates made to the same component before sending them, or disables merging when null */
+    public void setWriteBehind(WriteBehindPolicy policy) {
+
         /* This object reference */
         final Trueno self = this;
 
-        /* Connect the rpc object */
-        this.rpc.connect(new Callback() {
-            public void method(com.github.nkzawa.socketio.client.Socket socket) {
-                self.isConnected = true;
-                connCallback.method(socket);
-            }
-        }, new Callback() {
-            public void method(com.github.nkzawa.socketio.client.Socket socket) {
-                self.isConnected = false;
-                discCallback.method(socket);
+        /* Sending whatever was merged under the previous policy */
+        WriteBehind previous = this.writeBehind;
+        if (previous != null) {
+            previous.flush();
+        }
+
+        this.writeBehind = policy == null ? null : new WriteBehind(new WriteBehind.Writer() {
+            public Promise write(String method, String type, Component c, Message msg) {
+                return self.invalidatingSend(method, type, c, msg);
             }
-        });
+        }, policy);
+    }
+
+    /* Sets how dropped connections are reopened, or disables reconnecting when null */
+    public void setReconnectPolicy(ReconnectPolicy reconnect) {
+        this.pool.setReconnectPolicy(reconnect);
+    }
+
+    /* Bounds the calls held while disconnected, which are sent in order on reconnect; null rejects them instead */
+    public void setOfflinePolicy(OfflinePolicy policy) {
+        this.pool.setOfflinePolicy(policy);
+    }
+
+    /* Milliseconds a call waits for its reply before failing with a TimeoutException, zero waits forever */
+    public void setDefaultTimeout(long timeout) {
+        this.pool.setDefaultTimeout(timeout);
+    }
+
+    /* View of this client whose calls fail if not answered within the given milliseconds; shares the connections, cache, in-flight reads and hedging in place when created */
+    public Trueno withTimeout(long timeout) {
+
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+
+        return new Trueno(this, timeout);
+    }
+
+    /* View sharing the state of the parent, the change feed is that of the client the views derive from */
+    private Trueno(Trueno parent, long timeout) {
+        this.host = parent.host;
+        this.port = parent.port;
+        this.pool = parent.pool;
+        this.cache = parent.cache;
+        this.flights = parent.flights;
+        this.hedging = parent.hedging;
+        this.timeout = timeout;
+        this.writeBehind = parent.writeBehind;
+        this.root = parent.root;
+    }
+
+    /* Hedges getVertex/getEdge/getGraph on a second connection when slow, or disables hedging when null; needs a pool of at least two connections */
+    public void setHedging(HedgePolicy hedging) {
+        this.hedging = hedging;
+    }
+
+    public HedgePolicy getHedging() {
+        return this.hedging;
+    }
+
+    /* Bounds the number of outstanding requests per connection, zero removes the bound */
+    public void setMaxInFlight(int maxInFlight, Backpressure backpressure) {
+        this.pool.setMaxInFlight(maxInFlight, backpressure);
+    }
+
+    /* Sets the wire encoding, must be called before connect */
+    public void setCodec(Codec codec) {
+        this.pool.setCodec(codec);
+    }
+
+    /* Sets how connections reach the server, e.g. an in-process loopback; must be called before connect */
+    public void setTransport(TransportFactory factory) {
+        this.pool.setTransport(factory);
     }
+
+    /* Caches getVertex/getEdge/getGraph replies, or disables caching when null */
+    public void setCache(ComponentCache cache) {
+        this.cache = cache;
+    }
+
+    public ComponentCache getCache() {
+        return this.cache;
+    }
+
+    /* Shares one request between identical concurrent getVertex/getEdge/getGraph calls, enabled by default */
+    public void setCoalescing(boolean enabled) {
+        this.flights = enabled ? new SingleFlight() : null;
+    }
+
+    public boolean isCoalescing() {
+        return this.flights != null;
+    }
+
+    /* Calls the procedure with every document the server pushes under its name */
+    public void expose(String procedureName, Method procedureFunction) {
+        this.pool.expose(procedureName, procedureFunction);
+    }
+
+    /* Sets the executor exposed procedures and change listeners run on, the common fork-join pool by default */
+    public void setProcedureExecutor(Executor executor) {
+        this.pool.setProcedureExecutor(executor);
+    }
+
+    /* Receives the changes matching the filter until the subscription is closed; changed components are evicted from the cache first */
+    public Subscription subscribe(ChangeFilter filter, ChangeListener listener) {
+        return this.feed().subscribe(filter, listener);
+    }
+
+    /* Latency histograms and counters of this client, see Metrics.snapshot and Metrics.register */
+    public Metrics getMetrics() {
+        return this.pool.getMetrics();
+    }
+
+    /* Connections used by this client */
+    public ConnectionPool getPool() {
+        return this.pool;
+    }
+
     /********************************* GRAPH EXTERNAL API METHODS *********************************/
 
     public Promise createGraph(Graph g) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(g);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_createGraph", msg);
+        return this.invalidatingWrite("ex_createGraph", ComponentCache.GRAPH, g, msg);
 
     }
 
     public Promise updateGraph(Graph g) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
-        /* packing message */
+        /* packing only the modified properties */
         Message msg = new Message();
-        msg.setPayload(g);
+        long version = this.packDelta(g, msg);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_updateGraph", msg);
+        return this.bufferedWrite("ex_updateGraph", ComponentCache.GRAPH, g, msg).then(this.clearOnDone(g, version));
 
     }
 
     public Promise deleteGraph(Graph g) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(g);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_deleteGraph", msg);
+        return this.invalidatingWrite("ex_deleteGraph", ComponentCache.GRAPH, g, msg);
 
     }
 
     public Promise getGraph(Graph g) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(g);
 
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_getGraph", msg);
+        return this.cachedRead("ex_getGraph", ComponentCache.GRAPH, g, msg);
 
     }
 
     public Promise getGraphList(Graph g) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(g);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_getGraphList", msg);
+        return this.send("ex_getGraphList", msg);
 
     }
 
@@ -139,50 +301,38 @@ public class Trueno {
 
     public Promise createVertex(Vertex v) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(v);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_createVertex", msg);
+        return this.invalidatingWrite("ex_createVertex", ComponentCache.VERTEX, v, msg);
     }
 
 
     public Promise updateVertex(Vertex v) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
-        /* packing message */
+        /* packing only the modified properties */
         Message msg = new Message();
-        msg.setPayload(v);
+        long version = this.packDelta(v, msg);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_updateVertex", msg);
+        return this.bufferedWrite("ex_updateVertex", ComponentCache.VERTEX, v, msg).then(this.clearOnDone(v, version));
     }
 
 
     public Promise deleteVertex(Vertex v) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(v);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_deleteVertex", msg);
+        return this.invalidatingWrite("ex_deleteVertex", ComponentCache.VERTEX, v, msg);
     }
 
     public Promise getVertex(Vertex v) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(v);
@@ -190,70 +340,67 @@ public class Trueno {
         //TODO: Expect more results, fix this.
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_getVertex", msg);
+        return this.cachedRead("ex_getVertex", ComponentCache.VERTEX, v, msg);
     }
 
     public Promise getVertexList(Vertex v) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(v);
 
-        //TODO: Expect more results, fix this.
+        /* resolves with the whole list, see TruenoAsync.streamVertexList for paging */
+
+        /* return promise with the async operation */
+        return this.send("ex_getVertexList", msg);
+    }
+
+    /* Only the vertices of the query, trimmed to its fields by the server */
+    public Promise getVertexList(Vertex v, Query q) {
+
+        /* packing message */
+        Message msg = new Message();
+        msg.setPayload(v);
+        msg.setQuery(q.toJSON());
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_getVertexList", msg);
+        return this.send("ex_getVertexList", msg);
     }
 
     /*================================ EDGE EXTERNAL API METHODS ================================*/
 
     public Promise createEdge(Edge e) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(e);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_createEdge", msg);
+        return this.invalidatingWrite("ex_createEdge", ComponentCache.EDGE, e, msg);
     }
 
     public Promise updateEdge(Edge e) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
-        /* packing message */
+        /* packing only the modified properties */
         Message msg = new Message();
-        msg.setPayload(e);
+        long version = this.packDelta(e, msg);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_updateEdge", msg);
+        return this.bufferedWrite("ex_updateEdge", ComponentCache.EDGE, e, msg).then(this.clearOnDone(e, version));
     }
 
     public Promise deleteEdge(Edge e) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(e);
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_deleteEdge", msg);
+        return this.invalidatingWrite("ex_deleteEdge", ComponentCache.EDGE, e, msg);
     }
 
     public Promise getEdge(Edge e) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
-
         /* packing message */
         Message msg = new Message();
         msg.setPayload(e);
@@ -261,29 +408,258 @@ public class Trueno {
         //TODO: Expect more results, fix this.
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_getEdge", msg);
+        return this.cachedRead("ex_getEdge", ComponentCache.EDGE, e, msg);
     }
 
     public Promise getEdgeList(Edge e) {
 
-        /* validating connection */
-        this.checkConnectionAndValidate();
+        /* packing message */
+        Message msg = new Message();
+        msg.setPayload(e);
+
+        /* resolves with the whole list, see TruenoAsync.streamEdgeList for paging */
+
+        /* return promise with the async operation */
+        return this.send("ex_getEdgeList", msg);
+    }
+
+    /* Only the edges of the query, trimmed to its fields by the server */
+    public Promise getEdgeList(Edge e, Query q) {
 
         /* packing message */
         Message msg = new Message();
         msg.setPayload(e);
+        msg.setQuery(q.toJSON());
 
-        //TODO: Expect more results, fix this.
+        /* return promise with the async operation */
+        return this.send("ex_getEdgeList", msg);
+    }
+
+    /* Requests one page of a list, resolving with the whole reply: the items in _payload and the next cursor in _meta */
+    Promise getListPage(String method, Component c, Query q, int size, Object cursor) {
+
+        /* packing message */
+        Message msg = new Message();
+        msg.setPayload(c);
+        msg.setPage(size, cursor);
+        if (q != null) {
+            msg.setQuery(q.toJSON());
+        }
 
         /* return promise with the async operation */
-        return this.rpc.call("ex_getEdgeList", msg);
+        return this.send(method, msg, true);
+    }
+
+    /* Change feed of the pool, created on first subscription and shared with the views */
+    private ChangeFeed feed() {
+
+        /* The client the views derive from */
+        final Trueno self = this.root;
+
+        synchronized (self) {
+            if (self.feed == null) {
+                self.feed = new ChangeFeed(self.pool, new ChangeListener() {
+                    public void onChange(ChangeEvent event) {
+                        invalidate(self.cache, self.flights, event.getGraphid(), event.getId(), event.getType());
+                    }
+                });
+            }
+            return self.feed;
+        }
+    }
+
+    /* Packs the modified properties of the component, returning the version they correspond to */
+    private long packDelta(Component c, Message msg) {
+
+        if (c == null) {
+            msg.setPayload((JSONObject) null);
+            return 0;
+        }
+
+        /* Taking the version first, changes made while packing are kept for the next update */
+        long version = c.getVersion();
+        msg.setDelta(c.isModified());
+        msg.setPayload(c.delta());
+
+        return version;
+    }
+
+    /* Clears the modified state once the server acknowledged the update */
+    private DoneCallback clearOnDone(final Component c, final long version) {
+        return new DoneCallback() {
+            public void onDone(Object o) {
+                if (c != null) {
+                    c.clear(version);
+                }
+            }
+        };
+    }
+
+    /* Serves the read from the cache when possible, caching the reply otherwise */
+    private Promise cachedRead(String method, final String type, Component c, Message msg) {
+
+        final ComponentCache cache = this.cache;
+        if (cache == null || !byIdentity(c, msg)) {
+            return this.coalescedRead(method, type, c, msg);
+        }
+
+        final String graphid = c.getGraphid();
+        final String id = c.getId();
+
+        /* Cache hit, no round trip */
+        Object hit = cache.get(graphid, id, type);
+        if (hit != null) {
+            return new DeferredObject().resolve(hit);
+        }
+
+        /* Cache miss, storing the reply unless a write invalidated it meanwhile */
+        final long stamp = cache.stamp(graphid, id, type);
+        return this.coalescedRead(method, type, c, msg).then(new DoneCallback() {
+            public void onDone(Object o) {
+                cache.put(graphid, id, type, o, stamp);
+            }
+        });
     }
 
-    private void checkConnectionAndValidate() {
+    /* Joins an identical read already in flight, or sends it and lets later callers join it until the reply lands */
+    private Promise coalescedRead(String method, final String type, Component c, Message msg) {
+
+        final SingleFlight flights = this.flights;
+        if (flights == null || !byIdentity(c, msg)) {
+            return this.read(method, msg);
+        }
+
+        final String graphid = c.getGraphid();
+        final String id = c.getId();
+        final DeferredObject deferred = new DeferredObject();
+
+        Promise flight = flights.join(graphid, id, type, this.timeout, deferred);
+        if (flight != deferred.promise()) {
+            this.pool.getMetrics().coalesced();
+            return flight;
+        }
+
+        try {
+            this.read(method, msg).then(new DoneCallback() {
+                public void onDone(Object o) {
+                    flights.land(graphid, id, type, deferred.promise());
+                    deferred.resolve(o);
+                }
+            }, new FailCallback() {
+                public void onFail(Object o) {
+                    flights.land(graphid, id, type, deferred.promise());
+                    deferred.reject(o);
+                }
+            });
+        } catch (RuntimeException e) {
+            flights.land(graphid, id, type, deferred.promise());
+            throw e;
+        }
+
+        return deferred.promise();
+    }
+
+    /* Whether the reply depends on the component's identity alone: it has an id and projects no fields */
+    private static boolean byIdentity(Component c, Message msg) {
+
+        if (c == null || c.getId() == null || c.getId().isEmpty()) {
+            return false;
+        }
+
+        JSONObject payload = msg.getPayload();
+        return payload == null || !payload.has("_internal");
+    }
+
+    /* Merges the update into the write-behind buffer when enabled, sends it otherwise */
+    private Promise bufferedWrite(String method, String type, Component c, Message msg) {
+
+        WriteBehind writeBehind = this.writeBehind;
+        if (writeBehind == null || c == null) {
+            return this.invalidatingWrite(method, type, c, msg);
+        }
+
+        /* The buffer is shared with the views, each update keeps the deadline of the one it was made on */
+        if (this.timeout > 0) {
+            msg.setTimeout(this.timeout);
+        }
+
+        return writeBehind.update(method, type, c, msg);
+    }
+
+    /* Sends the write once the updates buffered for the component landed, e.g. before it is deleted */
+    private Promise invalidatingWrite(final String method, final String type, final Component c, final Message msg) {
+
+        /* This object reference */
+        final Trueno self = this;
+
+        WriteBehind writeBehind = this.writeBehind;
+        if (writeBehind == null || c == null) {
+            return this.invalidatingSend(method, type, c, msg);
+        }
+
+        return writeBehind.drain(type, c.getGraphid(), c.getId()).then(new DonePipe() {
+            public Promise pipeDone(Object o) {
+                return self.invalidatingSend(method, type, c, msg);
+            }
+        });
+    }
+
+    /* Sends the write, invalidating the cached component and the reads in flight before and after it is applied */
+    private Promise invalidatingSend(String method, final String type, Component c, Message msg) {
+
+        final ComponentCache cache = this.cache;
+        final SingleFlight flights = this.flights;
+        if ((cache == null && flights == null) || c == null) {
+            return this.send(method, msg);
+        }
+
+        final String graphid = c.getGraphid();
+        final String id = c.getId();
+
+        invalidate(cache, flights, graphid, id, type);
+        return this.send(method, msg).always(new AlwaysCallback() {
+            public void onAlways(Promise.State state, Object resolved, Object rejected) {
+                invalidate(cache, flights, graphid, id, type);
+            }
+        });
+    }
+
+    private static void invalidate(ComponentCache cache, SingleFlight flights, String graphid, String id, String type) {
+
+        if (cache != null) {
+            cache.invalidate(graphid, id, type);
+        }
+        if (flights != null) {
+            flights.forget(graphid, id, type);
+        }
+    }
+
+    private Promise send(String method, Message msg) {
+        return this.send(method, msg, false);
+    }
+
+    /* Sends the message on the pool, with the deadline of this view if any */
+    private Promise send(String method, Message msg, boolean whole) {
+
+        if (this.timeout > 0) {
+            msg.setTimeout(this.timeout);
+        }
+
+        return this.pool.call(method, msg, whole);
+    }
+
+    /* Sends an idempotent read, hedged when a policy is set */
+    private Promise read(String method, Message msg) {
+
+        HedgePolicy hedging = this.hedging;
+        if (hedging == null) {
+            return this.send(method, msg);
+        }
 
-        if (!this.isConnected) {
-            throw new Error("Client driver not connected to database.");
+        if (this.timeout > 0) {
+            msg.setTimeout(this.timeout);
         }
 
+        return this.pool.callHedged(method, msg, hedging);
     }
 }
@@ -0,0 +1,194 @@
+package org.trueno.driver.lib.core;
+
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.jdeferred.Promise;
+import org.trueno.driver.lib.core.data_structures.Component;
+import org.trueno.driver.lib.core.data_structures.Edge;
+import org.trueno.driver.lib.core.data_structures.Graph;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Typed view of a {@link Trueno} client: every call returns a CompletableFuture of the
+ * decoded reply instead of a raw promise. Reads complete with new components loaded from
+ * the reply, writes with the component that was sent once the server acknowledged it.
+ * Error replies and transport failures complete the future with a {@link TruenoException}.
+ *
+ * List calls can also be streamed: the stream*List methods return a Flow.Publisher that
+ * fetches the list one page at a time as the subscriber signals demand.
+ *
+ * Futures are completed on the connection's I/O thread. Dependent stages doing heavy work
+ * should use the *Async variants of CompletableFuture with their own executor.
+ */
+public class TruenoAsync {
+
+    /* Private properties */
+    private final Trueno trueno;
+
+    /* Constructor with Parameters */
+    public TruenoAsync(Trueno trueno) {
+        this.trueno = trueno;
+    }
+
+    public Trueno getTrueno() {
+        return this.trueno;
+    }
+
+    /********************************* GRAPH EXTERNAL API METHODS *********************************/
+
+    public CompletableFuture<Graph> createGraph(Graph g) {
+        return acknowledge(this.trueno.createGraph(g), g);
+    }
+
+    public CompletableFuture<Graph> updateGraph(Graph g) {
+        return acknowledge(this.trueno.updateGraph(g), g);
+    }
+
+    public CompletableFuture<Void> deleteGraph(Graph g) {
+        return acknowledge(this.trueno.deleteGraph(g), (Void) null);
+    }
+
+    public CompletableFuture<Graph> getGraph(Graph g) {
+        return one(this.trueno.getGraph(g), ComponentDecoder.GRAPH);
+    }
+
+    public CompletableFuture<List<Graph>> getGraphList(Graph g) {
+        return list(this.trueno.getGraphList(g), ComponentDecoder.GRAPH);
+    }
+
+    /* Items of the list, fetched in pages of pageSize as the subscriber requests them */
+    public Flow.Publisher<Graph> streamGraphList(Graph g, int pageSize) {
+        return new ListPublisher<Graph>(this.trueno, "ex_getGraphList", g, pageSize, ComponentDecoder.GRAPH);
+    }
+
+    /*================================ VERTEX EXTERNAL API METHODS ================================*/
+
+    public CompletableFuture<Vertex> createVertex(Vertex v) {
+        return acknowledge(this.trueno.createVertex(v), v);
+    }
+
+    public CompletableFuture<Vertex> updateVertex(Vertex v) {
+        return acknowledge(this.trueno.updateVertex(v), v);
+    }
+
+    public CompletableFuture<Void> deleteVertex(Vertex v) {
+        return acknowledge(this.trueno.deleteVertex(v), (Void) null);
+    }
+
+    public CompletableFuture<Vertex> getVertex(Vertex v) {
+        return one(this.trueno.getVertex(v), ComponentDecoder.VERTEX);
+    }
+
+    public CompletableFuture<List<Vertex>> getVertexList(Vertex v) {
+        return list(this.trueno.getVertexList(v), ComponentDecoder.VERTEX);
+    }
+
+    /* Components the server kept for the query, carrying only its fields */
+    public CompletableFuture<List<Vertex>> getVertexList(Vertex v, Query q) {
+        return list(this.trueno.getVertexList(v, q), ComponentDecoder.VERTEX);
+    }
+
+    /* Items of the list, fetched in pages of pageSize as the subscriber requests them */
+    public Flow.Publisher<Vertex> streamVertexList(Vertex v, int pageSize) {
+        return new ListPublisher<Vertex>(this.trueno, "ex_getVertexList", v, pageSize, ComponentDecoder.VERTEX);
+    }
+
+    public Flow.Publisher<Vertex> streamVertexList(Vertex v, Query q, int pageSize) {
+        return new ListPublisher<Vertex>(this.trueno, "ex_getVertexList", v, q, pageSize, ComponentDecoder.VERTEX);
+    }
+
+    /*================================ EDGE EXTERNAL API METHODS ================================*/
+
+    public CompletableFuture<Edge> createEdge(Edge e) {
+        return acknowledge(this.trueno.createEdge(e), e);
+    }
+
+    public CompletableFuture<Edge> updateEdge(Edge e) {
+        return acknowledge(this.trueno.updateEdge(e), e);
+    }
+
+    public CompletableFuture<Void> deleteEdge(Edge e) {
+        return acknowledge(this.trueno.deleteEdge(e), (Void) null);
+    }
+
+    public CompletableFuture<Edge> getEdge(Edge e) {
+        return one(this.trueno.getEdge(e), ComponentDecoder.EDGE);
+    }
+
+    public CompletableFuture<List<Edge>> getEdgeList(Edge e) {
+        return list(this.trueno.getEdgeList(e), ComponentDecoder.EDGE);
+    }
+
+    /* Components the server kept for the query, carrying only its fields */
+    public CompletableFuture<List<Edge>> getEdgeList(Edge e, Query q) {
+        return list(this.trueno.getEdgeList(e, q), ComponentDecoder.EDGE);
+    }
+
+    /* Items of the list, fetched in pages of pageSize as the subscriber requests them */
+    public Flow.Publisher<Edge> streamEdgeList(Edge e, int pageSize) {
+        return new ListPublisher<Edge>(this.trueno, "ex_getEdgeList", e, pageSize, ComponentDecoder.EDGE);
+    }
+
+    public Flow.Publisher<Edge> streamEdgeList(Edge e, Query q, int pageSize) {
+        return new ListPublisher<Edge>(this.trueno, "ex_getEdgeList", e, q, pageSize, ComponentDecoder.EDGE);
+    }
+
+    /* Future completed with the given value once the promise resolves */
+    private static <T> CompletableFuture<T> acknowledge(Promise promise, final T value) {
+
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        promise.then(new DoneCallback() {
+            public void onDone(Object o) {
+                future.complete(value);
+            }
+        }, fail(future));
+
+        return future;
+    }
+
+    /* Future completed with the component loaded from the reply, null when there is none */
+    private static <C extends Component> CompletableFuture<C> one(Promise promise, final ComponentDecoder<C> decoder) {
+
+        final CompletableFuture<C> future = new CompletableFuture<C>();
+        promise.then(new DoneCallback() {
+            public void onDone(Object o) {
+                try {
+                    future.complete(decoder.decode(o));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }, fail(future));
+
+        return future;
+    }
+
+    /* Future completed with the components loaded from the reply array */
+    private static <C extends Component> CompletableFuture<List<C>> list(Promise promise, final ComponentDecoder<C> decoder) {
+
+        final CompletableFuture<List<C>> future = new CompletableFuture<List<C>>();
+        promise.then(new DoneCallback() {
+            public void onDone(Object o) {
+                try {
+                    future.complete(decoder.decodeAll(o));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }, fail(future));
+
+        return future;
+    }
+
+    private static FailCallback fail(final CompletableFuture<?> future) {
+        return new FailCallback() {
+            public void onFail(Object reason) {
+                future.completeExceptionally(TruenoException.of(reason));
+            }
+        };
+    }
+}
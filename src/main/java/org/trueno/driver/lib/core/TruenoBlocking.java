@@ -0,0 +1,178 @@
+package org.trueno.driver.lib.core;
+
+import org.trueno.driver.lib.core.data_structures.Edge;
+import org.trueno.driver.lib.core.data_structures.Graph;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Synchronous view of a {@link Trueno} client: every call waits for its reply and returns
+ * it decoded, or throws a {@link TruenoException}. Long lists can be iterated page by
+ * page through a {@link ListCursor}.
+ *
+ * Waiting parks on the call's CompletableFuture and the driver only takes
+ * java.util.concurrent locks around I/O, so a blocked caller running on a virtual thread
+ * releases its carrier thread. Thousands of virtual threads can each issue calls with
+ * plain blocking code.
+ *
+ * With a timeout, calls are made on a {@link Trueno#withTimeout} view, so the driver fails
+ * a call that is not answered in time and frees its slot in the in-flight window. Waiting
+ * on the future gives up a little later, only should the driver's deadline not fire.
+ */
+public class TruenoBlocking {
+
+    /* Time waited past the driver's deadline before giving up on the reply */
+    private static final long BACKSTOP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /* Private properties */
+    private final TruenoAsync async;
+    private final long timeoutNanos;
+
+    /* Constructor with Parameters, waits without a timeout */
+    public TruenoBlocking(Trueno trueno) {
+        this(trueno, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /* Constructor with Parameters, a timeout of zero waits indefinitely */
+    public TruenoBlocking(Trueno trueno, long timeout, TimeUnit unit) {
+
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+
+        this.timeoutNanos = unit.toNanos(timeout);
+        /* Deadlines are whole milliseconds, rounded up */
+        this.async = new TruenoAsync(timeout > 0
+                ? trueno.withTimeout(TimeUnit.NANOSECONDS.toMillis(this.timeoutNanos + 999999)) : trueno);
+    }
+
+    public TruenoAsync getAsync() {
+        return this.async;
+    }
+
+    /********************************* GRAPH EXTERNAL API METHODS *********************************/
+
+    public Graph createGraph(Graph g) {
+        return this.await(this.async.createGraph(g));
+    }
+
+    public Graph updateGraph(Graph g) {
+        return this.await(this.async.updateGraph(g));
+    }
+
+    public void deleteGraph(Graph g) {
+        this.await(this.async.deleteGraph(g));
+    }
+
+    public Graph getGraph(Graph g) {
+        return this.await(this.async.getGraph(g));
+    }
+
+    public List<Graph> getGraphList(Graph g) {
+        return this.await(this.async.getGraphList(g));
+    }
+
+    /* Iterates the list, fetched in pages of pageSize as the cursor advances */
+    public ListCursor<Graph> iterateGraphList(Graph g, int pageSize) {
+        return new ListCursor<Graph>(this.async.streamGraphList(g, pageSize), pageSize, this.waitNanos());
+    }
+
+    /*================================ VERTEX EXTERNAL API METHODS ================================*/
+
+    public Vertex createVertex(Vertex v) {
+        return this.await(this.async.createVertex(v));
+    }
+
+    public Vertex updateVertex(Vertex v) {
+        return this.await(this.async.updateVertex(v));
+    }
+
+    public void deleteVertex(Vertex v) {
+        this.await(this.async.deleteVertex(v));
+    }
+
+    public Vertex getVertex(Vertex v) {
+        return this.await(this.async.getVertex(v));
+    }
+
+    public List<Vertex> getVertexList(Vertex v) {
+        return this.await(this.async.getVertexList(v));
+    }
+
+    public List<Vertex> getVertexList(Vertex v, Query q) {
+        return this.await(this.async.getVertexList(v, q));
+    }
+
+    /* Iterates the list, fetched in pages of pageSize as the cursor advances */
+    public ListCursor<Vertex> iterateVertexList(Vertex v, int pageSize) {
+        return new ListCursor<Vertex>(this.async.streamVertexList(v, pageSize), pageSize, this.waitNanos());
+    }
+
+    public ListCursor<Vertex> iterateVertexList(Vertex v, Query q, int pageSize) {
+        return new ListCursor<Vertex>(this.async.streamVertexList(v, q, pageSize), pageSize, this.waitNanos());
+    }
+
+    /*================================ EDGE EXTERNAL API METHODS ================================*/
+
+    public Edge createEdge(Edge e) {
+        return this.await(this.async.createEdge(e));
+    }
+
+    public Edge updateEdge(Edge e) {
+        return this.await(this.async.updateEdge(e));
+    }
+
+    public void deleteEdge(Edge e) {
+        this.await(this.async.deleteEdge(e));
+    }
+
+    public Edge getEdge(Edge e) {
+        return this.await(this.async.getEdge(e));
+    }
+
+    public List<Edge> getEdgeList(Edge e) {
+        return this.await(this.async.getEdgeList(e));
+    }
+
+    public List<Edge> getEdgeList(Edge e, Query q) {
+        return this.await(this.async.getEdgeList(e, q));
+    }
+
+    /* Iterates the list, fetched in pages of pageSize as the cursor advances */
+    public ListCursor<Edge> iterateEdgeList(Edge e, int pageSize) {
+        return new ListCursor<Edge>(this.async.streamEdgeList(e, pageSize), pageSize, this.waitNanos());
+    }
+
+    public ListCursor<Edge> iterateEdgeList(Edge e, Query q, int pageSize) {
+        return new ListCursor<Edge>(this.async.streamEdgeList(e, q, pageSize), pageSize, this.waitNanos());
+    }
+
+    /* Longest wait for a reply, zero for none */
+    private long waitNanos() {
+        return this.timeoutNanos > 0 ? this.timeoutNanos + BACKSTOP_NANOS : 0;
+    }
+
+    /* Waits for the future, unwrapping its failure */
+    private <T> T await(CompletableFuture<T> future) {
+
+        try {
+            if (this.timeoutNanos > 0) {
+                return future.get(this.waitNanos(), TimeUnit.NANOSECONDS);
+            }
+            return future.get();
+        } catch (ExecutionException e) {
+            throw TruenoException.of(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new TruenoException("Call timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TruenoException("Interrupted while waiting for the reply", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.trueno.driver.lib.core;
+
+/**
+ * Failure of a driver call: an error reply from the server, a transport failure, or a
+ * blocking call that timed out or was interrupted. The reason is what the call was
+ * rejected with, e.g. the payload of the error reply.
+ */
+public class TruenoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /* Private properties */
+    private final transient Object reason;
+
+    /* Constructor with Parameters */
+    public TruenoException(String message, Object reason) {
+        super(message, reason instanceof Throwable ? (Throwable) reason : null);
+        this.reason = reason;
+    }
+
+    /* Exception for a rejection, reusing it when it already is one */
+    public static RuntimeException of(Object reason) {
+
+        if (reason instanceof TruenoException) {
+            return (TruenoException) reason;
+        }
+
+        return new TruenoException(reason instanceof Throwable ? reason.toString() : String.valueOf(reason), reason);
+    }
+
+    public Object getReason() {
+        return this.reason;
+    }
+}
@@ -0,0 +1,362 @@
+package org.trueno.driver.lib.core;
+
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.jdeferred.Promise;
+import org.jdeferred.impl.DeferredObject;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trueno.driver.lib.core.communication.Message;
+import org.trueno.driver.lib.core.communication.TimingWheel;
+import org.trueno.driver.lib.core.communication.WriteBehindPolicy;
+import org.trueno.driver.lib.core.data_structures.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers updates and merges those made to the same component, keyed by type, graph id
+ * and id, into a single pending update. A later delta overrides the keys it changes and
+ * keeps the others, except in the sections it replaces as a whole; a whole component
+ * replaces what was merged before it. Every call gets its own promise, settled with the
+ * outcome of the merged write it joined, and the merged write keeps the earliest deadline
+ * of the calls, counted from when each was made.
+ *
+ * At most one write per component is in flight: updates made meanwhile are merged into
+ * the next one, sent as soon as the previous write is answered, so merged writes reach
+ * the server in the order they were made. Creates and deletes wait for {@link #drain}, so
+ * no buffered update of the component reaches the server after them.
+ */
+class WriteBehind {
+
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(WriteBehind.class);
+
+    /* Sends a merged update */
+    interface Writer {
+        Promise write(String method, String type, Component c, Message msg);
+    }
+
+    /* Private properties */
+    private final Writer writer;
+    private final WriteBehindPolicy policy;
+    private final ReentrantLock lock;
+    private final HashMap<String, Slot> slots;
+    private int buffered;
+    private TimingWheel.Timeout flushTask;
+
+    /* Constructor with Parameters */
+    WriteBehind(Writer writer, WriteBehindPolicy policy) {
+        this.writer = writer;
+        this.policy = policy;
+        this.lock = new ReentrantLock();
+        this.slots = new HashMap<String, Slot>();
+    }
+
+    /* Merges the update into the pending one of the component, the promise settles once it is written */
+    Promise update(String method, String type, Component c, Message msg) {
+
+        /* This object reference */
+        final WriteBehind self = this;
+
+        DeferredObject deferred = new DeferredObject();
+        boolean full;
+
+        this.lock.lock();
+        try {
+            String key = key(type, c.getGraphid(), c.getId());
+            Slot slot = this.slots.get(key);
+            if (slot == null) {
+                slot = new Slot(key);
+                this.slots.put(key, slot);
+            }
+
+            if (slot.pending == null) {
+                slot.pending = new Pending(method, type);
+                if (!slot.inFlight) {
+                    this.buffered++;
+                }
+            }
+            slot.pending.merge(c, msg, deferred);
+
+            full = this.buffered >= this.policy.getMaxPending();
+            if (!full && this.flushTask == null && this.buffered > 0) {
+                /* Flushed on the shared timer once the update waited long enough */
+                this.flushTask = TimingWheel.shared().schedule(new Runnable() {
+                    public void run() {
+                        self.flush();
+                    }
+                }, this.policy.getMaxDelayMillis(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (full) {
+            this.flush();
+        }
+
+        return deferred.promise();
+    }
+
+    /* Sends every pending update whose component has no write in flight */
+    void flush() {
+
+        ArrayList<Slot> ready = new ArrayList<Slot>();
+        ArrayList<Pending> writes = new ArrayList<Pending>();
+
+        this.lock.lock();
+        try {
+            if (this.flushTask != null) {
+                this.flushTask.cancel();
+                this.flushTask = null;
+            }
+            for (Slot slot : this.slots.values()) {
+                if (slot.pending != null && !slot.inFlight) {
+                    ready.add(slot);
+                    writes.add(slot.take());
+                }
+            }
+            this.buffered = 0;
+        } finally {
+            this.lock.unlock();
+        }
+
+        for (int i = 0; i < ready.size(); i++) {
+            this.send(ready.get(i), writes.get(i));
+        }
+    }
+
+    /* Sends the pending update of one component, the promise resolves once all its writes were answered */
+    Promise drain(String type, String graphid, String id) {
+
+        DeferredObject drained = new DeferredObject();
+        Slot slot;
+        Pending write = null;
+
+        this.lock.lock();
+        try {
+            slot = this.slots.get(key(type, graphid, id));
+            if (slot == null) {
+                return drained.resolve(null);
+            }
+            slot.drained.add(drained);
+            if (slot.pending != null && !slot.inFlight) {
+                write = slot.take();
+                this.buffered--;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (write != null) {
+            this.send(slot, write);
+        }
+
+        return drained.promise();
+    }
+
+    private void send(final Slot slot, final Pending write) {
+
+        /* This object reference */
+        final WriteBehind self = this;
+
+        /* The time spent in the buffer counts against the deadline */
+        Message msg = write.message();
+        if (write.deadline != 0) {
+            long left = TimeUnit.NANOSECONDS.toMillis(write.deadline - System.nanoTime());
+            if (left <= 0) {
+                write.reject(new TimeoutException(write.method + " timed out before it was sent"));
+                this.landed(slot);
+                return;
+            }
+            msg.setTimeout(left);
+        }
+
+        Promise promise;
+        try {
+            promise = this.writer.write(write.method, write.type, write.component, msg);
+        } catch (RuntimeException e) {
+            write.reject(e);
+            this.landed(slot);
+            return;
+        }
+
+        promise.then(new DoneCallback() {
+            public void onDone(Object o) {
+                write.resolve(o);
+                self.landed(slot);
+            }
+        }, new FailCallback() {
+            public void onFail(Object o) {
+                write.reject(o);
+                self.landed(slot);
+            }
+        });
+    }
+
+    /* The write of the slot was answered, sending what was merged meanwhile */
+    private void landed(Slot slot) {
+
+        Pending next = null;
+        ArrayList<DeferredObject> drained = null;
+
+        this.lock.lock();
+        try {
+            slot.inFlight = false;
+            if (slot.pending != null) {
+                next = slot.take();
+            } else {
+                this.slots.remove(slot.key);
+                drained = slot.drained;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (next != null) {
+            this.send(slot, next);
+            return;
+        }
+
+        /* Nothing of the component is left to write, the writes waiting for it go */
+        for (DeferredObject waiter : drained) {
+            waiter.resolve(null);
+        }
+    }
+
+    private static String key(String type, String graphid, String id) {
+        return type + '\u0000' + graphid + '\u0000' + id;
+    }
+
+    /* Component whose updates are buffered, with its write in flight if any */
+    private static final class Slot {
+
+        final String key;
+        final ArrayList<DeferredObject> drained;
+        Pending pending;
+        boolean inFlight;
+
+        Slot(String key) {
+            this.key = key;
+            this.drained = new ArrayList<DeferredObject>(1);
+        }
+
+        Pending take() {
+            Pending write = this.pending;
+            this.pending = null;
+            this.inFlight = true;
+            return write;
+        }
+    }
+
+    /* Updates of one component merged into one */
+    private static final class Pending {
+
+        final String method;
+        final String type;
+        final ArrayList<DeferredObject> waiters;
+        Component component;
+        JSONObject property;
+        Object internal;
+        boolean delta;
+        long deadline;
+
+        Pending(String method, String type) {
+            this.method = method;
+            this.type = type;
+            this.waiters = new ArrayList<DeferredObject>(2);
+        }
+
+        void merge(Component c, Message msg, DeferredObject deferred) {
+
+            this.component = c;
+            this.waiters.add(deferred);
+
+            /* Earliest deadline of the merged calls, zero when none has one */
+            if (msg.getTimeout() > 0) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(msg.getTimeout());
+                if (this.deadline == 0 || deadline - this.deadline < 0) {
+                    this.deadline = deadline;
+                }
+            }
+
+            JSONObject payload = msg.getPayload();
+            JSONObject property = payload != null ? payload.optJSONObject("_property") : null;
+            if (property == null) {
+                return;
+            }
+
+            /* A whole component replaces the merged one, a first delta is taken as is */
+            if (!msg.isDelta() || this.property == null) {
+                this.property = property;
+                this.internal = payload.opt("_internal");
+                this.delta = msg.isDelta();
+                return;
+            }
+
+            /* Keys of the changed sections override the merged ones, replaced sections override them whole */
+            Set<String> replaced = c.getReplacedSections();
+            if (payload.has("_internal")) {
+                this.internal = payload.opt("_internal");
+            }
+            try {
+                Iterator keys = property.keys();
+                while (keys.hasNext()) {
+                    String key = (String) keys.next();
+                    Object value = property.get(key);
+                    Object current = this.property.opt(key);
+                    if (value instanceof JSONObject && current instanceof JSONObject && !replaced.contains(key)) {
+                        JSONObject section = (JSONObject) current;
+                        Iterator inner = ((JSONObject) value).keys();
+                        while (inner.hasNext()) {
+                            String name = (String) inner.next();
+                            section.put(name, ((JSONObject) value).get(name));
+                        }
+                    } else {
+                        this.property.put(key, value);
+                    }
+                }
+            } catch (JSONException e) {
+                log.warn("Could not merge the update", e);
+            }
+        }
+
+        Message message() {
+
+            Message msg = new Message();
+            msg.setDelta(this.delta);
+            try {
+                JSONObject payload = new JSONObject();
+                payload.put("_property", this.property);
+                if (this.internal != null) {
+                    payload.put("_internal", this.internal);
+                }
+                msg.setPayload(payload);
+            } catch (JSONException e) {
+                log.warn("Could not build the merged update", e);
+            }
+
+            return msg;
+        }
+
+        void resolve(Object o) {
+            for (DeferredObject waiter : this.waiters) {
+                waiter.resolve(o);
+            }
+        }
+
+        void reject(Object o) {
+            for (DeferredObject waiter : this.waiters) {
+                waiter.reject(o);
+            }
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package org.trueno.driver.lib.core.bulk;
+
+import com.github.nkzawa.socketio.client.Socket;
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.jdeferred.Promise;
+import org.trueno.driver.lib.core.Trueno;
+import org.trueno.driver.lib.core.communication.BatchPolicy;
+import org.trueno.driver.lib.core.communication.Callback;
+import org.trueno.driver.lib.core.communication.TimingWheel;
+import org.trueno.driver.lib.core.data_structures.Component;
+import org.trueno.driver.lib.core.data_structures.Edge;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads vertices or edges from a delimited file, one component per line. The file is cut
+ * into line-aligned chunks that are memory-mapped and parsed in parallel on a fork-join
+ * pool; every parsed component is created right away, with at most maxInFlight creates
+ * waiting for the server, so parsing runs ahead of the server by a bounded amount and
+ * memory stays flat whatever the size of the file.
+ *
+ * Vertex files hold the vertex id in the first column, edge files the source and target
+ * vertex ids in the first two. The remaining columns become attributes, named by the
+ * header line or "c" followed by their position when there is none; in edge files a
+ * column named "label" sets the label and one named "id" the id. Numbers and booleans
+ * are stored typed. Empty lines and lines starting with '#' or '%' are ignored, and a
+ * record must not span lines.
+ */
+public class BulkLoader {
+
+    /* Header names with a meaning of their own in edge files */
+    public static final String LABEL_COLUMN = "label";
+    public static final String ID_COLUMN = "id";
+
+    /* Private properties */
+    private final Trueno trueno;
+    private int parallelism;
+    private int maxInFlight;
+    private int chunkBytes;
+    private char delimiter;
+    private boolean header;
+    private ProgressListener listener;
+    private long intervalMillis;
+
+    /* Constructor with Parameters, the client must be connected */
+    public BulkLoader(Trueno trueno) {
+
+        /* Set parameters */
+        this.trueno = trueno;
+
+        /* Set default properties */
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = 4096;
+        this.chunkBytes = 16 * 1024 * 1024;
+        this.delimiter = ',';
+        this.header = true;
+        this.listener = null;
+        this.intervalMillis = 1000;
+    }
+
+    /* Loads the vertices of the file into the graph, returning once the server acknowledged all of them */
+    public BulkProgress loadVertices(Path file, String graphid) throws IOException, InterruptedException {
+        return this.load(file, graphid, false);
+    }
+
+    /* Loads the edges of the file into the graph, returning once the server acknowledged all of them */
+    public BulkProgress loadEdges(Path file, String graphid) throws IOException, InterruptedException {
+        return this.load(file, graphid, true);
+    }
+
+    private BulkProgress load(Path file, String graphid, boolean edges) throws IOException, InterruptedException {
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            RecordParser parser = new RecordParser(this.delimiter);
+
+            /* Column names */
+            long start = 0;
+            String[] columns = null;
+            if (this.header && size > 0) {
+                start = lineEnd(channel, 0, size);
+                byte[] first = new byte[(int) Math.min(start, Integer.MAX_VALUE)];
+                readFully(channel, 0, first);
+                int length = trim(first, first.length);
+                ArrayList<String> fields = new ArrayList<String>();
+                parser.split(first, length, fields);
+                columns = fields.toArray(new String[fields.size()]);
+            }
+
+            final Run run = new Run(channel, parser, graphid, edges, columns, size);
+
+            /* Reporting progress while loading */
+            final ProgressListener listener = this.listener;
+            Reporter reporter = null;
+            if (listener != null) {
+                reporter = new Reporter(run, listener, this.intervalMillis);
+                reporter.schedule();
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+            try {
+                long[] bounds = this.boundaries(channel, start, size);
+                pool.invoke(new ChunkTask(run, bounds, 0, bounds.length - 1));
+
+                /* Sending what the batcher holds, then waiting for the last acknowledgements */
+                this.trueno.flush();
+                run.permits.acquire(this.maxInFlight);
+                run.permits.release(this.maxInFlight);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+                if (reporter != null) {
+                    reporter.stop();
+                }
+            }
+
+            BulkProgress result = run.progress(true);
+            if (listener != null) {
+                listener.onProgress(result);
+            }
+
+            return result;
+        } finally {
+            channel.close();
+        }
+    }
+
+    /* Chunk boundaries: every chunk starts at the beginning of a line, the last one ends at the end of the file */
+    private long[] boundaries(FileChannel channel, long start, long size) throws IOException {
+
+        long[] bounds = new long[16];
+        int count = 0;
+        bounds[count++] = start;
+
+        long position = start;
+        while (position < size) {
+            long next = size - position > this.chunkBytes ? lineEnd(channel, position + this.chunkBytes, size) : size;
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = next;
+            position = next;
+        }
+
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /* Position after the first line break at or after the given one, or the size of the file */
+    private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return size;
+    }
+
+    private static void readFully(FileChannel channel, long position, byte[] bytes) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+    }
+
+    /* Length of the line without its line break */
+    private static int trim(byte[] line, int length) {
+        while (length > 0 && (line[length - 1] == '\n' || line[length - 1] == '\r')) {
+            length--;
+        }
+        return length;
+    }
+
+    /* Getters */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    public int getChunkBytes() {
+        return this.chunkBytes;
+    }
+
+    public char getDelimiter() {
+        return this.delimiter;
+    }
+
+    public boolean hasHeader() {
+        return this.header;
+    }
+
+    /* Setters */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /* Creates sent and not yet acknowledged, parsing pauses while the limit is reached */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /* Size of the regions mapped and parsed by one task, rounded to whole lines */
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("chunkBytes must be at least 1");
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    /* Field delimiter, ',' by default; a space or tab matches any run of blanks */
+    public void setDelimiter(char delimiter) {
+        RecordParser.check(delimiter);
+        this.delimiter = delimiter;
+    }
+
+    /* Whether the first line names the columns */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    /* Receives the progress every intervalMillis, or nothing when null */
+    public void setProgressListener(ProgressListener listener, long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("intervalMillis must be at least 1");
+        }
+        this.listener = listener;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /* State of one load, shared by its chunk tasks */
+    private final class Run {
+
+        final FileChannel channel;
+        final RecordParser parser;
+        final String graphid;
+        final boolean edges;
+        final String[] columns;
+        final long totalBytes;
+        final long startTime;
+        final Semaphore permits;
+        final LongAdder parsedBytes;
+        final LongAdder parsed;
+        final LongAdder loaded;
+        final LongAdder failed;
+        final LongAdder skipped;
+        final AtomicReference<Object> firstError;
+        final DoneCallback onDone;
+        final FailCallback onFail;
+
+        Run(FileChannel channel, RecordParser parser, String graphid, boolean edges, String[] columns, long totalBytes) {
+            this.channel = channel;
+            this.parser = parser;
+            this.graphid = graphid;
+            this.edges = edges;
+            this.columns = columns;
+            this.totalBytes = totalBytes;
+            this.startTime = System.nanoTime();
+            this.permits = new Semaphore(maxInFlight);
+            this.parsedBytes = new LongAdder();
+            this.parsed = new LongAdder();
+            this.loaded = new LongAdder();
+            this.failed = new LongAdder();
+            this.skipped = new LongAdder();
+            this.firstError = new AtomicReference<Object>();
+
+            /* Shared by every create, releasing its slot */
+            this.onDone = new DoneCallback() {
+                public void onDone(Object o) {
+                    loaded.increment();
+                    permits.release();
+                }
+            };
+            this.onFail = new FailCallback() {
+                public void onFail(Object reason) {
+                    failed(reason);
+                }
+            };
+        }
+
+        /* Parses the lines of the region and creates their components */
+        void parse(long from, long to) {
+
+            try {
+                MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                byte[] line = new byte[1024];
+                ArrayList<String> fields = new ArrayList<String>();
+                int n = 0;
+
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b == '\n') {
+                        this.record(line, n, fields);
+                        n = 0;
+                        continue;
+                    }
+                    if (n == line.length) {
+                        line = Arrays.copyOf(line, n * 2);
+                    }
+                    line[n++] = b;
+                }
+
+                /* Last line of the file, without a line break */
+                if (n > 0) {
+                    this.record(line, n, fields);
+                }
+
+                this.parsedBytes.add(to - from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void record(byte[] line, int length, ArrayList<String> fields) {
+
+            length = trim(line, length);
+            if (RecordParser.isBlank(line, length)) {
+                return;
+            }
+
+            int count = this.parser.split(line, length, fields);
+            int first = this.edges ? 2 : 1;
+            if (count < first) {
+                this.skipped.increment();
+                return;
+            }
+
+            Component c;
+            if (this.edges) {
+                Edge e = new Edge();
+                e.setFrom(fields.get(0));
+                e.setTo(fields.get(1));
+                c = e;
+            } else {
+                c = new Vertex();
+                c.setId(fields.get(0));
+            }
+            c.setGraphid(this.graphid);
+
+            for (int i = first; i < count; i++) {
+                String name = this.columns != null && i < this.columns.length ? this.columns[i] : "c" + i;
+                if (this.edges && LABEL_COLUMN.equals(name)) {
+                    ((Edge) c).setLabel(fields.get(i));
+                } else if (this.edges && ID_COLUMN.equals(name)) {
+                    c.setId(fields.get(i));
+                } else {
+                    c.setAttribute(name, RecordParser.value(fields.get(i)));
+                }
+            }
+
+            this.send(c);
+        }
+
+        /* Creates the component once a slot is free */
+        private void send(Component c) {
+
+            try {
+                this.permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Bulk load interrupted");
+            }
+            this.parsed.increment();
+
+            try {
+                Promise promise = this.edges ? trueno.createEdge((Edge) c) : trueno.createVertex((Vertex) c);
+                promise.then(this.onDone, this.onFail);
+            } catch (RuntimeException e) {
+                this.failed(e);
+            }
+        }
+
+        private void failed(Object reason) {
+            this.firstError.compareAndSet(null, reason);
+            this.failed.increment();
+            this.permits.release();
+        }
+
+        BulkProgress progress(boolean done) {
+            return new BulkProgress(this.totalBytes, this.parsedBytes.sum(), this.parsed.sum(), this.loaded.sum(),
+                    this.failed.sum(), this.skipped.sum(), System.nanoTime() - this.startTime, done,
+                    this.firstError.get());
+        }
+    }
+
+    /* Reports the progress of a run every interval on the shared timer, until stopped */
+    private static final class Reporter implements Runnable {
+
+        private final Run run;
+        private final ProgressListener listener;
+        private final long intervalMillis;
+        private volatile TimingWheel.Timeout timeout;
+        private volatile boolean stopped;
+
+        Reporter(Run run, ProgressListener listener, long intervalMillis) {
+            this.run = run;
+            this.listener = listener;
+            this.intervalMillis = intervalMillis;
+        }
+
+        void schedule() {
+            this.timeout = TimingWheel.shared().schedule(this, this.intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        public void run() {
+
+            if (this.stopped) {
+                return;
+            }
+
+            this.listener.onProgress(this.run.progress(false));
+            if (!this.stopped) {
+                this.schedule();
+            }
+        }
+
+        void stop() {
+
+            this.stopped = true;
+            TimingWheel.Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    /* Parses the chunks between two boundary indexes, splitting the range until a single chunk is left */
+    private static final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final long[] bounds;
+        private final int lo;
+        private final int hi;
+
+        ChunkTask(Run run, long[] bounds, int lo, int hi) {
+            this.run = run;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (this.hi - this.lo <= 1) {
+                if (this.hi > this.lo) {
+                    this.run.parse(this.bounds[this.lo], this.bounds[this.hi]);
+                }
+                return;
+            }
+
+            int mid = (this.lo + this.hi) >>> 1;
+            invokeAll(new ChunkTask(this.run, this.bounds, this.lo, mid), new ChunkTask(this.run, this.bounds, mid, this.hi));
+        }
+    }
+
+    /* Command line import: BulkLoader <host> <port> <graphid> <vertices file or -> [<edges file>] */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 4) {
+            System.out.println("Usage: BulkLoader <host> <port> <graphid> <vertices file or -> [<edges file>]");
+            return;
+        }
+
+        /* instantiate Trueno driver, batching the creates */
+        final Trueno trueno = new Trueno(args[0], Integer.valueOf(args[1]));
+        trueno.setBatchPolicy(new BatchPolicy());
+
+        final CountDownLatch connected = new CountDownLatch(1);
+        trueno.connect(new Callback() {
+            public void method(Socket socket) {
+                connected.countDown();
+            }
+        }, new Callback() {
+            public void method(Socket socket) {
+                System.out.println("Disconnected");
+            }
+        });
+        if (!connected.await(30, TimeUnit.SECONDS)) {
+            System.out.println("Could not connect to " + args[0] + ":" + args[1]);
+            trueno.disconnect();
+            return;
+        }
+
+        BulkLoader loader = new BulkLoader(trueno);
+        loader.setProgressListener(new ProgressListener() {
+            public void onProgress(BulkProgress progress) {
+                System.out.println(progress);
+            }
+        }, 1000);
+
+        if (!"-".equals(args[3])) {
+            System.out.println("Vertices from " + args[3]);
+            loader.loadVertices(Paths.get(args[3]), args[2]);
+        }
+        if (args.length > 4) {
+            System.out.println("Edges from " + args[4]);
+            loader.loadEdges(Paths.get(args[4]), args[2]);
+        }
+
+        trueno.disconnect();
+    }
+}
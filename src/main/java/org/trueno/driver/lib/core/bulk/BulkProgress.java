@@ -0,0 +1,98 @@
+package org.trueno.driver.lib.core.bulk;
+
+/**
+ * Progress of a bulk load at one point in time, and its outcome once done: how much of
+ * the file was parsed, how many components the server stored or refused, how many lines
+ * were skipped as malformed, and the rates since the load started.
+ */
+public class BulkProgress {
+
+    /* Private properties */
+    private final long totalBytes;
+    private final long parsedBytes;
+    private final long parsed;
+    private final long loaded;
+    private final long failed;
+    private final long skipped;
+    private final long elapsedNanos;
+    private final boolean done;
+    private final Object firstError;
+
+    /* Constructor with Parameters */
+    public BulkProgress(long totalBytes, long parsedBytes, long parsed, long loaded, long failed, long skipped,
+                        long elapsedNanos, boolean done, Object firstError) {
+        this.totalBytes = totalBytes;
+        this.parsedBytes = parsedBytes;
+        this.parsed = parsed;
+        this.loaded = loaded;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.elapsedNanos = elapsedNanos;
+        this.done = done;
+        this.firstError = firstError;
+    }
+
+    /* Getters */
+    public long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    public long getParsedBytes() {
+        return this.parsedBytes;
+    }
+
+    /* Components parsed and handed to the client */
+    public long getParsed() {
+        return this.parsed;
+    }
+
+    /* Components the server acknowledged */
+    public long getLoaded() {
+        return this.loaded;
+    }
+
+    /* Components the server refused, or whose call failed */
+    public long getFailed() {
+        return this.failed;
+    }
+
+    /* Lines holding too few fields to make a component */
+    public long getSkipped() {
+        return this.skipped;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    public boolean isDone() {
+        return this.done;
+    }
+
+    /* Reason of the first failed call, null if none failed */
+    public Object getFirstError() {
+        return this.firstError;
+    }
+
+    /* Fraction of the file parsed, between 0 and 1 */
+    public double getFraction() {
+        return this.totalBytes > 0 ? (double) this.parsedBytes / this.totalBytes : 1;
+    }
+
+    /* Components acknowledged per second */
+    public double getRecordsPerSecond() {
+        return this.elapsedNanos > 0 ? (this.loaded + this.failed) * 1e9 / this.elapsedNanos : 0;
+    }
+
+    /* File bytes parsed per second */
+    public double getBytesPerSecond() {
+        return this.elapsedNanos > 0 ? this.parsedBytes * 1e9 / this.elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%5.1f%% parsed=%d loaded=%d failed=%d skipped=%d %.0f records/s %.1f MB/s%s",
+                this.getFraction() * 100, this.parsed, this.loaded, this.failed, this.skipped,
+                this.getRecordsPerSecond(), this.getBytesPerSecond() / (1024 * 1024), this.done ? " done" : "");
+    }
+}
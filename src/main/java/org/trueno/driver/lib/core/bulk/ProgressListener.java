@@ -0,0 +1,10 @@
+package org.trueno.driver.lib.core.bulk;
+
+/**
+ * Receives the progress of a bulk load at a fixed interval, and once more when it ends.
+ * Called from a timer thread; implementations should return quickly.
+ */
+public interface ProgressListener {
+
+    void onProgress(BulkProgress progress);
+}
@@ -0,0 +1,158 @@
+package org.trueno.driver.lib.core.bulk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Splits the lines of a delimited file into fields and turns fields into attribute values.
+ * Fields may be enclosed in double quotes, with a doubled quote standing for a quote; a
+ * whitespace delimiter matches any run of spaces and tabs, as in edge-list files.
+ */
+final class RecordParser {
+
+    /* Private properties */
+    private final byte delimiter;
+    private final boolean whitespace;
+
+    RecordParser(char delimiter) {
+
+        check(delimiter);
+
+        this.delimiter = (byte) delimiter;
+        this.whitespace = delimiter == ' ' || delimiter == '\t';
+    }
+
+    static void check(char delimiter) {
+        if (delimiter > 0x7f || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter must be an ASCII character other than a quote or line break");
+        }
+    }
+
+    /* Whether the line holds no record: empty, or a comment starting with '#' or '%' */
+    static boolean isBlank(byte[] line, int length) {
+
+        for (int i = 0; i < length; i++) {
+            byte b = line[i];
+            if (b != ' ' && b != '\t') {
+                return b == '#' || b == '%';
+            }
+        }
+
+        return true;
+    }
+
+    /* Splits the first length bytes of the line into the given list, returning the number of fields */
+    int split(byte[] line, int length, ArrayList<String> fields) {
+
+        fields.clear();
+        int i = 0;
+
+        if (this.whitespace) {
+            i = skipBlanks(line, i, length);
+        }
+
+        while (i <= length) {
+            int next;
+            if (i < length && line[i] == '"') {
+                next = this.quoted(line, i + 1, length, fields);
+            } else {
+                int end = i;
+                while (end < length && !this.isDelimiter(line[end])) {
+                    end++;
+                }
+                fields.add(new String(line, i, end - i, StandardCharsets.UTF_8));
+                next = end;
+            }
+
+            if (next >= length) {
+                break;
+            }
+
+            /* Stepping over the delimiter */
+            i = this.whitespace ? skipBlanks(line, next, length) : next + 1;
+            if (this.whitespace && i == length) {
+                break;
+            }
+        }
+
+        return fields.size();
+    }
+
+    /* Attribute value of a field: a long, a double, a boolean or the text itself */
+    static Object value(String field) {
+
+        int length = field.length();
+        if (length == 0) {
+            return field;
+        }
+
+        char first = field.charAt(0);
+        if ((first >= '0' && first <= '9') || first == '-' || first == '+' || first == '.') {
+            boolean integral = true;
+            for (int i = 1; i < length; i++) {
+                char c = field.charAt(i);
+                if (c < '0' || c > '9') {
+                    integral = false;
+                    break;
+                }
+            }
+            try {
+                if (integral && length < 19 && first != '.') {
+                    return Long.parseLong(field);
+                }
+                return Double.parseDouble(field);
+            } catch (NumberFormatException e) {
+                return field;
+            }
+        }
+
+        if ("true".equals(field)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equals(field)) {
+            return Boolean.FALSE;
+        }
+
+        return field;
+    }
+
+    /* Reads a quoted field starting after its opening quote, returning the index after it */
+    private int quoted(byte[] line, int i, int length, ArrayList<String> fields) {
+
+        byte[] text = new byte[length - i];
+        int n = 0;
+
+        while (i < length) {
+            byte b = line[i++];
+            if (b == '"') {
+                if (i < length && line[i] == '"') {
+                    text[n++] = '"';
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                text[n++] = b;
+            }
+        }
+        fields.add(new String(text, 0, n, StandardCharsets.UTF_8));
+
+        /* Anything between the closing quote and the delimiter is dropped */
+        while (i < length && !this.isDelimiter(line[i])) {
+            i++;
+        }
+
+        return i;
+    }
+
+    private boolean isDelimiter(byte b) {
+        return this.whitespace ? b == ' ' || b == '\t' : b == this.delimiter;
+    }
+
+    private static int skipBlanks(byte[] line, int i, int length) {
+        while (i < length && (line[i] == ' ' || line[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,62 @@
+package org.trueno.driver.lib.core.cache;
+
+/**
+ * Point-in-time counters of a {@link ComponentCache}.
+ */
+public class CacheStats {
+
+    /* Private properties */
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+    private final int size;
+
+    /* Constructor with Parameters */
+    public CacheStats(long hits, long misses, long evictions, long expirations, long invalidations, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.size = size;
+    }
+
+    /* Getters */
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    public long getExpirations() {
+        return this.expirations;
+    }
+
+    public long getInvalidations() {
+        return this.invalidations;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public double getHitRate() {
+        long total = this.hits + this.misses;
+        return total == 0 ? 0 : (double) this.hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + this.hits + ", misses=" + this.misses + ", evictions=" + this.evictions
+                + ", expirations=" + this.expirations + ", invalidations=" + this.invalidations
+                + ", size=" + this.size + "}";
+    }
+}
@@ -0,0 +1,251 @@
+package org.trueno.driver.lib.core.cache;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of read replies keyed by (graph id, component id, type). Entries are
+ * evicted in least-recently-used order once a segment is full and expire after a TTL.
+ *
+ * The key space is split over independently locked segments so concurrent lookups of
+ * different components rarely contend. Each segment carries a generation that is bumped
+ * on invalidation; a reply fetched before an invalidation is not stored afterwards.
+ *
+ * Replies are copied when stored and when returned, so callers changing the document they
+ * got cannot alter what later reads are served. Only replies the key fully determines
+ * belong here, i.e. not those of reads without an id or with a projection.
+ */
+public class ComponentCache {
+
+    /* Component types */
+    public static final String GRAPH = "g";
+    public static final String VERTEX = "v";
+    public static final String EDGE = "e";
+
+    /* Private properties */
+    private final Segment[] segments;
+    private final int mask;
+    private final long ttlNanos;
+
+    /* Default Constructor */
+    public ComponentCache() {
+        this(10000, 60000);
+    }
+
+    /* Constructor with Parameters, a TTL of zero disables expiration */
+    public ComponentCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, 16);
+    }
+
+    /* Constructor with Parameters, the number of segments is rounded up to a power of two */
+    public ComponentCache(int maxEntries, long ttlMillis, int concurrency) {
+
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must not be negative");
+        }
+
+        int count = 1;
+        while (count < concurrency && count < maxEntries) {
+            count <<= 1;
+        }
+
+        this.segments = new Segment[count];
+        this.mask = count - 1;
+        this.ttlNanos = ttlMillis * 1000000L;
+
+        /* Spreading the capacity over the segments */
+        for (int i = 0; i < count; i++) {
+            this.segments[i] = new Segment(Math.max(1, (maxEntries + count - 1 - i) / count));
+        }
+    }
+
+    /* Returns a copy of the cached reply, or null on a miss */
+    public Object get(String graphid, String id, String type) {
+
+        ComponentKey key = new ComponentKey(graphid, id, type);
+        Segment segment = this.segmentFor(key);
+        Object value;
+
+        synchronized (segment) {
+            Item entry = segment.map.get(key);
+            if (entry == null) {
+                segment.misses++;
+                return null;
+            }
+            if (this.ttlNanos > 0 && System.nanoTime() - entry.created > this.ttlNanos) {
+                segment.map.remove(key);
+                segment.expirations++;
+                segment.misses++;
+                return null;
+            }
+            segment.hits++;
+            value = entry.value;
+        }
+
+        return copy(value);
+    }
+
+    /* Token to pass to put, taken before the read is sent */
+    public long stamp(String graphid, String id, String type) {
+
+        Segment segment = this.segmentFor(new ComponentKey(graphid, id, type));
+
+        synchronized (segment) {
+            return segment.generation;
+        }
+    }
+
+    /* Stores a copy of the reply unless the segment was invalidated since the stamp was taken */
+    public void put(String graphid, String id, String type, Object value, long stamp) {
+
+        if (value == null) {
+            return;
+        }
+
+        /* Copied outside the lock, the caller keeps the reply it was given */
+        value = copy(value);
+
+        ComponentKey key = new ComponentKey(graphid, id, type);
+        Segment segment = this.segmentFor(key);
+
+        synchronized (segment) {
+            if (segment.generation == stamp) {
+                segment.map.put(key, new Item(value, System.nanoTime()));
+            }
+        }
+    }
+
+    /* Drops the entry and discards the reads already in flight for it */
+    public void invalidate(String graphid, String id, String type) {
+
+        ComponentKey key = new ComponentKey(graphid, id, type);
+        Segment segment = this.segmentFor(key);
+
+        synchronized (segment) {
+            segment.generation++;
+            if (segment.map.remove(key) != null) {
+                segment.invalidations++;
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                segment.generation++;
+                segment.invalidations += segment.map.size();
+                segment.map.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public CacheStats stats() {
+
+        long hits = 0, misses = 0, evictions = 0, expirations = 0, invalidations = 0;
+        int size = 0;
+
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+                misses += segment.misses;
+                evictions += segment.evictions;
+                expirations += segment.expirations;
+                invalidations += segment.invalidations;
+                size += segment.map.size();
+            }
+        }
+
+        return new CacheStats(hits, misses, evictions, expirations, invalidations, size);
+    }
+
+    /* Deep copy of a JSON document, other values are immutable or returned as they are */
+    private static Object copy(Object value) {
+
+        try {
+            if (value instanceof JSONObject) {
+                JSONObject source = (JSONObject) value;
+                JSONObject copy = new JSONObject();
+                Iterator keys = source.keys();
+                while (keys.hasNext()) {
+                    String key = (String) keys.next();
+                    copy.put(key, copy(source.opt(key)));
+                }
+                return copy;
+            }
+            if (value instanceof JSONArray) {
+                JSONArray source = (JSONArray) value;
+                JSONArray copy = new JSONArray();
+                for (int i = 0; i < source.length(); i++) {
+                    copy.put(copy(source.opt(i)));
+                }
+                return copy;
+            }
+        } catch (JSONException e) {
+            /* Keys and values come from a valid document */
+            throw new IllegalStateException(e);
+        }
+
+        return value;
+    }
+
+    private Segment segmentFor(ComponentKey key) {
+        /* Spreading the high bits, as the low bits of string hashes cluster */
+        int h = key.hash;
+        h ^= (h >>> 16);
+        return this.segments[h & this.mask];
+    }
+
+    /* LRU map guarded by its own monitor, counters are only touched under it */
+    private static final class Segment {
+
+        final LinkedHashMap<ComponentKey, Item> map;
+        long generation;
+        long hits;
+        long misses;
+        long evictions;
+        long expirations;
+        long invalidations;
+
+        Segment(final int capacity) {
+            this.map = new LinkedHashMap<ComponentKey, Item>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ComponentKey, Item> eldest) {
+                    if (size() > capacity) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static final class Item {
+
+        final Object value;
+        final long created;
+
+        Item(Object value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.trueno.driver.lib.core.cache;
+
+/**
+ * Identity of a component, by graph id, id and type, used to key cached entries and
+ * reads in flight. Missing ids count as empty and the hash is computed once.
+ */
+final class ComponentKey {
+
+    final String graphid;
+    final String id;
+    final String type;
+    final int hash;
+
+    ComponentKey(String graphid, String id, String type) {
+        this.graphid = graphid != null ? graphid : "";
+        this.id = id != null ? id : "";
+        this.type = type;
+        this.hash = (this.graphid.hashCode() * 31 + this.id.hashCode()) * 31 + type.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ComponentKey)) {
+            return false;
+        }
+        ComponentKey other = (ComponentKey) o;
+        return this.hash == other.hash && this.id.equals(other.id)
+                && this.graphid.equals(other.graphid) && this.type.equals(other.type);
+    }
+}
@@ -0,0 +1,73 @@
+package org.trueno.driver.lib.core.cache;
+
+import org.jdeferred.Deferred;
+import org.jdeferred.Promise;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads in flight keyed by (graph id, component id, type), so identical concurrent reads
+ * share one request and one reply. The first caller registers its deferred and sends the
+ * request; callers arriving before it lands wait on the same promise. Only reads whose
+ * reply the key determines may join, i.e. not those without an id or with a projection.
+ *
+ * Writes forget the flight of the component they touch, so a read issued after a write
+ * is never answered by a request sent before it.
+ */
+public class SingleFlight {
+
+    /* Private properties */
+    private final ConcurrentHashMap<ComponentKey, Flight> flights;
+
+    /* Default Constructor */
+    public SingleFlight() {
+        this.flights = new ConcurrentHashMap<ComponentKey, Flight>();
+    }
+
+    /* Promise of the flight to wait on: the deferred's own promise when the caller leads and must send the read.
+       Flights are only shared between callers with the same deadline, zero meaning none */
+    public Promise join(String graphid, String id, String type, long timeout, Deferred deferred) {
+
+        ComponentKey key = new ComponentKey(graphid, id, type);
+        Flight flight = new Flight(deferred.promise(), timeout);
+
+        Flight existing = this.flights.putIfAbsent(key, flight);
+        if (existing == null) {
+            return flight.promise;
+        }
+
+        /* A flight with another deadline could fail or outlive this caller, it sends its own read */
+        return existing.timeout == timeout ? existing.promise : flight.promise;
+    }
+
+    /* Ends the flight led with the given promise, to be called before the reply is delivered */
+    public void land(String graphid, String id, String type, Promise promise) {
+
+        ComponentKey key = new ComponentKey(graphid, id, type);
+        Flight flight = this.flights.get(key);
+        if (flight != null && flight.promise == promise) {
+            this.flights.remove(key, flight);
+        }
+    }
+
+    /* Stops later reads of the component from joining the flight in the air */
+    public void forget(String graphid, String id, String type) {
+        this.flights.remove(new ComponentKey(graphid, id, type));
+    }
+
+    /* Number of reads in flight */
+    public int size() {
+        return this.flights.size();
+    }
+
+    private static final class Flight {
+
+        final Promise promise;
+        final long timeout;
+
+        Flight(Promise promise, long timeout) {
+            this.promise = promise;
+            this.timeout = timeout;
+        }
+    }
+}
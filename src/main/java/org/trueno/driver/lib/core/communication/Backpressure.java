@@ -0,0 +1,13 @@
+package org.trueno.driver.lib.core.communication;
+
+/**
+ * What a call does when the in-flight window of its connection is full.
+ */
+public enum Backpressure {
+
+    /* Wait until an outstanding request completes */
+    BLOCK,
+
+    /* Return a promise that is already rejected */
+    FAIL
+}
@@ -0,0 +1,69 @@
+package org.trueno.driver.lib.core.communication;
+
+/**
+ * Limits that decide when a batch of pending calls is sent as a single frame.
+ * A batch is flushed as soon as any of the limits is reached.
+ */
+public class BatchPolicy {
+
+    /* Private properties */
+    private int maxItems;
+    private int maxBytes;
+    private long maxLingerMicros;
+
+    /* Default Constructor */
+    public BatchPolicy() {
+
+        /* Set default properties */
+        this.maxItems = 128;
+        this.maxBytes = 64 * 1024;
+        this.maxLingerMicros = 500;
+    }
+
+    /* Constructor with Parameters */
+    public BatchPolicy(int maxItems, int maxBytes, long maxLingerMicros) {
+
+        /* calling default constructor */
+        this();
+        /* Set parameters */
+        this.setMaxItems(maxItems);
+        this.setMaxBytes(maxBytes);
+        this.setMaxLingerMicros(maxLingerMicros);
+    }
+
+    /* Getters */
+    public int getMaxItems() {
+        return this.maxItems;
+    }
+
+    public int getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    public long getMaxLingerMicros() {
+        return this.maxLingerMicros;
+    }
+
+    /* Setters */
+    public void setMaxItems(int maxItems) {
+        if (maxItems < 1) {
+            throw new IllegalArgumentException("maxItems must be at least 1");
+        }
+        this.maxItems = maxItems;
+    }
+
+    /* A value of zero disables the size limit */
+    public void setMaxBytes(int maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public void setMaxLingerMicros(long maxLingerMicros) {
+        if (maxLingerMicros < 0) {
+            throw new IllegalArgumentException("maxLingerMicros must not be negative");
+        }
+        this.maxLingerMicros = maxLingerMicros;
+    }
+}
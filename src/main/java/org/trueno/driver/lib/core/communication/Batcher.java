@@ -0,0 +1,165 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trueno.driver.lib.core.TruenoException;
+import org.trueno.driver.lib.core.communication.codec.JsonSize;
+import org.trueno.driver.lib.core.communication.transport.Reply;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the calls issued through an {@link RPC} within a {@link BatchPolicy} window
+ * and sends them as one "ex_batch" frame. The server answers the frame with an array
+ * holding one reply per call, in the order the calls were added; replies are matched
+ * to their request by the "_rid" they echo, or by position when they carry none.
+ *
+ * The batch is guarded by a ReentrantLock rather than a monitor: frames are emitted under
+ * it, and a virtual thread blocked on that I/O must not pin its carrier thread.
+ */
+class Batcher {
+
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(Batcher.class);
+
+    /* Batch event and frame fields */
+    static final String BATCH_EVENT = "ex_batch";
+    static final String BATCH_FIELD = "_batch";
+    static final String METHOD_FIELD = "_method";
+    static final String PAYLOAD_FIELD = "_payload";
+
+    /* Private properties */
+    private final RPC rpc;
+    private final BatchPolicy policy;
+    private final ReentrantLock lock;
+    private ArrayList<Long> rids;
+    private JSONArray entries;
+    private long bytes;
+    private TimingWheel.Timeout lingerTask;
+
+    Batcher(RPC rpc, BatchPolicy policy) {
+
+        /* Set parameters */
+        this.rpc = rpc;
+        this.policy = policy;
+        this.lock = new ReentrantLock();
+        this.reset();
+    }
+
+    /* Queues the call in the current batch, flushing it when a limit is reached */
+    void add(String method, JSONObject arg, long rid) {
+
+        this.lock.lock();
+        try {
+            /* Packing batch entry */
+            JSONObject entry = new JSONObject();
+            try {
+                entry.put(METHOD_FIELD, method);
+                entry.put(PAYLOAD_FIELD, arg);
+            } catch (JSONException e) {
+                this.rpc.fail(rid, new TruenoException("Could not add " + method + " to the batch", e));
+                return;
+            }
+
+            this.entries.put(entry);
+            this.rids.add(rid);
+
+            /* The serialized size is only estimated when a byte limit is set, and no further than the limit */
+            if (this.policy.getMaxBytes() > 0) {
+                this.bytes += method.length() + JsonSize.estimate(arg, this.policy.getMaxBytes() - this.bytes);
+            }
+
+            if (this.rids.size() >= this.policy.getMaxItems()
+                    || (this.policy.getMaxBytes() > 0 && this.bytes >= this.policy.getMaxBytes())
+                    || this.policy.getMaxLingerMicros() == 0) {
+                this.flush();
+            } else if (this.lingerTask == null) {
+                /* First call of a new batch, start the linger countdown on the shared timer */
+                this.lingerTask = TimingWheel.shared().schedule(new Runnable() {
+                    public void run() {
+                        flush();
+                    }
+                }, this.policy.getMaxLingerMicros(), TimeUnit.MICROSECONDS);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /* Sends the pending calls, if any, as one frame */
+    void flush() {
+
+        this.lock.lock();
+        try {
+            if (this.rids.isEmpty()) {
+                return;
+            }
+
+            if (this.lingerTask != null) {
+                this.lingerTask.cancel();
+            }
+
+            final ArrayList<Long> batch = this.rids;
+            JSONObject frame = new JSONObject();
+            try {
+                frame.put(BATCH_FIELD, this.entries);
+            } catch (JSONException e) {
+                log.warn("Could not build the batch frame", e);
+            }
+            this.reset();
+
+            /* Emitting under the lock keeps batches in the order they were filled */
+            try {
+                this.rpc.emit(BATCH_EVENT, frame, new Reply() {
+                    public void call(Object... objects) {
+                        split(batch, objects);
+                    }
+                });
+            } catch (IOException e) {
+                for (Long rid : batch) {
+                    this.rpc.fail(rid, e);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /* Completes every call of a batch with its slot in the server reply, failing those the reply has no slot for */
+    private void split(ArrayList<Long> batch, Object... objects) {
+
+        Object ack = objects.length > 0 ? objects[0] : null;
+        JSONArray replies = null;
+        if (ack instanceof JSONArray) {
+            replies = (JSONArray) ack;
+        } else if (ack instanceof JSONObject) {
+            replies = ((JSONObject) ack).optJSONArray(BATCH_FIELD);
+        }
+
+        Object missing = ack instanceof Throwable ? ack
+                : new TruenoException("Batch of " + batch.size() + " calls acknowledged with "
+                        + (replies != null ? replies.length() : 0) + " replies", ack);
+
+        for (int i = 0; i < batch.size(); i++) {
+            Object reply = replies != null ? replies.opt(i) : null;
+            if (reply != null && reply != JSONObject.NULL) {
+                this.rpc.complete(reply, batch.get(i));
+            } else {
+                this.rpc.fail(batch.get(i), missing);
+            }
+        }
+    }
+
+    private void reset() {
+        this.rids = new ArrayList<Long>();
+        this.entries = new JSONArray();
+        this.bytes = 0;
+        this.lingerTask = null;
+    }
+}
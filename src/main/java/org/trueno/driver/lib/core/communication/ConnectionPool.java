@@ -0,0 +1,437 @@
+package org.trueno.driver.lib.core.communication;
+
+import com.github.nkzawa.socketio.client.Socket;
+import org.jdeferred.Deferred;
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.jdeferred.Promise;
+import org.jdeferred.impl.DeferredObject;
+import org.json.JSONObject;
+import org.trueno.driver.lib.core.communication.codec.Codec;
+import org.trueno.driver.lib.core.communication.transport.TransportFactory;
+import org.trueno.driver.lib.core.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A fixed set of {@link RPC} connections to the same server. Calls are spread over the
+ * connected members according to the pool's {@link LoadBalancing} policy.
+ *
+ * Calls made while no member is connected wait in a bounded offline queue and are sent,
+ * in the order they were made, as soon as a member reconnects. Until the queue is drained
+ * new calls are queued behind it, so they never overtake the ones made before.
+ */
+public class ConnectionPool {
+
+    /* Threads draining the offline queues, which may block on the in-flight window */
+    private static final ExecutorService DRAINERS = DaemonThreads.cached("trueno-drain");
+
+    /* Private properties */
+    private final String host;
+    private final int port;
+    private final RPC[] connections;
+    private final LoadBalancing balancing;
+    private final AtomicInteger next;
+    private final AtomicInteger connected;
+    private final Metrics metrics;
+    private final AtomicBoolean draining;
+    private volatile OfflineQueue offline;
+    private volatile Runnable sessionListener;
+
+    /* Constructor with Parameters */
+    public ConnectionPool(String host, Integer port, int size, LoadBalancing balancing) {
+
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+
+        /* Set parameters */
+        this.host = host;
+        this.port = port != null ? port : 8000;
+        this.connections = new RPC[size];
+        this.balancing = balancing != null ? balancing : LoadBalancing.ROUND_ROBIN;
+        this.next = new AtomicInteger();
+        this.connected = new AtomicInteger();
+        this.metrics = new Metrics();
+        this.draining = new AtomicBoolean();
+        this.offline = new OfflineQueue(new OfflinePolicy());
+
+        /* Members record into the metrics of the pool */
+        for (int i = 0; i < size; i++) {
+            this.connections[i] = new RPC(host, port);
+            this.connections[i].setMetrics(this.metrics);
+        }
+    }
+
+    /* Gives every member a transport from the factory, before connecting */
+    public void setTransport(TransportFactory factory) {
+        for (RPC rpc : this.connections) {
+            rpc.setTransport(factory != null ? factory.create(this.host, this.port) : null);
+        }
+    }
+
+    /* Connects every member; the callbacks fire when the first member connects and the last one disconnects */
+    public void connect(final Callback connCallback, final Callback discCallback) {
+
+        /* This object reference */
+        final ConnectionPool self = this;
+
+        for (final RPC rpc : this.connections) {
+            rpc.connect(new Callback() {
+                public void method(Socket socket) {
+                    if (self.connected.incrementAndGet() == 1) {
+                        connCallback.method(socket);
+                    }
+                    /* A new session on the first member, whose server-side state must be restored */
+                    Runnable session = self.sessionListener;
+                    if (session != null && rpc == self.connections[0]) {
+                        session.run();
+                    }
+                    self.drain();
+                }
+            }, new Callback() {
+                public void method(Socket socket) {
+                    if (self.connected.decrementAndGet() == 0) {
+                        discCallback.method(socket);
+                    }
+                }
+            });
+        }
+    }
+
+    /* Closes every member, rejecting the calls still waiting for a connection */
+    public void disconnect() {
+        for (RPC rpc : this.connections) {
+            rpc.disconnect();
+        }
+
+        OfflineQueue offline = this.offline;
+        if (offline != null) {
+            offline.failAll(new IOException("Disconnected"));
+        }
+    }
+
+    /* Exposes the procedure on every member, the server may push on any of them */
+    public void expose(String procedureName, Method procedureFunction) {
+        for (RPC rpc : this.connections) {
+            rpc.expose(procedureName, procedureFunction);
+        }
+    }
+
+    public void unexpose(String procedureName) {
+        for (RPC rpc : this.connections) {
+            rpc.unexpose(procedureName);
+        }
+    }
+
+    public void setProcedureExecutor(Executor executor) {
+        for (RPC rpc : this.connections) {
+            rpc.setProcedureExecutor(executor);
+        }
+    }
+
+    /* Runs the listener each time the first member opens its connection, to restore state the server keeps per connection, e.g. subscriptions */
+    public void setSessionListener(Runnable listener) {
+        this.sessionListener = listener;
+    }
+
+    /* Sends the call on the connection picked by the balancing policy */
+    public Promise call(String method, JSONObject arg) {
+        return this.call(method, arg, false);
+    }
+
+    /* Same as call, resolving with the entire reply message when whole is set */
+    public Promise call(String method, JSONObject arg, boolean whole) {
+
+        OfflineQueue offline = this.offline;
+        if (this.connected.get() > 0 && (offline == null || (!this.draining.get() && offline.isEmpty()))) {
+            return this.select().call(method, arg, whole);
+        }
+
+        if (offline == null) {
+            return new DeferredObject().reject(new IOException("Client driver not connected to database."));
+        }
+
+        /* Waiting for a connection, or behind the calls that are */
+        Promise promise = offline.park(method, arg, whole, this.timeoutOf(arg));
+        if (this.connected.get() > 0) {
+            this.drain();
+        }
+
+        return promise;
+    }
+
+    /* Sends the queued calls in order on a drainer thread, as blocking on the in-flight window must not hold up a transport */
+    private void drain() {
+
+        /* This object reference */
+        final ConnectionPool self = this;
+
+        final OfflineQueue offline = this.offline;
+        if (offline == null || offline.isEmpty() || !this.draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        DRAINERS.execute(new Runnable() {
+            public void run() {
+                try {
+                    OfflineQueue.Parked call;
+                    while (self.connected.get() > 0 && (call = offline.poll()) != null) {
+                        final Deferred deferred = call.deferred;
+                        /* The deadline kept counting while the call was queued */
+                        long remaining = 0;
+                        if (call.timeoutMillis > 0 && (remaining = call.remainingMillis()) == 0) {
+                            deferred.reject(new TimeoutException(call.method + " timed out after "
+                                    + call.timeoutMillis + "ms waiting for a connection"));
+                            continue;
+                        }
+                        self.select().call(call.method, call.arg, call.whole, remaining).then(new DoneCallback() {
+                            public void onDone(Object o) {
+                                deferred.resolve(o);
+                            }
+                        }, new FailCallback() {
+                            public void onFail(Object o) {
+                                deferred.reject(o);
+                            }
+                        });
+                    }
+                } finally {
+                    self.draining.set(false);
+                }
+
+                /* Calls queued after the last poll but before the flag was cleared */
+                if (self.connected.get() > 0) {
+                    self.drain();
+                }
+            }
+        });
+    }
+
+    /* Deadline of the call in milliseconds, zero for none */
+    private long timeoutOf(JSONObject arg) {
+
+        long timeout = arg instanceof Message ? ((Message) arg).getTimeout() : 0;
+
+        return timeout > 0 ? timeout : this.connections[0].getDefaultTimeout();
+    }
+
+    /* Sends an idempotent read, duplicating it on another member if no reply arrived after the policy's delay */
+    public Promise callHedged(final String method, final Message msg, HedgePolicy policy) {
+
+        /* This object reference */
+        final ConnectionPool self = this;
+
+        OfflineQueue offline = this.offline;
+        if (this.connected.get() == 0 || (offline != null && (this.draining.get() || !offline.isEmpty()))) {
+            return this.call(method, msg);
+        }
+
+        final RPC primary = this.select();
+        if (this.connections.length < 2 || policy == null) {
+            return primary.call(method, msg);
+        }
+
+        final Deferred result = new DeferredObject();
+        final AtomicBoolean settled = new AtomicBoolean();
+        final AtomicInteger attempts = new AtomicInteger(1);
+        final AtomicReference<TimingWheel.Timeout> timer = new AtomicReference<TimingWheel.Timeout>();
+
+        /* Settling with the first reply, or the last failure */
+        final FailCallback onFail = new FailCallback() {
+            public void onFail(Object reason) {
+                if (attempts.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                    cancel(timer.get());
+                    result.reject(reason);
+                }
+            }
+        };
+
+        final Runnable hedge = new Runnable() {
+            public void run() {
+                RPC other = self.select(primary);
+                if (settled.get() || other == null) {
+                    return;
+                }
+                attempts.incrementAndGet();
+                self.metrics.hedged();
+                other.call(method, msg.copy()).then(new DoneCallback() {
+                    public void onDone(Object o) {
+                        if (settled.compareAndSet(false, true)) {
+                            self.metrics.hedgeWon();
+                            result.resolve(o);
+                        }
+                    }
+                }, onFail);
+            }
+        };
+        /* Scheduling the duplicate before sending, so a fast reply can cancel it */
+        timer.set(TimingWheel.shared().schedule(hedge,
+                policy.delayNanos(this.metrics.operation(method).getRecentLatency()), TimeUnit.NANOSECONDS));
+
+        primary.call(method, msg).then(new DoneCallback() {
+            public void onDone(Object o) {
+                if (settled.compareAndSet(false, true)) {
+                    cancel(timer.get());
+                    result.resolve(o);
+                }
+            }
+        }, onFail);
+
+        return result.promise();
+    }
+
+    /* Picks a connected member, or any member when none is connected */
+    public RPC select() {
+
+        if (this.connections.length == 1) {
+            return this.connections[0];
+        }
+
+        /* Rotating the starting point spreads ties over the pool */
+        int start = (this.next.getAndIncrement() & Integer.MAX_VALUE) % this.connections.length;
+        RPC best = null;
+
+        for (int i = 0; i < this.connections.length; i++) {
+            RPC rpc = this.connections[(start + i) % this.connections.length];
+            if (!rpc.isHealthy()) {
+                continue;
+            }
+            if (this.balancing == LoadBalancing.ROUND_ROBIN) {
+                return rpc;
+            }
+            if (best == null || rpc.getInFlight() < best.getInFlight()) {
+                best = rpc;
+            }
+        }
+
+        return best != null ? best : this.connections[start];
+    }
+
+    /* A connected member other than the given one, the least loaded under LEAST_OUTSTANDING; null if there is none */
+    RPC select(RPC exclude) {
+
+        int start = (this.next.getAndIncrement() & Integer.MAX_VALUE) % this.connections.length;
+        RPC best = null;
+
+        for (int i = 0; i < this.connections.length; i++) {
+            RPC rpc = this.connections[(start + i) % this.connections.length];
+            if (rpc == exclude || !rpc.isHealthy()) {
+                continue;
+            }
+            if (this.balancing == LoadBalancing.ROUND_ROBIN) {
+                return rpc;
+            }
+            if (best == null || rpc.getInFlight() < best.getInFlight()) {
+                best = rpc;
+            }
+        }
+
+        return best;
+    }
+
+    private static void cancel(TimingWheel.Timeout timeout) {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /* Applies the batch policy to every member */
+    public void setBatchPolicy(BatchPolicy policy) {
+        for (RPC rpc : this.connections) {
+            rpc.setBatchPolicy(policy);
+        }
+    }
+
+    public void flush() {
+        for (RPC rpc : this.connections) {
+            rpc.flush();
+        }
+    }
+
+    /* Sets how every member reconnects after it drops, or disables reconnecting when null */
+    public void setReconnectPolicy(ReconnectPolicy reconnect) {
+        for (RPC rpc : this.connections) {
+            rpc.setReconnectPolicy(reconnect);
+        }
+    }
+
+    /* Bounds the queue of calls made while disconnected, or rejects them right away when null */
+    public void setOfflinePolicy(OfflinePolicy policy) {
+
+        OfflineQueue previous = this.offline;
+        this.offline = policy != null ? new OfflineQueue(policy) : null;
+
+        if (previous != null) {
+            previous.failAll(new IOException("Offline queue replaced"));
+        }
+    }
+
+    public OfflinePolicy getOfflinePolicy() {
+        OfflineQueue offline = this.offline;
+        return offline != null ? offline.getPolicy() : null;
+    }
+
+    /* Number of calls waiting for a connection */
+    public int getQueued() {
+        OfflineQueue offline = this.offline;
+        return offline != null ? offline.size() : 0;
+    }
+
+    /* Default deadline of every member, in milliseconds, zero waits forever */
+    public void setDefaultTimeout(long defaultTimeout) {
+        for (RPC rpc : this.connections) {
+            rpc.setDefaultTimeout(defaultTimeout);
+        }
+    }
+
+    /* Bounds the outstanding requests of every member */
+    public void setMaxInFlight(int maxInFlight, Backpressure backpressure) {
+        for (RPC rpc : this.connections) {
+            rpc.setMaxInFlight(maxInFlight, backpressure);
+        }
+    }
+
+    /* Sets the wire encoding of every member, before connecting */
+    public void setCodec(Codec codec) {
+        for (RPC rpc : this.connections) {
+            rpc.setCodec(codec);
+        }
+    }
+
+    /* Number of requests waiting for a reply over the whole pool */
+    public int getInFlight() {
+        int total = 0;
+        for (RPC rpc : this.connections) {
+            total += rpc.getInFlight();
+        }
+        return total;
+    }
+
+    /* Number of members currently connected */
+    public int getConnected() {
+        return this.connected.get();
+    }
+
+    public int size() {
+        return this.connections.length;
+    }
+
+    public RPC getConnection(int index) {
+        return this.connections[index];
+    }
+
+    public Metrics getMetrics() {
+        return this.metrics;
+    }
+
+    public LoadBalancing getBalancing() {
+        return this.balancing;
+    }
+}
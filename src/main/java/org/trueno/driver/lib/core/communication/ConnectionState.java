@@ -0,0 +1,16 @@
+package org.trueno.driver.lib.core.communication;
+
+/**
+ * Health of a single {@link RPC} connection.
+ */
+public enum ConnectionState {
+
+    /* Never connected, or the socket was closed */
+    DISCONNECTED,
+
+    /* Socket opened, waiting for the handshake */
+    CONNECTING,
+
+    /* Ready to carry calls */
+    CONNECTED
+}
@@ -0,0 +1,31 @@
+package org.trueno.driver.lib.core.communication;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools of the driver for work that may block, e.g. on the in-flight window, and
+ * so must not run on the timer thread, a transport thread or the common fork-join pool.
+ * Their threads are daemons, so they never keep the application alive.
+ */
+final class DaemonThreads {
+
+    private DaemonThreads() {
+    }
+
+    /* Cached pool of daemon threads named after the pool, idle ones exit after a minute */
+    static ExecutorService cached(final String name) {
+
+        final AtomicInteger threads = new AtomicInteger();
+
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
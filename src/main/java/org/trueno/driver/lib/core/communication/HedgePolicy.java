@@ -0,0 +1,97 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.trueno.driver.lib.core.metrics.Histogram;
+
+/**
+ * When to hedge an idempotent read: if no reply arrived after the given percentile of
+ * the operation's recent latency, a duplicate is sent on another connection and the
+ * first reply wins. Only successful calls of the last few seconds count, so errors,
+ * timeouts and a slow past do not push the delay up. Until the operation has enough
+ * recent samples a fixed delay is used.
+ */
+public class HedgePolicy {
+
+    /* Private properties */
+    private double percentile;
+    private long minDelayMicros;
+    private long initialDelayMicros;
+    private long minSamples;
+
+    /* Default Constructor */
+    public HedgePolicy() {
+
+        /* Set default properties */
+        this.percentile = 95;
+        this.minDelayMicros = 1000;
+        this.initialDelayMicros = 10000;
+        this.minSamples = 100;
+    }
+
+    /* Constructor with Parameters */
+    public HedgePolicy(double percentile, long minDelayMicros) {
+
+        /* calling default constructor */
+        this();
+        /* Set parameters */
+        this.setPercentile(percentile);
+        this.setMinDelayMicros(minDelayMicros);
+    }
+
+    /* Delay before hedging a call of the operation with the given recent latency histogram */
+    long delayNanos(Histogram latency) {
+
+        if (latency.getCount() < this.minSamples) {
+            return this.initialDelayMicros * 1000;
+        }
+
+        return Math.max(latency.getPercentile(this.percentile), this.minDelayMicros * 1000);
+    }
+
+    /* Getters */
+    public double getPercentile() {
+        return this.percentile;
+    }
+
+    public long getMinDelayMicros() {
+        return this.minDelayMicros;
+    }
+
+    public long getInitialDelayMicros() {
+        return this.initialDelayMicros;
+    }
+
+    public long getMinSamples() {
+        return this.minSamples;
+    }
+
+    /* Setters */
+    public void setPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in (0, 100]");
+        }
+        this.percentile = percentile;
+    }
+
+    /* Lower bound of the delay, keeps fast operations from being hedged on noise */
+    public void setMinDelayMicros(long minDelayMicros) {
+        if (minDelayMicros < 0) {
+            throw new IllegalArgumentException("minDelayMicros must not be negative");
+        }
+        this.minDelayMicros = minDelayMicros;
+    }
+
+    /* Delay used while fewer than minSamples recent calls of the operation were recorded */
+    public void setInitialDelayMicros(long initialDelayMicros) {
+        if (initialDelayMicros < 0) {
+            throw new IllegalArgumentException("initialDelayMicros must not be negative");
+        }
+        this.initialDelayMicros = initialDelayMicros;
+    }
+
+    public void setMinSamples(long minSamples) {
+        if (minSamples < 0) {
+            throw new IllegalArgumentException("minSamples must not be negative");
+        }
+        this.minSamples = minSamples;
+    }
+}
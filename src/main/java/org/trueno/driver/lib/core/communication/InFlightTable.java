@@ -0,0 +1,87 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.jdeferred.Deferred;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outstanding requests of a connection, indexed by request id. When a limit is set the
+ * table holds at most that many requests and applies its {@link Backpressure} policy to
+ * the calls that exceed it.
+ */
+class InFlightTable {
+
+    /* Private properties */
+    private final AtomicLong nextId;
+    private final ConcurrentHashMap<Long, Deferred> pending;
+    private final Semaphore permits;
+    private final int limit;
+    private final Backpressure backpressure;
+
+    /* Unbounded table */
+    InFlightTable() {
+        this(0, Backpressure.BLOCK);
+    }
+
+    /* Table holding at most limit requests, unbounded when limit is zero */
+    InFlightTable(int limit, Backpressure backpressure) {
+
+        if (limit < 0) {
+            throw new IllegalArgumentException("In-flight limit must not be negative");
+        }
+
+        this.nextId = new AtomicLong();
+        this.pending = new ConcurrentHashMap<Long, Deferred>();
+        this.permits = limit > 0 ? new Semaphore(limit) : null;
+        this.limit = limit;
+        this.backpressure = backpressure != null ? backpressure : Backpressure.BLOCK;
+    }
+
+    /* Takes a slot for the deferred and returns its request id */
+    long register(Deferred deferred) throws InterruptedException {
+
+        if (this.permits != null) {
+            if (this.backpressure == Backpressure.BLOCK) {
+                this.permits.acquire();
+            } else if (!this.permits.tryAcquire()) {
+                throw new RejectedExecutionException("In-flight window full (" + this.limit + " requests)");
+            }
+        }
+
+        long id = this.nextId.incrementAndGet();
+        this.pending.put(id, deferred);
+
+        return id;
+    }
+
+    /* Releases the slot of the request, returning its deferred or null if already completed */
+    Deferred remove(long id) {
+
+        Deferred deferred = this.pending.remove(id);
+        if (deferred != null && this.permits != null) {
+            this.permits.release();
+        }
+
+        return deferred;
+    }
+
+    /* Ids of the outstanding requests, a weakly consistent view */
+    Iterable<Long> ids() {
+        return this.pending.keySet();
+    }
+
+    int size() {
+        return this.pending.size();
+    }
+
+    int getLimit() {
+        return this.limit;
+    }
+
+    Backpressure getBackpressure() {
+        return this.backpressure;
+    }
+}
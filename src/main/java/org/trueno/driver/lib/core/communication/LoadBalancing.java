@@ -0,0 +1,13 @@
+package org.trueno.driver.lib.core.communication;
+
+/**
+ * How a {@link ConnectionPool} picks the connection for each call.
+ */
+public enum LoadBalancing {
+
+    /* Cycle through the connected members */
+    ROUND_ROBIN,
+
+    /* Pick the connected member with the fewest requests in flight */
+    LEAST_OUTSTANDING
+}
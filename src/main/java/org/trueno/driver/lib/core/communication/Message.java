@@ -2,6 +2,7 @@ package org.trueno.driver.lib.core.communication;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.trueno.driver.lib.core.data_structures.Component;
 
 import java.util.HashMap;
 
@@ -71,6 +72,35 @@ public class Message extends JSONObject {
         return null;
     }
 
+    public boolean isDelta() {
+        try{
+            return ((JSONObject)this.get("_meta")).optBoolean("_delta", false);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+        return false;
+    }
+
+    /* Milliseconds the caller waits for the reply, zero when the connection default applies */
+    public long getTimeout() {
+        try{
+            return ((JSONObject)this.get("_meta")).optLong("_timeout", 0);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+        return 0;
+    }
+
+    /* Request id stamped by the RPC, zero if the message was never sent */
+    public long getRequestId() {
+        try{
+            return ((JSONObject)this.get("_meta")).optLong("_rid", 0);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+        return 0;
+    }
+
 
     /* Setters */
     public void setMeta(JSONObject meta) {
@@ -89,6 +119,11 @@ public class Message extends JSONObject {
         }
     }
 
+    /* Sets the document of the component as payload */
+    public void setPayload(Component payload) {
+        this.setPayload(payload != null ? payload.toJSON() : null);
+    }
+
     public void getType(String type) {
         try{
             this.put("_type",type);
@@ -105,4 +140,72 @@ public class Message extends JSONObject {
         }
     }
 
+    /* Flags the payload as holding only the modified properties of a component */
+    public void setDelta(boolean delta) {
+        try{
+            ((JSONObject)this.get("_meta")).put("_delta",delta);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+    }
+
+    public void setRequestId(long requestId) {
+        try{
+            ((JSONObject)this.get("_meta")).put("_rid",requestId);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+    }
+
+    /* Sets how long the caller waits for the reply; sent along so the server can drop work nobody waits for */
+    public void setTimeout(long timeout) {
+        try{
+            ((JSONObject)this.get("_meta")).put("_timeout",timeout);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+    }
+
+    /* Copy sharing the payload, with its own meta so it can be sent as a separate request */
+    public Message copy() {
+        Message copy = new Message();
+        try{
+            JSONObject meta = this.getMeta();
+            String[] names = meta != null ? JSONObject.getNames(meta) : null;
+            copy.setMeta(names != null ? new JSONObject(meta, names) : new JSONObject());
+            copy.put("_payload",this.opt("_payload"));
+            copy.put("_type",this.opt("_type"));
+            copy.put("_status",this.opt("_status"));
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+        return copy;
+    }
+
+    /* Asks for one page of a list: at most size items, following the cursor of the previous page (null for the first) */
+    public void setPage(int size, Object cursor) {
+        try{
+            JSONObject page = new JSONObject();
+            page.put("_size",size);
+            page.put("_cursor",cursor);
+            ((JSONObject)this.get("_meta")).put("_page",page);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+    }
+
+    /* Adds the filters, window and projection the server applies to a list before replying */
+    public void setQuery(JSONObject query) {
+        try{
+            JSONObject payload = this.getPayload();
+            if (payload == null) {
+                payload = new JSONObject();
+                this.setPayload(payload);
+            }
+            payload.put("_query",query);
+        }catch (JSONException e){
+            System.out.println(e);
+        }
+    }
+
 }
@@ -0,0 +1,55 @@
+package org.trueno.driver.lib.core.communication;
+
+/**
+ * Bounds of the queue holding the calls made while no connection of a pool is up. The
+ * calls are sent in order once a connection is back; the {@link Overflow} policy applies
+ * to the calls made while the queue is full.
+ */
+public class OfflinePolicy {
+
+    /* Private properties */
+    private int maxQueued;
+    private Overflow overflow;
+
+    /* Default Constructor */
+    public OfflinePolicy() {
+
+        /* Set default properties */
+        this.maxQueued = 1024;
+        this.overflow = Overflow.FAIL;
+    }
+
+    /* Constructor with Parameters */
+    public OfflinePolicy(int maxQueued, Overflow overflow) {
+
+        /* calling default constructor */
+        this();
+        /* Set parameters */
+        this.setMaxQueued(maxQueued);
+        this.setOverflow(overflow);
+    }
+
+    /* Getters */
+    public int getMaxQueued() {
+        return this.maxQueued;
+    }
+
+    public Overflow getOverflow() {
+        return this.overflow;
+    }
+
+    /* Setters */
+    public void setMaxQueued(int maxQueued) {
+        if (maxQueued < 1) {
+            throw new IllegalArgumentException("maxQueued must be at least 1");
+        }
+        this.maxQueued = maxQueued;
+    }
+
+    public void setOverflow(Overflow overflow) {
+        if (overflow == null) {
+            throw new IllegalArgumentException("overflow must not be null");
+        }
+        this.overflow = overflow;
+    }
+}
@@ -0,0 +1,184 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.jdeferred.Promise;
+import org.jdeferred.impl.DeferredObject;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Calls made while no connection of a {@link ConnectionPool} is up, kept in the order they
+ * were made until the pool sends them. The queue is bounded by its {@link OfflinePolicy};
+ * a call with a deadline that expires while queued is rejected with a TimeoutException,
+ * and one sent later only has the time left of that deadline to be answered.
+ *
+ * Promises are settled outside the lock, so their callbacks may call into the pool.
+ */
+class OfflineQueue {
+
+    /* Private properties */
+    private final OfflinePolicy policy;
+    private final ArrayDeque<Parked> calls;
+    private final ReentrantLock lock;
+    private final Condition notFull;
+
+    OfflineQueue(OfflinePolicy policy) {
+
+        /* Set parameters */
+        this.policy = policy;
+        this.calls = new ArrayDeque<Parked>();
+        this.lock = new ReentrantLock();
+        this.notFull = this.lock.newCondition();
+    }
+
+    /* Queues the call, returning its promise; a deadline in milliseconds, zero for none, starts counting now */
+    Promise park(String method, JSONObject arg, boolean whole, long timeout) {
+
+        /* This object reference */
+        final OfflineQueue self = this;
+
+        final Parked call = new Parked(method, arg, whole, timeout);
+        Parked dropped = null;
+
+        this.lock.lock();
+        try {
+            while (this.calls.size() >= this.policy.getMaxQueued()) {
+                if (this.policy.getOverflow() == Overflow.FAIL) {
+                    return call.deferred.reject(new RejectedExecutionException(
+                            "Offline queue full (" + this.policy.getMaxQueued() + " calls)"));
+                } else if (this.policy.getOverflow() == Overflow.DROP_OLDEST) {
+                    dropped = this.calls.pollFirst();
+                } else {
+                    this.notFull.await();
+                }
+            }
+
+            this.calls.addLast(call);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return call.deferred.reject(e);
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (dropped != null) {
+            dropped.reject(new RejectedExecutionException("Dropped from the full offline queue"));
+        }
+
+        /* Expiring the call if it is still queued at its deadline */
+        if (timeout > 0) {
+            final long deadline = timeout;
+            call.timeout = TimingWheel.shared().schedule(new Runnable() {
+                public void run() {
+                    if (self.remove(call)) {
+                        call.deferred.reject(new TimeoutException(call.method + " timed out after " + deadline
+                                + "ms waiting for a connection"));
+                    }
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        return call.deferred.promise();
+    }
+
+    /* Oldest queued call, or null when empty */
+    Parked poll() {
+
+        Parked call;
+
+        this.lock.lock();
+        try {
+            call = this.calls.pollFirst();
+            if (call != null) {
+                this.notFull.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (call != null && call.timeout != null) {
+            call.timeout.cancel();
+        }
+
+        return call;
+    }
+
+    /* Rejects every queued call with the reason */
+    void failAll(Object reason) {
+
+        Parked call;
+        while ((call = this.poll()) != null) {
+            call.deferred.reject(reason);
+        }
+    }
+
+    boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    int size() {
+        this.lock.lock();
+        try {
+            return this.calls.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    OfflinePolicy getPolicy() {
+        return this.policy;
+    }
+
+    private boolean remove(Parked call) {
+
+        this.lock.lock();
+        try {
+            if (this.calls.remove(call)) {
+                this.notFull.signal();
+                return true;
+            }
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /* A queued call and the deferred handed to its caller */
+    static final class Parked {
+
+        final String method;
+        final JSONObject arg;
+        final boolean whole;
+        final long timeoutMillis;
+        final long deadline;
+        final DeferredObject deferred;
+        volatile TimingWheel.Timeout timeout;
+
+        Parked(String method, JSONObject arg, boolean whole, long timeoutMillis) {
+            this.method = method;
+            this.arg = arg;
+            this.whole = whole;
+            this.timeoutMillis = timeoutMillis;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.deferred = new DeferredObject();
+        }
+
+        /* Milliseconds left before the deadline set when the call was parked, zero once past it */
+        long remainingMillis() {
+            long nanos = this.deadline - System.nanoTime();
+            return nanos > 0 ? TimeUnit.NANOSECONDS.toMillis(nanos + 999999) : 0;
+        }
+
+        void reject(Object reason) {
+            if (this.timeout != null) {
+                this.timeout.cancel();
+            }
+            this.deferred.reject(reason);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.trueno.driver.lib.core.communication;
+
+/**
+ * What a call does when the offline queue of its pool is full.
+ */
+public enum Overflow {
+
+    /* Return a promise that is already rejected */
+    FAIL,
+
+    /* Reject the oldest queued call to make room */
+    DROP_OLDEST,
+
+    /* Wait until the queue drains */
+    BLOCK
+}
@@ -0,0 +1,24 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.jdeferred.impl.DeferredObject;
+import org.trueno.driver.lib.core.metrics.OperationMetrics;
+
+/**
+ * Deferred of an outstanding request, carrying the operation its latency is recorded
+ * against and the time it was issued, so timing a call needs no allocation of its own.
+ * Calls flagged as whole resolve with the entire reply message rather than its payload.
+ * The deadline timeout, if any, is cancelled when the call settles.
+ */
+final class PendingCall extends DeferredObject {
+
+    final OperationMetrics operation;
+    final long start;
+    final boolean whole;
+    volatile TimingWheel.Timeout timeout;
+
+    PendingCall(OperationMetrics operation, boolean whole) {
+        this.operation = operation;
+        this.start = System.nanoTime();
+        this.whole = whole;
+    }
+}
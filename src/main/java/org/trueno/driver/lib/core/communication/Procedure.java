@@ -0,0 +1,84 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trueno.driver.lib.core.metrics.Metrics;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Procedure exposed to the server, called with the documents pushed under its event name.
+ * Documents are queued and the procedure runs on the executor one document at a time, in
+ * the order they arrived, so a slow procedure neither blocks the connection nor sees its
+ * events reordered. Failures of the procedure and refusals of the executor are counted
+ * as errors in the connection's metrics.
+ */
+final class Procedure {
+
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(Procedure.class);
+
+    /* Documents handled per executor task before yielding the thread */
+    private static final int RUN_LIMIT = 64;
+
+    /* Private properties */
+    private final Method method;
+    private final ConcurrentLinkedQueue<Object> queue;
+    private final AtomicBoolean scheduled;
+
+    /* Constructor with Parameters */
+    Procedure(Method method) {
+        this.method = method;
+        this.queue = new ConcurrentLinkedQueue<Object>();
+        this.scheduled = new AtomicBoolean();
+    }
+
+    void dispatch(Object document, Executor executor, Metrics metrics) {
+        this.queue.add(document);
+        this.schedule(executor, metrics);
+    }
+
+    private void schedule(final Executor executor, final Metrics metrics) {
+
+        /* This object reference */
+        final Procedure self = this;
+
+        if (!this.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    self.drain(executor, metrics);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            /* The documents stay queued for the next dispatch */
+            log.warn("Procedure executor refused the documents, they stay queued", e);
+            metrics.error();
+            this.scheduled.set(false);
+        }
+    }
+
+    private void drain(Executor executor, Metrics metrics) {
+
+        Object document;
+        for (int i = 0; i < RUN_LIMIT && (document = this.queue.poll()) != null; i++) {
+            try {
+                this.method.method(document);
+            } catch (RuntimeException e) {
+                log.warn("Exposed procedure failed", e);
+                metrics.error();
+            }
+        }
+
+        this.scheduled.set(false);
+        if (!this.queue.isEmpty()) {
+            this.schedule(executor, metrics);
+        }
+    }
+}
@@ -1,28 +1,56 @@
 package org.trueno.driver.lib.core.communication;
 
-import com.github.nkzawa.emitter.Emitter;
-import com.github.nkzawa.socketio.client.Ack;
-import com.github.nkzawa.socketio.client.IO;
 import com.github.nkzawa.socketio.client.Socket;
 import org.jdeferred.Deferred;
 import org.jdeferred.Promise;
-import org.jdeferred.impl.DeferredObject;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trueno.driver.lib.core.TruenoException;
+import org.trueno.driver.lib.core.communication.codec.Codec;
+import org.trueno.driver.lib.core.communication.codec.JsonCodec;
+import org.trueno.driver.lib.core.communication.transport.Reply;
+import org.trueno.driver.lib.core.communication.transport.SocketIOTransport;
+import org.trueno.driver.lib.core.communication.transport.Transport;
+import org.trueno.driver.lib.core.communication.transport.TransportListener;
+import org.trueno.driver.lib.core.metrics.Metrics;
 
-import java.net.URISyntaxException;
-import java.util.HashMap;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Created by victor on 7/19/16.
  */
 public class RPC {
 
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(RPC.class);
+
+    /* Event used by the server to answer requests outside of an acknowledgement */
+    public static final String REPLY_EVENT = "ex_reply";
+
     /* Private properties */
     private String host;
     private int port;
-    private HashMap<String, Method> procedures;
-    private Socket socket;
+    private ConcurrentHashMap<String, Procedure> procedures;
+    private volatile Executor procedureExecutor;
+    private Transport transport;
+    private Batcher batcher;
+    private InFlightTable inFlight;
+    private volatile ConnectionState state;
+    private Codec codec;
+    private Metrics metrics;
+    private boolean opened;
+    private long defaultTimeout;
+    private ReconnectPolicy reconnect;
+    private volatile boolean closing;
+    private int attempts;
+    private TimingWheel.Timeout retry;
 
     /* Default Constructor */
     public RPC() {
@@ -30,8 +58,20 @@ public class RPC {
         /* Set default properties */
         this.host = "http://localhost";
         this.port = 8000;
-        this.procedures = new HashMap<String, Method>();
-        this.socket = null;
+        this.procedures = new ConcurrentHashMap<String, Procedure>();
+        this.procedureExecutor = ForkJoinPool.commonPool();
+        this.transport = null;
+        this.batcher = null;
+        this.inFlight = new InFlightTable();
+        this.state = ConnectionState.DISCONNECTED;
+        this.codec = new JsonCodec();
+        this.metrics = new Metrics();
+        this.opened = false;
+        this.defaultTimeout = 0;
+        this.reconnect = new ReconnectPolicy();
+        this.closing = false;
+        this.attempts = 0;
+        this.retry = null;
     }
 
     /* Constructor with Parameters */
@@ -47,28 +87,304 @@ public class RPC {
     /* Public methods */
     public void expose(String procedureName, Method procedureFunction) {
     /* Insert the procedure in the collection */
-        this.procedures.put(procedureName, procedureFunction);
+        this.procedures.put(procedureName, new Procedure(procedureFunction));
+        /* Receiving the event from now on */
+        if (this.transport != null) {
+            this.transport.listen(procedureName);
+        }
+    }
+
+    /* Stops calling the procedure, the events still arriving are dropped */
+    public void unexpose(String procedureName) {
+        this.procedures.remove(procedureName);
+    }
+
+    /* Sets the executor exposed procedures run on, the common fork-join pool by default */
+    public void setProcedureExecutor(Executor executor) {
+        this.procedureExecutor = executor != null ? executor : ForkJoinPool.commonPool();
+    }
+
+    public Executor getProcedureExecutor() {
+        return this.procedureExecutor;
     }
 
+    /* Enables batching with the given policy, or disables it when null */
+    public void setBatchPolicy(BatchPolicy policy) {
 
-    public Promise call(final String method, final JSONObject arg) {
+        /* Sending whatever was collected under the previous policy */
+        if (this.batcher != null) {
+            this.batcher.flush();
+        }
+
+        this.batcher = policy != null ? new Batcher(this, policy) : null;
+    }
 
+    /* Sends the calls collected by the batcher right away */
+    public void flush() {
+
+        if (this.batcher != null) {
+            this.batcher.flush();
+        }
+    }
+
+    /* Bounds the number of outstanding requests, zero removes the bound */
+    public void setMaxInFlight(int maxInFlight, Backpressure backpressure) {
+
+        if (this.inFlight.size() > 0) {
+            throw new IllegalStateException("Cannot resize the in-flight window while requests are outstanding");
+        }
+
+        this.inFlight = new InFlightTable(maxInFlight, backpressure);
+    }
+
+    public int getMaxInFlight() {
+        return this.inFlight.getLimit();
+    }
+
+    /* Number of requests waiting for a reply */
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+
+    /* Sets the wire encoding, announced to the server on connect */
+    public void setCodec(Codec codec) {
+        this.codec = codec != null ? codec : new JsonCodec();
+    }
+
+    public Codec getCodec() {
+        return this.codec;
+    }
+
+    /* Sets the transport to connect through, a socket.io one to host:port is used when none is set */
+    public void setTransport(Transport transport) {
+
+        if (this.state != ConnectionState.DISCONNECTED) {
+            throw new IllegalStateException("Cannot change the transport of an open connection");
+        }
+
+        this.transport = transport;
+    }
+
+    public Transport getTransport() {
+        return this.transport;
+    }
+
+    /* Sets where calls, traffic and connection changes are recorded, shared by the members of a pool */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics != null ? metrics : new Metrics();
+    }
+
+    public Metrics getMetrics() {
+        return this.metrics;
+    }
+
+    /* Milliseconds a call waits for its reply before failing with a TimeoutException, zero waits forever */
+    public void setDefaultTimeout(long defaultTimeout) {
+        if (defaultTimeout < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public long getDefaultTimeout() {
+        return this.defaultTimeout;
+    }
+
+    /* Sets how the connection is reopened after it drops, or disables reconnecting when null */
+    public void setReconnectPolicy(ReconnectPolicy reconnect) {
+        this.reconnect = reconnect;
+    }
+
+    public ReconnectPolicy getReconnectPolicy() {
+        return this.reconnect;
+    }
+
+    public ConnectionState getState() {
+        return this.state;
+    }
+
+    public boolean isHealthy() {
+        return this.state == ConnectionState.CONNECTED;
+    }
+
+    public Promise call(String method, JSONObject arg) {
+        return this.call(method, arg, false);
+    }
+
+    /* Sends the call; a whole call resolves with the entire reply, e.g. to read its _meta, instead of the payload */
+    public Promise call(final String method, final JSONObject arg, boolean whole) {
+        return this.call(method, arg, whole, 0);
+    }
+
+    /* Same as call, with a deadline in milliseconds overriding that of the message and the default, zero for those */
+    Promise call(final String method, final JSONObject arg, boolean whole, long deadlineMillis) {
 
         /* This object reference */
         final RPC self = this;
 
-        /* Instantiating deferred object */
-        final Deferred deferred = new DeferredObject();
+        /* Instantiating deferred object, timed against the operation */
+        final PendingCall deferred = new PendingCall(this.metrics.operation(method), whole);
         /* Extracting promise */
         Promise promise = deferred.promise();
+
+        /* Taking a slot in the in-flight window */
+        final long rid;
+        try {
+            rid = this.inFlight.register(deferred);
+        } catch (RejectedExecutionException e) {
+            this.metrics.error();
+            return deferred.reject(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.metrics.error();
+            return deferred.reject(e);
+        }
+
+        this.metrics.requestStarted();
+
+        /* Stamping the request id so the server can echo it back */
+        long timeout = this.defaultTimeout;
+        if (arg instanceof Message) {
+            Message msg = (Message) arg;
+            msg.setRequestId(rid);
+            timeout = msg.getTimeout() > 0 ? msg.getTimeout() : timeout;
+            if (deadlineMillis > 0 && msg.getTimeout() > 0) {
+                msg.setTimeout(deadlineMillis);
+            }
+        }
+        if (deadlineMillis > 0) {
+            timeout = deadlineMillis;
+        }
+
+        /* Failing the call if no reply arrives before its deadline */
+        if (timeout > 0) {
+            final long deadline = timeout;
+            deferred.timeout = TimingWheel.shared().schedule(new Runnable() {
+                public void run() {
+                    if (self.fail(rid, new TimeoutException(method + " timed out after " + deadline + "ms"))) {
+                        self.metrics.timedOut();
+                    }
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        /* Batched calls are completed when their batch is acknowledged */
+        if (this.batcher != null) {
+            this.batcher.add(method, arg, rid);
+            return promise;
+        }
+
         /* Sending event */
-        self.socket.emit(method, arg, new Ack() {
+        try {
+            this.emit(method, arg, new Reply() {
+                public void call(Object... objects) {
+                    Object reply = objects.length > 0 ? objects[0] : null;
+                    if (reply instanceof Throwable) {
+                        self.fail(rid, reply);
+                    } else {
+                        self.complete(reply, rid);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            this.fail(rid, e);
+        }
+
+        return promise;
+    }
+
+    /* Settles the request the reply belongs to, falling back to the given id if the reply carries none */
+    void complete(Object reply, long rid) {
+
+        /* Looking up the request id echoed by the server */
+        if (reply instanceof JSONObject) {
+            JSONObject meta = ((JSONObject) reply).optJSONObject("_meta");
+            if (meta != null && meta.has("_rid")) {
+                rid = meta.optLong("_rid", rid);
+            }
+        }
+
+        Deferred deferred = this.inFlight.remove(rid);
+        if (deferred == null) {
+            /* Already settled, i.e. a duplicate reply */
+            return;
+        }
+
+        /* Unwrapping the reply message */
+        if (reply instanceof JSONObject) {
+            JSONObject msg = (JSONObject) reply;
+            Object payload = msg.has("_payload") ? msg.opt("_payload") : msg;
+            if ("error".equals(msg.optString("_status"))) {
+                this.record(deferred, true);
+                deferred.reject(payload);
+            } else {
+                this.record(deferred, false);
+                deferred.resolve(((PendingCall) deferred).whole ? msg : payload);
+            }
+        } else if (reply == null) {
+            /* An acknowledgement without a reply is not an answer to the call */
+            this.record(deferred, true);
+            deferred.reject(new TruenoException("Acknowledged without a reply", null));
+        } else {
+            this.record(deferred, false);
+            deferred.resolve(reply);
+        }
+    }
+
+    /* Rejects the request, returning false if it was no longer outstanding */
+    boolean fail(long rid, Object reason) {
+
+        Deferred deferred = this.inFlight.remove(rid);
+        if (deferred == null) {
+            return false;
+        }
+
+        this.record(deferred, true);
+        deferred.reject(reason);
+
+        return true;
+    }
+
+    /* Records the latency of a settled request */
+    private void record(Deferred deferred, boolean error) {
+
+        PendingCall call = (PendingCall) deferred;
+        TimingWheel.Timeout timeout = call.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        call.operation.record(System.nanoTime() - call.start, error);
+        this.metrics.requestEnded();
+    }
+
+    /* Sends a single event through the transport, encoding it and decoding its acknowledgement with the codec;
+       an acknowledgement that cannot be decoded reaches the reply as the exception explaining why */
+    void emit(final String event, JSONObject arg, final Reply reply) throws IOException {
+
+        /* This object reference */
+        final RPC self = this;
+
+        final Codec codec = this.codec;
+
+        if (this.transport == null) {
+            throw new IOException("Not connected");
+        }
+
+        this.transport.send(event, codec.encode(arg), new Reply() {
             public void call(Object... objects) {
-                deferred.resolve("done");
+                try {
+                    for (int i = 0; i < objects.length; i++) {
+                        if (!(objects[i] instanceof Throwable)) {
+                            objects[i] = codec.decode(objects[i]);
+                        }
+                    }
+                } catch (IOException e) {
+                    self.metrics.error();
+                    objects = new Object[] {new TruenoException("Reply to " + event + " could not be decoded", e)};
+                }
+                reply.call(objects);
             }
         });
-
-        return promise;
     }
 
     public void connect(final Callback connCallback, final Callback discCallback) {
@@ -77,25 +393,127 @@ public class RPC {
         /* This object reference */
         final RPC self = this;
 
-        /* instantiating the socket */
-        try {
-            this.socket = IO.socket(this.host+":"+this.port );
-        } catch (URISyntaxException e) {
-            System.out.println(e);
+        if (this.transport == null) {
+            this.transport = new SocketIOTransport(this.host, this.port);
+        }
+
+        /* Events of the procedures exposed before the transport was set */
+        for (String procedure : this.procedures.keySet()) {
+            this.transport.listen(procedure);
         }
 
-        this.socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
-            public void call(Object... args) {
-                connCallback.method(self.socket);
+        this.closing = false;
+        this.attempts = 0;
+        this.state = ConnectionState.CONNECTING;
+
+        this.transport.open(this.codec, new TransportListener() {
+            public void onOpen() {
+                self.metrics.connected(self.opened);
+                self.opened = true;
+                self.attempts = 0;
+                self.state = ConnectionState.CONNECTED;
+                connCallback.method(self.getSocket());
+            }
+
+            public void onClose() {
+                self.metrics.disconnected();
+                self.state = ConnectionState.DISCONNECTED;
+                /* Replies to the requests sent on the closed connection will never arrive */
+                self.failAll(new IOException("Connection closed"));
+                discCallback.method(self.getSocket());
+                self.reconnect(this);
             }
-        }).on(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
-            public void call(Object... args) {
-                discCallback.method(self.socket);
+
+            public void onError(Object reason) {
+                self.metrics.error();
+                if (self.state != ConnectionState.CONNECTED) {
+                    self.state = ConnectionState.DISCONNECTED;
+                    self.reconnect(this);
+                }
+            }
+
+            public void onEvent(String event, Object frame) {
+                /* Replies pushed as events must carry their request id */
+                if (REPLY_EVENT.equals(event)) {
+                    try {
+                        self.complete(self.codec.decode(frame), 0);
+                    } catch (IOException e) {
+                        log.warn("Could not decode a pushed reply", e);
+                        self.metrics.error();
+                    }
+                    return;
+                }
+
+                /* Pushed to an exposed procedure, called away from the transport thread */
+                Procedure procedure = self.procedures.get(event);
+                if (procedure != null) {
+                    try {
+                        procedure.dispatch(self.codec.decode(frame), self.procedureExecutor, self.metrics);
+                    } catch (IOException e) {
+                        log.warn("Could not decode the call to {}", event, e);
+                        self.metrics.error();
+                    }
+                }
+            }
+
+            public void onTraffic(long sent, long received) {
+                self.metrics.sent(sent);
+                self.metrics.received(received);
             }
         });
+    }
+
+    public void disconnect() {
+
+        this.closing = true;
+
+        TimingWheel.Timeout retry = this.retry;
+        if (retry != null) {
+            retry.cancel();
+        }
+
+        if (this.transport != null) {
+            this.transport.close();
+        }
+    }
+
+    /* Reopens the transport after the backoff delay, unless the connection was closed on purpose */
+    private void reconnect(final TransportListener listener) {
+
+        /* This object reference */
+        final RPC self = this;
+
+        ReconnectPolicy policy = this.reconnect;
+        if (this.closing || policy == null || !policy.allows(this.attempts)) {
+            return;
+        }
+
+        long delay = policy.delayMillis(this.attempts++);
+        this.retry = TimingWheel.shared().schedule(new Runnable() {
+            public void run() {
+                /* Opening may resolve hosts and create threads, which the timer thread must not wait for */
+                ForkJoinPool.commonPool().execute(new Runnable() {
+                    public void run() {
+                        if (!self.closing) {
+                            self.state = ConnectionState.CONNECTING;
+                            self.transport.open(self.codec, listener);
+                        }
+                    }
+                });
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /* Rejects every outstanding request with the reason */
+    private void failAll(Object reason) {
+        for (Long rid : this.inFlight.ids()) {
+            this.fail(rid, reason);
+        }
+    }
 
-        /* Connecting Socket */
-        this.socket.connect();
+    /* Socket handed to the connection callbacks, null when not connected through socket.io */
+    private Socket getSocket() {
+        return this.transport instanceof SocketIOTransport ? ((SocketIOTransport) this.transport).getSocket() : null;
     }
 
 
@@ -0,0 +1,113 @@
+package org.trueno.driver.lib.core.communication;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a connection that dropped, or failed to open, tries again: after an exponentially
+ * growing delay, capped at a maximum, of which a random fraction is taken off so the
+ * clients of a restarted server do not all come back at the same instant.
+ */
+public class ReconnectPolicy {
+
+    /* Private properties */
+    private long initialDelayMillis;
+    private long maxDelayMillis;
+    private double multiplier;
+    private double jitter;
+    private int maxAttempts;
+
+    /* Default Constructor */
+    public ReconnectPolicy() {
+
+        /* Set default properties */
+        this.initialDelayMillis = 100;
+        this.maxDelayMillis = 30000;
+        this.multiplier = 2;
+        this.jitter = 0.5;
+        this.maxAttempts = 0;
+    }
+
+    /* Constructor with Parameters */
+    public ReconnectPolicy(long initialDelayMillis, long maxDelayMillis, int maxAttempts) {
+
+        /* calling default constructor */
+        this();
+        /* Set parameters */
+        this.setInitialDelayMillis(initialDelayMillis);
+        this.setMaxDelayMillis(maxDelayMillis);
+        this.setMaxAttempts(maxAttempts);
+    }
+
+    /* Delay before the given attempt, counting from zero */
+    long delayMillis(int attempt) {
+
+        double delay = this.initialDelayMillis * Math.pow(this.multiplier, attempt);
+        delay = Math.min(delay, this.maxDelayMillis);
+
+        return (long) (delay * (1 - this.jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /* Whether the given attempt, counting from zero, may still be made */
+    boolean allows(int attempt) {
+        return this.maxAttempts == 0 || attempt < this.maxAttempts;
+    }
+
+    /* Getters */
+    public long getInitialDelayMillis() {
+        return this.initialDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return this.maxDelayMillis;
+    }
+
+    public double getMultiplier() {
+        return this.multiplier;
+    }
+
+    public double getJitter() {
+        return this.jitter;
+    }
+
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    /* Setters */
+    public void setInitialDelayMillis(long initialDelayMillis) {
+        if (initialDelayMillis < 0) {
+            throw new IllegalArgumentException("initialDelayMillis must not be negative");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+    }
+
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("maxDelayMillis must not be negative");
+        }
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public void setMultiplier(double multiplier) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+        this.multiplier = multiplier;
+    }
+
+    /* Largest fraction of the delay taken off at random, zero for fixed delays */
+    public void setJitter(double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must be in [0, 1]");
+        }
+        this.jitter = jitter;
+    }
+
+    /* Attempts made before giving up, zero retries forever */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 0) {
+            throw new IllegalArgumentException("maxAttempts must not be negative");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+}
@@ -0,0 +1,254 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Hashed timing wheel running short tasks after a delay, used for request deadlines,
+ * hedging, batch and write-behind flushes and bulk load progress. Scheduling and cancelling are constant time and lock-free: they only enqueue,
+ * and a single timer thread moves timeouts into the bucket of their tick, unlinks the
+ * cancelled ones and hands the expired ones to an executor. Delays are rounded up to the
+ * tick.
+ *
+ * Tasks run on the executor, so rejecting a call, running its callbacks or sending a
+ * hedge never holds up the timer thread and the deadlines behind it.
+ */
+public final class TimingWheel {
+
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    /* Wheel shared by all connections */
+    private static volatile TimingWheel shared;
+
+    /* Private properties */
+    private final long tickNanos;
+    private final Timeout[] heads;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> added;
+    private final ConcurrentLinkedQueue<Timeout> cancelled;
+    private final AtomicInteger pending;
+    private final Executor executor;
+    private final Thread worker;
+    private final long startTime;
+    private long tick;
+
+    /* Wheel of the given tick and number of buckets, rounded up to a power of two, running tasks on the executor */
+    TimingWheel(long tick, TimeUnit unit, int buckets, String name, Executor executor) {
+
+        int size = 1;
+        while (size < buckets) {
+            size <<= 1;
+        }
+
+        this.tickNanos = Math.max(unit.toNanos(tick), 1);
+        this.heads = new Timeout[size];
+        this.mask = size - 1;
+        this.added = new ConcurrentLinkedQueue<Timeout>();
+        this.cancelled = new ConcurrentLinkedQueue<Timeout>();
+        this.pending = new AtomicInteger();
+        this.executor = executor;
+        this.startTime = System.nanoTime();
+
+        /* This object reference */
+        final TimingWheel self = this;
+
+        this.worker = new Thread(new Runnable() {
+            public void run() {
+                self.run();
+            }
+        }, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /* Wheel with a 1ms tick and its own daemon threads for the tasks, created on first use */
+    public static TimingWheel shared() {
+
+        TimingWheel wheel = shared;
+        if (wheel == null) {
+            synchronized (TimingWheel.class) {
+                if (shared == null) {
+                    shared = new TimingWheel(1, TimeUnit.MILLISECONDS, 1024, "trueno-timer", DaemonThreads.cached("trueno-timeout"));
+                }
+                wheel = shared;
+            }
+        }
+
+        return wheel;
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(delay));
+        this.pending.incrementAndGet();
+        this.added.add(timeout);
+
+        return timeout;
+    }
+
+    /* Timeouts scheduled and neither expired nor cancelled yet */
+    int size() {
+        return this.pending.get();
+    }
+
+    private void run() {
+
+        while (true) {
+            /* Sleeping until the end of the current tick */
+            long deadline = this.startTime + (this.tick + 1) * this.tickNanos;
+            long sleep;
+            while ((sleep = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            this.unlinkCancelled();
+            this.transferAdded();
+            this.expire((int) (this.tick & this.mask));
+            this.tick++;
+        }
+    }
+
+    private void unlinkCancelled() {
+
+        Timeout timeout;
+        while ((timeout = this.cancelled.poll()) != null) {
+            if (timeout.bucket >= 0) {
+                this.unlink(timeout);
+            }
+        }
+    }
+
+    /* Moves the newly scheduled timeouts into the bucket of their deadline tick */
+    private void transferAdded() {
+
+        Timeout timeout;
+        while ((timeout = this.added.poll()) != null) {
+            if (timeout.state != Timeout.PENDING) {
+                continue;
+            }
+
+            long ticks = (timeout.deadline - this.startTime + this.tickNanos - 1) / this.tickNanos;
+            /* Deadlines already past expire on the current tick */
+            long target = Math.max(ticks, this.tick);
+            timeout.rounds = (target - this.tick) / this.heads.length;
+            timeout.bucket = (int) (target & this.mask);
+
+            timeout.next = this.heads[timeout.bucket];
+            timeout.prev = null;
+            if (timeout.next != null) {
+                timeout.next.prev = timeout;
+            }
+            this.heads[timeout.bucket] = timeout;
+        }
+    }
+
+    private void expire(int bucket) {
+
+        Timeout timeout = this.heads[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds <= 0) {
+                this.unlink(timeout);
+                if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+                    this.pending.decrementAndGet();
+                    this.execute(timeout.task);
+                }
+            } else {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    /* Runs the task on the executor, or on the timer thread if the executor refuses it */
+    private void execute(final Runnable task) {
+
+        Runnable guarded = new Runnable() {
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    log.error("Timer task failed", t);
+                }
+            }
+        };
+
+        try {
+            this.executor.execute(guarded);
+        } catch (RejectedExecutionException e) {
+            guarded.run();
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else if (this.heads[timeout.bucket] == timeout) {
+            this.heads[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /* A scheduled task; bucket links are only touched by the timer thread */
+    public static final class Timeout {
+
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        final TimingWheel wheel;
+        final Runnable task;
+        final long deadline;
+        volatile int state;
+        long rounds;
+        int bucket;
+        Timeout prev;
+        Timeout next;
+
+        Timeout(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+            this.state = PENDING;
+            this.bucket = -1;
+        }
+
+        /* Prevents the task from running, returning false if it already ran or was cancelled */
+        public boolean cancel() {
+
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+
+            this.wheel.pending.decrementAndGet();
+            this.wheel.cancelled.add(this);
+
+            return true;
+        }
+
+        public boolean isExpired() {
+            return this.state == EXPIRED;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.trueno.driver.lib.core.communication;
+
+/**
+ * Limits of the write-behind buffer, which merges the updates made to the same component
+ * into one pending update. The buffer is flushed as soon as it holds maxPending distinct
+ * components, or maxDelayMillis after the first update was buffered.
+ */
+public class WriteBehindPolicy {
+
+    /* Private properties */
+    private int maxPending;
+    private long maxDelayMillis;
+
+    /* Default Constructor */
+    public WriteBehindPolicy() {
+
+        /* Set default properties */
+        this.maxPending = 1024;
+        this.maxDelayMillis = 50;
+    }
+
+    /* Constructor with Parameters */
+    public WriteBehindPolicy(int maxPending, long maxDelayMillis) {
+
+        /* calling default constructor */
+        this();
+        /* Set parameters */
+        this.setMaxPending(maxPending);
+        this.setMaxDelayMillis(maxDelayMillis);
+    }
+
+    /* Getters */
+    public int getMaxPending() {
+        return this.maxPending;
+    }
+
+    public long getMaxDelayMillis() {
+        return this.maxDelayMillis;
+    }
+
+    /* Setters */
+    public void setMaxPending(int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be at least 1");
+        }
+        this.maxPending = maxPending;
+    }
+
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        if (maxDelayMillis < 1) {
+            throw new IllegalArgumentException("maxDelayMillis must be at least 1");
+        }
+        this.maxDelayMillis = maxDelayMillis;
+    }
+}
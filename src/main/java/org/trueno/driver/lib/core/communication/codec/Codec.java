@@ -0,0 +1,20 @@
+package org.trueno.driver.lib.core.communication.codec;
+
+import java.io.IOException;
+
+/**
+ * Turns the JSON documents exchanged with the server into the objects emitted on the
+ * socket, and back. The codec of a connection is announced to the server when the
+ * connection is opened.
+ */
+public interface Codec {
+
+    /* Name announced to the server */
+    String getName();
+
+    /* Converts an outgoing document (a JSONObject or JSONArray) into the frame to emit */
+    Object encode(Object document) throws IOException;
+
+    /* Converts an incoming frame into a document, frames the codec does not handle are returned as they are */
+    Object decode(Object frame) throws IOException;
+}
@@ -0,0 +1,298 @@
+package org.trueno.driver.lib.core.communication.codec;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Wraps another codec and deflates the payload of messages whose size reaches a
+ * threshold. The compressed payload replaces "_payload", as binary with a binary codec
+ * and as Base64 text with {@link JsonCodec}, and "_meta._compression" names the algorithm
+ * so the other side knows to inflate it. The rest of the envelope, e.g. the request id,
+ * stays readable without inflating. The messages of a batch frame are compressed each on
+ * its own, like the replies to it.
+ *
+ * Payload sizes are estimated with {@link JsonSize} rather than serialized, so messages
+ * below the threshold are sent as the wrapped codec encodes them at no extra cost; a
+ * compressed payload is encoded once, and payloads that do not shrink are sent
+ * uncompressed. The codec is announced as the name of the
+ * wrapped one followed by "+deflate"; compressed replies are accepted either way.
+ */
+public class DeflateCodec implements Codec {
+
+    public static final String ALGORITHM = "deflate";
+    public static final String COMPRESSION_FIELD = "_compression";
+
+    /* Field holding the entries of a batch frame */
+    private static final String BATCH_FIELD = "_batch";
+
+    /* Deflaters hold native memory, so they are kept per thread and reset between uses */
+    private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>();
+    private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    /* Private properties */
+    private final Codec codec;
+    private final int threshold;
+    private final int level;
+    private final boolean binary;
+
+    /* Constructor with Parameters, compressing messages of 1KB and more at the fastest level */
+    public DeflateCodec(Codec codec) {
+        this(codec, 1024, Deflater.BEST_SPEED);
+    }
+
+    /* Constructor with Parameters, the level is one of the Deflater levels */
+    public DeflateCodec(Codec codec, int threshold, int level) {
+
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be a Deflater compression level");
+        }
+
+        /* Set parameters */
+        this.codec = codec != null ? codec : new JsonCodec();
+        this.threshold = threshold;
+        this.level = level;
+
+        /* Binary codecs carry the compressed payload as bytes, text ones as Base64 */
+        try {
+            this.binary = this.codec.encode(new JSONObject()) instanceof byte[];
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Codec cannot encode an empty document", e);
+        }
+    }
+
+    public String getName() {
+        return this.codec.getName() + "+" + ALGORITHM;
+    }
+
+    public Object encode(Object document) throws IOException {
+
+        if (!(document instanceof JSONObject)) {
+            return this.codec.encode(document);
+        }
+        JSONObject msg = (JSONObject) document;
+
+        /* A batch frame carries one message per entry, each compressed on its own */
+        JSONArray batch = msg.optJSONArray(BATCH_FIELD);
+        if (batch == null) {
+            JSONObject compressed = this.compress(msg);
+            return this.codec.encode(compressed != null ? compressed : msg);
+        }
+
+        try {
+            JSONArray entries = null;
+            for (int i = 0; i < batch.length(); i++) {
+                JSONObject entry = batch.optJSONObject(i);
+                JSONObject compressed = this.compress(entry != null ? entry.optJSONObject("_payload") : null);
+                if (compressed == null) {
+                    continue;
+                }
+                /* Copied on the first compressed entry, the caller's frame is left as it is */
+                if (entries == null) {
+                    entries = new JSONArray();
+                    for (int j = 0; j < batch.length(); j++) {
+                        entries.put(batch.opt(j));
+                    }
+                }
+                JSONObject copy = copy(entry);
+                copy.put("_payload", compressed);
+                entries.put(i, copy);
+            }
+            if (entries == null) {
+                return this.codec.encode(msg);
+            }
+
+            JSONObject frame = copy(msg);
+            frame.put(BATCH_FIELD, entries);
+            return this.codec.encode(frame);
+        } catch (JSONException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    public Object decode(Object frame) throws IOException {
+
+        Object document = this.codec.decode(frame);
+
+        /* Replies to a batch are an array of messages, each compressed on its own */
+        if (document instanceof JSONArray) {
+            JSONArray replies = (JSONArray) document;
+            for (int i = 0; i < replies.length(); i++) {
+                this.inflate(replies.opt(i));
+            }
+        } else if (document instanceof JSONObject && ((JSONObject) document).has(BATCH_FIELD)) {
+            JSONArray entries = ((JSONObject) document).optJSONArray(BATCH_FIELD);
+            for (int i = 0; entries != null && i < entries.length(); i++) {
+                JSONObject entry = entries.optJSONObject(i);
+                this.inflate(entry != null ? entry.opt("_payload") : null);
+            }
+        } else {
+            this.inflate(document);
+        }
+
+        return document;
+    }
+
+    public Codec getCodec() {
+        return this.codec;
+    }
+
+    public int getThreshold() {
+        return this.threshold;
+    }
+
+    /* Restores the payload of a compressed message in place */
+    private void inflate(Object document) throws IOException {
+
+        if (!(document instanceof JSONObject)) {
+            return;
+        }
+        JSONObject msg = (JSONObject) document;
+        JSONObject meta = msg.optJSONObject("_meta");
+        if (meta == null || !meta.has(COMPRESSION_FIELD)) {
+            return;
+        }
+
+        String algorithm = meta.optString(COMPRESSION_FIELD);
+        if (!ALGORITHM.equals(algorithm)) {
+            throw new IOException("Unsupported compression: " + algorithm);
+        }
+
+        try {
+            Object payload = msg.opt("_payload");
+            Object restored;
+            if (payload instanceof byte[]) {
+                restored = this.codec.decode(this.inflate((byte[]) payload));
+            } else {
+                byte[] raw = this.inflate(Base64.getDecoder().decode(String.valueOf(payload)));
+                restored = new JSONTokener(new String(raw, StandardCharsets.UTF_8)).nextValue();
+            }
+            msg.put("_payload", restored);
+            meta.remove(COMPRESSION_FIELD);
+        } catch (JSONException e) {
+            throw new IOException(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed compressed payload: " + e.getMessage());
+        }
+    }
+
+    /* Copy of the message with its payload deflated, or null when it is too small or does not shrink */
+    private JSONObject compress(JSONObject msg) throws IOException {
+
+        if (msg == null) {
+            return null;
+        }
+        Object payload = msg.opt("_payload");
+        JSONObject meta = msg.optJSONObject("_meta");
+        if (!(payload instanceof JSONObject || payload instanceof JSONArray) || meta == null) {
+            return null;
+        }
+
+        /* Small payloads are recognised without being serialized */
+        if (JsonSize.estimate(payload, this.threshold) < this.threshold) {
+            return null;
+        }
+
+        /* The payload is encoded once, the envelope around it is small */
+        byte[] raw = this.binary ? (byte[]) this.codec.encode(payload) : payload.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] packed = this.deflate(raw);
+        if (packed.length >= raw.length) {
+            return null;
+        }
+
+        try {
+            JSONObject flagged = copy(meta);
+            flagged.put(COMPRESSION_FIELD, ALGORITHM);
+            JSONObject compressed = copy(msg);
+            compressed.put("_meta", flagged);
+            compressed.put("_payload", this.binary ? packed : Base64.getEncoder().encodeToString(packed));
+            return compressed;
+        } catch (JSONException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /* Shallow copy of a document */
+    private static JSONObject copy(JSONObject document) throws JSONException {
+
+        JSONObject copy = new JSONObject();
+        Iterator keys = document.keys();
+        while (keys.hasNext()) {
+            String key = (String) keys.next();
+            copy.put(key, document.opt(key));
+        }
+
+        return copy;
+    }
+
+    private byte[] deflate(byte[] raw) {
+
+        Deflater deflater = deflaters.get();
+        if (deflater == null) {
+            deflater = new Deflater(this.level);
+            deflaters.set(deflater);
+        } else {
+            deflater.reset();
+            deflater.setLevel(this.level);
+        }
+
+        deflater.setInput(raw);
+        deflater.finish();
+
+        /* Sized for the usual ratio, grown when the data compresses less */
+        byte[] out = new byte[Math.max(64, raw.length / 2)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            length += deflater.deflate(out, length, out.length - length);
+        }
+
+        return Arrays.copyOf(out, length);
+    }
+
+    private byte[] inflate(byte[] packed) throws IOException {
+
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(packed);
+
+        byte[] out = new byte[Math.max(256, packed.length * 4)];
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                int n = inflater.inflate(out, length, out.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed payload");
+                }
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Malformed compressed payload: " + e.getMessage());
+        }
+
+        return Arrays.copyOf(out, length);
+    }
+}
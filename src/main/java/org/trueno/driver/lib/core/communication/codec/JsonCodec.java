@@ -0,0 +1,21 @@
+package org.trueno.driver.lib.core.communication.codec;
+
+/**
+ * Text JSON, left to the socket to serialize. This is the default codec.
+ */
+public class JsonCodec implements Codec {
+
+    public static final String NAME = "json";
+
+    public String getName() {
+        return NAME;
+    }
+
+    public Object encode(Object document) {
+        return document;
+    }
+
+    public Object decode(Object frame) {
+        return frame;
+    }
+}
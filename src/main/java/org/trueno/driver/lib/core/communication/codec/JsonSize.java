@@ -0,0 +1,58 @@
+package org.trueno.driver.lib.core.communication.codec;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Estimate of the size of a document once serialized, without serializing it: the
+ * lengths of its keys and strings plus a few bytes per value and separator. Escapes and
+ * number digits are approximated, which is close enough to weigh a message against a
+ * threshold. The walk stops as soon as the estimate reaches the given bound, so large
+ * documents are not visited in full.
+ */
+public final class JsonSize {
+
+    /* Bytes assumed for a number, a boolean or null */
+    private static final int SCALAR = 8;
+
+    private JsonSize() {
+    }
+
+    /* Estimated bytes of the document, or some value of at least bound once it is reached */
+    public static long estimate(Object document, long bound) {
+        return add(document, 0, bound);
+    }
+
+    private static long add(Object value, long size, long bound) {
+
+        if (size >= bound) {
+            return size;
+        }
+
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            size += 2;
+            Iterator keys = object.keys();
+            while (keys.hasNext() && size < bound) {
+                String key = (String) keys.next();
+                size = add(object.opt(key), size + key.length() + 4, bound);
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            size += 2;
+            for (int i = 0; i < array.length() && size < bound; i++) {
+                size = add(array.opt(i), size + 1, bound);
+            }
+        } else if (value instanceof String) {
+            size += ((String) value).length() + 2;
+        } else if (value instanceof byte[]) {
+            size += ((byte[]) value).length;
+        } else {
+            size += SCALAR;
+        }
+
+        return size;
+    }
+}
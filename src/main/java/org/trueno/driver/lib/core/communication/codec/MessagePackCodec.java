@@ -0,0 +1,498 @@
+package org.trueno.driver.lib.core.communication.codec;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * MessagePack encoding, emitted as binary socket frames. Map keys that belong to the fixed
+ * message and component envelope are written as their index in {@link #KEYS} instead of
+ * as strings; any other key is written as a string. Maps are decoded into JSONObjects and
+ * arrays into JSONArrays, so callers see the same documents as with {@link JsonCodec}.
+ */
+public class MessagePackCodec implements Codec {
+
+    public static final String NAME = "msgpack";
+
+    /* Key dictionary, append only: the index of a key is its wire representation */
+    public static final String[] KEYS = {
+            "_meta", "_payload", "_type", "_status", "_rid", "_delta",
+            "_internal", "modified", "fields",
+            "_property", "_id", "_graphid", "_attributes", "_computed",
+            "_batch", "_method",
+            "_page", "_size", "_cursor",
+            "_timeout",
+            "_compression",
+            "_from", "_to", "_label"
+    };
+
+    private static final HashMap<String, Integer> KEY_INDEX = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEY_INDEX.put(KEYS[i], i);
+        }
+    }
+
+    /* Encoding buffers are reused per thread, only the final frame is allocated */
+    private static final ThreadLocal<Packer> packers = new ThreadLocal<Packer>() {
+        @Override
+        protected Packer initialValue() {
+            return new Packer();
+        }
+    };
+
+    public String getName() {
+        return NAME;
+    }
+
+    public Object encode(Object document) throws IOException {
+        return this.pack(document);
+    }
+
+    public Object decode(Object frame) throws IOException {
+        return frame instanceof byte[] ? this.unpack((byte[]) frame) : frame;
+    }
+
+    /* Encodes a document into a new array */
+    public byte[] pack(Object document) throws IOException {
+
+        Packer packer = packers.get();
+        packer.pos = 0;
+        packer.packValue(document);
+
+        return Arrays.copyOf(packer.buf, packer.pos);
+    }
+
+    /* Decodes a document, maps become JSONObjects and arrays JSONArrays */
+    public Object unpack(byte[] bytes) throws IOException {
+
+        Unpacker unpacker = new Unpacker(bytes);
+        Object value = unpacker.unpackValue();
+        if (unpacker.pos != bytes.length) {
+            throw new IOException("Trailing bytes after MessagePack document");
+        }
+
+        return value == JSONObject.NULL ? null : value;
+    }
+
+    /*====================== ENCODING ======================*/
+
+    private static final class Packer {
+
+        byte[] buf = new byte[1024];
+        int pos;
+
+        void packValue(Object v) throws IOException {
+
+            if (v == null || v == JSONObject.NULL) {
+                this.writeByte(0xc0);
+            } else if (v instanceof String) {
+                this.packString((String) v);
+            } else if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+                this.packLong(((Number) v).longValue());
+            } else if (v instanceof Double) {
+                this.packDouble((Double) v);
+            } else if (v instanceof Float) {
+                this.writeByte(0xca);
+                this.writeInt(Float.floatToIntBits((Float) v));
+            } else if (v instanceof Boolean) {
+                this.writeByte((Boolean) v ? 0xc3 : 0xc2);
+            } else if (v instanceof JSONObject) {
+                this.packObject((JSONObject) v);
+            } else if (v instanceof JSONArray) {
+                JSONArray array = (JSONArray) v;
+                this.packHeader(array.length(), 0x90, 0xdc, 0xdd);
+                for (int i = 0; i < array.length(); i++) {
+                    this.packValue(array.opt(i));
+                }
+            } else if (v instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) v;
+                this.packHeader(map.size(), 0x80, 0xde, 0xdf);
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    this.packKey(String.valueOf(entry.getKey()));
+                    this.packValue(entry.getValue());
+                }
+            } else if (v instanceof Collection) {
+                Collection<?> collection = (Collection<?>) v;
+                this.packHeader(collection.size(), 0x90, 0xdc, 0xdd);
+                for (Object item : collection) {
+                    this.packValue(item);
+                }
+            } else if (v instanceof byte[]) {
+                byte[] bytes = (byte[]) v;
+                if (bytes.length < 0x100) {
+                    this.writeByte(0xc4);
+                    this.writeByte(bytes.length);
+                } else if (bytes.length < 0x10000) {
+                    this.writeByte(0xc5);
+                    this.writeShort(bytes.length);
+                } else {
+                    this.writeByte(0xc6);
+                    this.writeInt(bytes.length);
+                }
+                this.writeBytes(bytes, 0, bytes.length);
+            } else if (v instanceof Object[]) {
+                Object[] array = (Object[]) v;
+                this.packHeader(array.length, 0x90, 0xdc, 0xdd);
+                for (Object item : array) {
+                    this.packValue(item);
+                }
+            } else if (v instanceof BigInteger && ((BigInteger) v).bitLength() < 64) {
+                this.packLong(((BigInteger) v).longValue());
+            } else if (v instanceof Number) {
+                this.packDouble(((Number) v).doubleValue());
+            } else {
+                this.packString(v.toString());
+            }
+        }
+
+        void packObject(JSONObject object) throws IOException {
+
+            this.packHeader(object.length(), 0x80, 0xde, 0xdf);
+
+            Iterator keys = object.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                this.packKey(key);
+                this.packValue(object.opt(key));
+            }
+        }
+
+        void packKey(String key) throws IOException {
+
+            Integer index = KEY_INDEX.get(key);
+            if (index != null) {
+                this.writeByte(index);
+            } else {
+                this.packString(key);
+            }
+        }
+
+        void packLong(long v) {
+
+            if (v >= 0) {
+                if (v < 0x80) {
+                    this.writeByte((int) v);
+                } else if (v < 0x100) {
+                    this.writeByte(0xcc);
+                    this.writeByte((int) v);
+                } else if (v < 0x10000) {
+                    this.writeByte(0xcd);
+                    this.writeShort((int) v);
+                } else if (v < 0x100000000L) {
+                    this.writeByte(0xce);
+                    this.writeInt((int) v);
+                } else {
+                    this.writeByte(0xcf);
+                    this.writeLong(v);
+                }
+            } else {
+                if (v >= -32) {
+                    this.writeByte((int) v & 0xff);
+                } else if (v >= Byte.MIN_VALUE) {
+                    this.writeByte(0xd0);
+                    this.writeByte((int) v);
+                } else if (v >= Short.MIN_VALUE) {
+                    this.writeByte(0xd1);
+                    this.writeShort((int) v);
+                } else if (v >= Integer.MIN_VALUE) {
+                    this.writeByte(0xd2);
+                    this.writeInt((int) v);
+                } else {
+                    this.writeByte(0xd3);
+                    this.writeLong(v);
+                }
+            }
+        }
+
+        void packDouble(double v) {
+            this.writeByte(0xcb);
+            this.writeLong(Double.doubleToLongBits(v));
+        }
+
+        void packString(String s) {
+
+            int length = s.length();
+
+            /* ASCII fast path, written without an intermediate array */
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                if (s.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+
+            if (ascii) {
+                this.packStringHeader(length);
+                this.ensure(length);
+                for (int i = 0; i < length; i++) {
+                    this.buf[this.pos++] = (byte) s.charAt(i);
+                }
+            } else {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                this.packStringHeader(bytes.length);
+                this.writeBytes(bytes, 0, bytes.length);
+            }
+        }
+
+        void packStringHeader(int length) {
+
+            if (length < 32) {
+                this.writeByte(0xa0 | length);
+            } else if (length < 0x100) {
+                this.writeByte(0xd9);
+                this.writeByte(length);
+            } else if (length < 0x10000) {
+                this.writeByte(0xda);
+                this.writeShort(length);
+            } else {
+                this.writeByte(0xdb);
+                this.writeInt(length);
+            }
+        }
+
+        void packHeader(int size, int fix, int code16, int code32) {
+
+            if (size < 16) {
+                this.writeByte(fix | size);
+            } else if (size < 0x10000) {
+                this.writeByte(code16);
+                this.writeShort(size);
+            } else {
+                this.writeByte(code32);
+                this.writeInt(size);
+            }
+        }
+
+        void ensure(int n) {
+            if (this.pos + n > this.buf.length) {
+                this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.pos + n));
+            }
+        }
+
+        void writeByte(int b) {
+            this.ensure(1);
+            this.buf[this.pos++] = (byte) b;
+        }
+
+        void writeShort(int v) {
+            this.ensure(2);
+            this.buf[this.pos++] = (byte) (v >>> 8);
+            this.buf[this.pos++] = (byte) v;
+        }
+
+        void writeInt(int v) {
+            this.ensure(4);
+            this.buf[this.pos++] = (byte) (v >>> 24);
+            this.buf[this.pos++] = (byte) (v >>> 16);
+            this.buf[this.pos++] = (byte) (v >>> 8);
+            this.buf[this.pos++] = (byte) v;
+        }
+
+        void writeLong(long v) {
+            this.writeInt((int) (v >>> 32));
+            this.writeInt((int) v);
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            this.ensure(length);
+            System.arraycopy(bytes, offset, this.buf, this.pos, length);
+            this.pos += length;
+        }
+    }
+
+    /*====================== DECODING ======================*/
+
+    private static final class Unpacker {
+
+        final byte[] buf;
+        int pos;
+
+        Unpacker(byte[] buf) {
+            this.buf = buf;
+        }
+
+        Object unpackValue() throws IOException {
+
+            int b = this.readByte();
+
+            if (b <= 0x7f) {
+                return b;
+            }
+            if (b >= 0xe0) {
+                return (int) (byte) b;
+            }
+            if ((b & 0xf0) == 0x80) {
+                return this.unpackMap(b & 0x0f);
+            }
+            if ((b & 0xf0) == 0x90) {
+                return this.unpackArray(b & 0x0f);
+            }
+            if ((b & 0xe0) == 0xa0) {
+                return this.readString(b & 0x1f);
+            }
+
+            switch (b) {
+                case 0xc0:
+                    return JSONObject.NULL;
+                case 0xc2:
+                    return Boolean.FALSE;
+                case 0xc3:
+                    return Boolean.TRUE;
+                case 0xc4:
+                    return this.readBytes(this.readByte());
+                case 0xc5:
+                    return this.readBytes(this.readShort());
+                case 0xc6:
+                    return this.readBytes(this.readLength());
+                case 0xca:
+                    return (double) Float.intBitsToFloat(this.readInt());
+                case 0xcb:
+                    return Double.longBitsToDouble(this.readLong());
+                case 0xcc:
+                    return this.readByte();
+                case 0xcd:
+                    return this.readShort();
+                case 0xce:
+                    return narrow(this.readInt() & 0xffffffffL);
+                case 0xcf:
+                    return unsigned(this.readLong());
+                case 0xd0:
+                    return (int) (byte) this.readByte();
+                case 0xd1:
+                    return (int) (short) this.readShort();
+                case 0xd2:
+                    return this.readInt();
+                case 0xd3:
+                    return narrow(this.readLong());
+                case 0xd9:
+                    return this.readString(this.readByte());
+                case 0xda:
+                    return this.readString(this.readShort());
+                case 0xdb:
+                    return this.readString(this.readLength());
+                case 0xdc:
+                    return this.unpackArray(this.readShort());
+                case 0xdd:
+                    return this.unpackArray(this.readLength());
+                case 0xde:
+                    return this.unpackMap(this.readShort());
+                case 0xdf:
+                    return this.unpackMap(this.readLength());
+                default:
+                    throw new IOException("Unsupported MessagePack type 0x" + Integer.toHexString(b));
+            }
+        }
+
+        JSONObject unpackMap(int size) throws IOException {
+
+            JSONObject object = new JSONObject();
+            try {
+                for (int i = 0; i < size; i++) {
+                    String key = this.unpackKey();
+                    object.put(key, this.unpackValue());
+                }
+            } catch (JSONException e) {
+                throw new IOException(e.getMessage());
+            }
+
+            return object;
+        }
+
+        JSONArray unpackArray(int size) throws IOException {
+
+            JSONArray array = new JSONArray();
+            for (int i = 0; i < size; i++) {
+                array.put(this.unpackValue());
+            }
+
+            return array;
+        }
+
+        String unpackKey() throws IOException {
+
+            Object key = this.unpackValue();
+            if (key instanceof Integer) {
+                int index = (Integer) key;
+                if (index < 0 || index >= KEYS.length) {
+                    throw new IOException("Unknown key index " + index);
+                }
+                return KEYS[index];
+            }
+
+            return String.valueOf(key);
+        }
+
+        static Object narrow(long v) {
+            return v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE ? (Object) (int) v : (Object) v;
+        }
+
+        /* uint64 read into a long, values past Long.MAX_VALUE come back as a BigInteger */
+        static Object unsigned(long v) {
+            return v >= 0 ? narrow(v) : (Object) new BigInteger(Long.toUnsignedString(v));
+        }
+
+        void require(int n) throws IOException {
+            if (n < 0 || this.pos + n > this.buf.length) {
+                throw new IOException("Truncated MessagePack document");
+            }
+        }
+
+        int readByte() throws IOException {
+            this.require(1);
+            return this.buf[this.pos++] & 0xff;
+        }
+
+        int readShort() throws IOException {
+            this.require(2);
+            int v = ((this.buf[this.pos] & 0xff) << 8) | (this.buf[this.pos + 1] & 0xff);
+            this.pos += 2;
+            return v;
+        }
+
+        int readInt() throws IOException {
+            this.require(4);
+            int v = ((this.buf[this.pos] & 0xff) << 24) | ((this.buf[this.pos + 1] & 0xff) << 16)
+                    | ((this.buf[this.pos + 2] & 0xff) << 8) | (this.buf[this.pos + 3] & 0xff);
+            this.pos += 4;
+            return v;
+        }
+
+        int readLength() throws IOException {
+            int length = this.readInt();
+            if (length < 0) {
+                throw new IOException("MessagePack length out of range");
+            }
+            return length;
+        }
+
+        long readLong() throws IOException {
+            return ((long) this.readInt() << 32) | (this.readInt() & 0xffffffffL);
+        }
+
+        String readString(int length) throws IOException {
+            this.require(length);
+            String s = new String(this.buf, this.pos, length, StandardCharsets.UTF_8);
+            this.pos += length;
+            return s;
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            this.require(length);
+            byte[] bytes = Arrays.copyOfRange(this.buf, this.pos, this.pos + length);
+            this.pos += length;
+            return bytes;
+        }
+    }
+}
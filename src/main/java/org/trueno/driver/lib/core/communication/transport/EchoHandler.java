@@ -0,0 +1,55 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Request handler standing in for TruenoDB: every request is answered with a success
+ * reply echoing its request id and payload, and batch frames with one such reply per
+ * entry. Used with a {@link LoopbackTransport} to measure the driver on its own.
+ */
+public class EchoHandler implements RequestHandler {
+
+    /* Batch event and frame fields */
+    private static final String BATCH_EVENT = "ex_batch";
+    private static final String BATCH_FIELD = "_batch";
+    private static final String PAYLOAD_FIELD = "_payload";
+
+    public void handle(String event, Object request, Reply reply) {
+
+        try {
+            if (BATCH_EVENT.equals(event) && request instanceof JSONObject) {
+                JSONArray entries = ((JSONObject) request).optJSONArray(BATCH_FIELD);
+                JSONArray replies = new JSONArray();
+                for (int i = 0; entries != null && i < entries.length(); i++) {
+                    JSONObject entry = entries.optJSONObject(i);
+                    replies.put(this.reply(entry != null ? entry.optJSONObject(PAYLOAD_FIELD) : null));
+                }
+                reply.call(replies);
+            } else {
+                reply.call(this.reply(request instanceof JSONObject ? (JSONObject) request : null));
+            }
+        } catch (JSONException e) {
+            System.out.println(e);
+            reply.call();
+        }
+    }
+
+    /* Success reply for the message, echoing its request id and payload */
+    protected JSONObject reply(JSONObject msg) throws JSONException {
+
+        JSONObject meta = new JSONObject();
+        JSONObject request = msg != null ? msg.optJSONObject("_meta") : null;
+        if (request != null && request.has("_rid")) {
+            meta.put("_rid", request.get("_rid"));
+        }
+
+        JSONObject reply = new JSONObject();
+        reply.put("_meta", meta);
+        reply.put(PAYLOAD_FIELD, msg != null ? msg.opt(PAYLOAD_FIELD) : null);
+        reply.put("_status", "success");
+
+        return reply;
+    }
+}
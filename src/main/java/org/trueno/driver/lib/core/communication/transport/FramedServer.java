@@ -0,0 +1,312 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trueno.driver.lib.core.communication.codec.Codec;
+import org.trueno.driver.lib.core.communication.codec.DeflateCodec;
+import org.trueno.driver.lib.core.communication.codec.JsonCodec;
+import org.trueno.driver.lib.core.communication.codec.MessagePackCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Small reference server for {@link FramedTransport}, used to test and benchmark the
+ * framed protocol locally. One selector thread accepts connections, reads frames and
+ * hands decoded requests to a {@link RequestHandler}; replies may be sent from any
+ * thread and are queued for the selector thread to write.
+ */
+public class FramedServer {
+
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(FramedServer.class);
+
+    /* Private properties */
+    private final String host;
+    private final RequestHandler handler;
+    private final CopyOnWriteArrayList<Connection> connections;
+    private final ConcurrentLinkedQueue<Connection> ready;
+    private int port;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread loop;
+    private volatile boolean running;
+
+    /* Constructor with Parameters, a port of zero picks a free one */
+    public FramedServer(int port, RequestHandler handler) {
+        this("localhost", port, handler);
+    }
+
+    /* Constructor with Parameters */
+    public FramedServer(String host, int port, RequestHandler handler) {
+
+        /* Set parameters */
+        this.host = host;
+        this.port = port;
+        this.handler = handler;
+        this.connections = new CopyOnWriteArrayList<Connection>();
+        this.ready = new ConcurrentLinkedQueue<Connection>();
+    }
+
+    public synchronized void start() throws IOException {
+
+        if (this.running) {
+            return;
+        }
+
+        /* This object reference */
+        final FramedServer self = this;
+
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        this.server.socket().bind(new InetSocketAddress(this.host, this.port));
+        this.server.configureBlocking(false);
+        this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+        this.port = this.server.socket().getLocalPort();
+        this.running = true;
+
+        this.loop = new Thread(new Runnable() {
+            public void run() {
+                self.run();
+            }
+        }, "trueno-framed-server-" + this.port);
+        this.loop.setDaemon(true);
+        this.loop.start();
+    }
+
+    public synchronized void stop() {
+
+        if (!this.running) {
+            return;
+        }
+
+        this.running = false;
+        this.selector.wakeup();
+        try {
+            this.loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* Port the server listens on, known once started */
+    public int getPort() {
+        return this.port;
+    }
+
+    public int getConnections() {
+        return this.connections.size();
+    }
+
+    /* Pushes a document as an event to every connected client */
+    public void push(String event, Object document) throws IOException {
+
+        byte[] name = Frames.nameBytes(event);
+        for (Connection connection : this.connections) {
+            if (connection.codec != null) {
+                connection.write(Frames.frame(Frames.EVENT, 0, name, new Object[]{connection.codec.encode(document)}));
+            }
+        }
+    }
+
+    private void run() {
+
+        try {
+            while (this.running) {
+                this.selector.select();
+
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        this.accept();
+                        continue;
+                    }
+
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+
+                /* Replies queued by other threads */
+                Connection connection;
+                while ((connection = this.ready.poll()) != null) {
+                    try {
+                        connection.flush();
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Server stopped", e);
+        } finally {
+            for (Connection connection : new ArrayList<Connection>(this.connections)) {
+                connection.close();
+            }
+            try {
+                this.server.close();
+                this.selector.close();
+            } catch (IOException e) {
+                log.warn("Could not close the server", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+
+        SocketChannel channel = this.server.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+        this.connections.add(connection);
+    }
+
+    /* Codec of the name announced by a client */
+    private static Codec codecFor(String name) {
+        String suffix = "+" + DeflateCodec.ALGORITHM;
+        if (name != null && name.endsWith(suffix)) {
+            return new DeflateCodec(codecFor(name.substring(0, name.length() - suffix.length())));
+        }
+        return MessagePackCodec.NAME.equals(name) ? new MessagePackCodec() : new JsonCodec();
+    }
+
+    /* A client connection, read and flushed on the selector thread only */
+    private final class Connection {
+
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> out;
+        SelectionKey key;
+        ByteBuffer in;
+        volatile Codec codec;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.out = new ArrayDeque<ByteBuffer>();
+            this.in = ByteBuffer.allocate(64 * 1024);
+        }
+
+        void read() throws IOException {
+
+            if (this.channel.read(this.in) < 0) {
+                this.close();
+                return;
+            }
+
+            this.in.flip();
+            ByteBuffer frame;
+            while ((frame = Frames.next(this.in)) != null) {
+                this.handle(frame);
+            }
+            this.in.compact();
+            this.in = Frames.ensure(this.in, false);
+        }
+
+        void handle(ByteBuffer frame) throws IOException {
+
+            /* This object reference */
+            final Connection self = this;
+
+            byte kind = frame.get();
+
+            if (kind == Frames.HELLO) {
+                String name = Frames.getName(frame);
+                this.codec = codecFor(name);
+                this.write(Frames.frame(Frames.HELLO, 0, Frames.nameBytes(this.codec.getName()), null));
+            } else if (kind == Frames.REQUEST && this.codec != null) {
+                final long seq = frame.getLong();
+                String event = Frames.getName(frame);
+                Object[] args = Frames.getArgs(frame);
+
+                Object request = args.length > 0 ? this.codec.decode(args[0]) : null;
+                handler.handle(event, request, new Reply() {
+                    public void call(Object... replies) {
+                        try {
+                            for (int i = 0; i < replies.length; i++) {
+                                replies[i] = self.codec.encode(replies[i]);
+                            }
+                            self.write(Frames.frame(Frames.REPLY, seq, null, replies));
+                        } catch (IOException e) {
+                            log.warn("Could not encode the reply to {}", event, e);
+                        }
+                    }
+                });
+            }
+        }
+
+        /* Queues a frame, writing it right away when called on the selector thread */
+        void write(ByteBuffer frame) throws IOException {
+
+            synchronized (this.out) {
+                this.out.add(frame);
+            }
+
+            if (Thread.currentThread() == loop) {
+                this.flush();
+            } else {
+                ready.add(this);
+                selector.wakeup();
+            }
+        }
+
+        void flush() throws IOException {
+
+            if (!this.key.isValid()) {
+                return;
+            }
+
+            synchronized (this.out) {
+                ByteBuffer frame;
+                while ((frame = this.out.peek()) != null) {
+                    this.channel.write(frame);
+                    if (frame.hasRemaining()) {
+                        break;
+                    }
+                    this.out.poll();
+                }
+                /* Waiting for the socket to drain before writing the rest */
+                this.key.interestOps(this.out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void close() {
+
+            connections.remove(this);
+            this.key.cancel();
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close a connection", e);
+            }
+        }
+    }
+}
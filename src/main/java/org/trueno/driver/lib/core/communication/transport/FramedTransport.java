@@ -0,0 +1,241 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trueno.driver.lib.core.communication.codec.Codec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Length-prefixed binary protocol over a plain TCP connection, see {@link Frames} for the
+ * format. Compared to socket.io there is no handshake beyond one HELLO frame, no polling
+ * fallback and no text packet prefixes; binary codec frames are written as they are.
+ *
+ * The channel is used in blocking mode. A reader thread owns the connection and reads
+ * into a direct buffer; senders serialize on a lock and write from a reused direct
+ * buffer, so a request costs one write call. The lock is a ReentrantLock so virtual
+ * threads blocked on the write do not pin their carrier thread.
+ */
+public class FramedTransport implements Transport {
+
+    /* Logger */
+    private static final Logger log = LoggerFactory.getLogger(FramedTransport.class);
+
+    /* Initial size of the read and write buffers */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* Encoded event names, the set of events is small and fixed */
+    private static final ConcurrentHashMap<String, byte[]> names = new ConcurrentHashMap<String, byte[]>();
+
+    /* Private properties */
+    private final String host;
+    private final int port;
+    private final ConcurrentHashMap<Long, Reply> pending;
+    private final AtomicLong sequence;
+    private final ReentrantLock writeLock;
+    private final ByteBuffer writeBuffer;
+    private volatile TransportListener listener;
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+
+    /* Constructor with Parameters, the host may carry a scheme, e.g. http://localhost */
+    public FramedTransport(String host, int port) {
+
+        /* Set parameters */
+        int scheme = host.indexOf("://");
+        this.host = scheme >= 0 ? host.substring(scheme + 3) : host;
+        this.port = port;
+        this.pending = new ConcurrentHashMap<Long, Reply>();
+        this.sequence = new AtomicLong();
+        this.writeLock = new ReentrantLock();
+        this.writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /* Factory of framed transports */
+    public static TransportFactory factory() {
+        return new TransportFactory() {
+            public Transport create(String host, int port) {
+                return new FramedTransport(host, port);
+            }
+        };
+    }
+
+    public void open(final Codec codec, final TransportListener listener) {
+
+        /* This object reference */
+        final FramedTransport self = this;
+
+        this.closed = false;
+        this.listener = listener;
+
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                self.run(codec.getName(), listener);
+            }
+        }, "trueno-framed-" + this.host + ":" + this.port);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public void send(String event, Object frame, Reply reply) throws IOException {
+
+        SocketChannel channel = this.channel;
+        if (channel == null || this.closed) {
+            throw new IOException("Not connected");
+        }
+
+        long seq = this.sequence.incrementAndGet();
+        if (reply != null) {
+            this.pending.put(seq, reply);
+        }
+
+        byte[] types = new byte[1];
+        byte[][] args = Frames.encodeArgs(new Object[]{frame}, types);
+
+        try {
+            this.write(channel, Frames.REQUEST, seq, name(event), args, types);
+        } catch (IOException e) {
+            this.pending.remove(seq);
+            throw e;
+        }
+    }
+
+    public void close() {
+
+        this.closed = true;
+
+        SocketChannel channel = this.channel;
+        if (channel != null) {
+            try {
+                /* Wakes the reader up, which reports the close */
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close the connection", e);
+            }
+        }
+    }
+
+    /* Number of requests waiting for their acknowledgement */
+    public int getPending() {
+        return this.pending.size();
+    }
+
+    /* Reader thread: connects, exchanges HELLO frames, then dispatches incoming frames until the connection ends */
+    private void run(String codec, TransportListener listener) {
+
+        boolean opened = false;
+        Object error = null;
+        SocketChannel channel = null;
+
+        try {
+            channel = SocketChannel.open();
+            channel.socket().setTcpNoDelay(true);
+            channel.connect(new InetSocketAddress(this.host, this.port));
+            this.channel = channel;
+
+            if (this.closed) {
+                return;
+            }
+
+            this.write(channel, Frames.HELLO, 0, Frames.nameBytes(codec), null, null);
+
+            ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            int read;
+            while ((read = channel.read(in)) >= 0) {
+                listener.onTraffic(0, read);
+                in.flip();
+                ByteBuffer frame;
+                while ((frame = Frames.next(in)) != null) {
+                    opened = this.dispatch(frame, opened, listener);
+                }
+                in.compact();
+                in = Frames.ensure(in, true);
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Could not close the connection", e);
+                }
+            }
+            this.channel = null;
+            /* Acknowledgements of a closed connection never arrive */
+            this.pending.clear();
+
+            if (opened) {
+                listener.onClose();
+            } else if (!this.closed) {
+                listener.onError(error);
+            }
+        }
+    }
+
+    private boolean dispatch(ByteBuffer frame, boolean opened, TransportListener listener) throws IOException {
+
+        byte kind = frame.get();
+
+        if (kind == Frames.HELLO) {
+            if (!opened) {
+                listener.onOpen();
+            }
+            return true;
+        } else if (kind == Frames.REPLY) {
+            long seq = frame.getLong();
+            Object[] args = Frames.getArgs(frame);
+            Reply reply = this.pending.remove(seq);
+            if (reply != null) {
+                reply.call(args);
+            }
+        } else if (kind == Frames.EVENT) {
+            String event = Frames.getName(frame);
+            Object[] args = Frames.getArgs(frame);
+            listener.onEvent(event, args.length > 0 ? args[0] : null);
+        }
+
+        return opened;
+    }
+
+    /* Writes one frame from the shared direct buffer, or from a one-off heap buffer when it does not fit */
+    private void write(SocketChannel channel, byte kind, long seq, byte[] name, byte[][] args, byte[] types) throws IOException {
+
+        int size = 4 + Frames.frameSize(kind, name, args);
+
+        this.writeLock.lock();
+        try {
+            ByteBuffer buffer = size <= this.writeBuffer.capacity() ? this.writeBuffer : ByteBuffer.allocate(size);
+            buffer.clear();
+            Frames.putFrame(buffer, kind, seq, name, args, types);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+
+        TransportListener listener = this.listener;
+        if (listener != null) {
+            listener.onTraffic(size, 0);
+        }
+    }
+
+    private static byte[] name(String event) throws IOException {
+
+        byte[] name = names.get(event);
+        if (name == null) {
+            name = Frames.nameBytes(event);
+            names.putIfAbsent(event, name);
+        }
+
+        return name;
+    }
+}
@@ -0,0 +1,241 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Wire format shared by {@link FramedTransport} and {@link FramedServer}. Every frame is a
+ * four byte big-endian length followed by that many bytes:
+ *
+ *   HELLO   kind, codec name                      sent by each side once, client first
+ *   REQUEST kind, sequence, event name, arguments a request, acknowledged by a REPLY
+ *   REPLY   kind, sequence, arguments             the acknowledgement of a request
+ *   EVENT   kind, event name, arguments           pushed outside of an acknowledgement
+ *
+ * Event names are a length byte and UTF-8 bytes. Arguments are a count byte followed by,
+ * per argument, a type byte, a four byte length and the bytes: raw bytes for binary
+ * frames, UTF-8 JSON text for documents.
+ */
+final class Frames {
+
+    /* Frame kinds */
+    static final byte HELLO = 0;
+    static final byte REQUEST = 1;
+    static final byte REPLY = 2;
+    static final byte EVENT = 3;
+
+    /* Argument types */
+    static final byte NULL = 0;
+    static final byte BINARY = 1;
+    static final byte JSON = 2;
+
+    /* Largest frame accepted, guards against reading garbage as a length */
+    static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private Frames() {
+    }
+
+    /* Next complete frame of a buffer in read mode, or null when more bytes are needed */
+    static ByteBuffer next(ByteBuffer in) throws IOException {
+
+        if (in.remaining() < 4) {
+            return null;
+        }
+
+        int length = in.getInt(in.position());
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        if (in.remaining() < 4 + length) {
+            return null;
+        }
+
+        /* The frame shares the buffer, it must be consumed before the buffer is compacted */
+        in.position(in.position() + 4);
+        ByteBuffer frame = in.slice();
+        frame.limit(length);
+        in.position(in.position() + length);
+
+        return frame;
+    }
+
+    /* The compacted buffer, or a larger copy when it is full, so the pending frame fits */
+    static ByteBuffer ensure(ByteBuffer in, boolean direct) {
+
+        if (in.hasRemaining()) {
+            return in;
+        }
+
+        int needed = in.position() >= 4 ? 4 + in.getInt(0) : 0;
+        int capacity = Math.max(in.capacity() * 2, needed);
+        ByteBuffer larger = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        in.flip();
+        larger.put(in);
+
+        return larger;
+    }
+
+    /* Size of a frame, without its length prefix; the name and arguments may be null */
+    static int frameSize(byte kind, byte[] name, byte[][] args) {
+
+        int size = 1;
+        if (kind == REQUEST || kind == REPLY) {
+            size += 8;
+        }
+        if (name != null) {
+            size += 1 + name.length;
+        }
+        if (args != null) {
+            size += argsSize(args);
+        }
+
+        return size;
+    }
+
+    /* Writes a whole frame, length prefix included */
+    static void putFrame(ByteBuffer buffer, byte kind, long seq, byte[] name, byte[][] args, byte[] types) {
+
+        buffer.putInt(frameSize(kind, name, args));
+        buffer.put(kind);
+        if (kind == REQUEST || kind == REPLY) {
+            buffer.putLong(seq);
+        }
+        if (name != null) {
+            putName(buffer, name);
+        }
+        if (args != null) {
+            putArgs(buffer, args, types);
+        }
+    }
+
+    /* Heap buffer holding a whole frame, ready to be written */
+    static ByteBuffer frame(byte kind, long seq, byte[] name, Object[] args) throws IOException {
+
+        byte[] types = args != null ? new byte[args.length] : null;
+        byte[][] bytes = args != null ? encodeArgs(args, types) : null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + frameSize(kind, name, bytes));
+        putFrame(buffer, kind, seq, name, bytes, types);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /* Serialized arguments, with their types, ready to be copied into a frame */
+    static byte[][] encodeArgs(Object[] args, byte[] types) throws IOException {
+
+        byte[][] bytes = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null || arg == JSONObject.NULL) {
+                types[i] = NULL;
+                bytes[i] = new byte[0];
+            } else if (arg instanceof byte[]) {
+                types[i] = BINARY;
+                bytes[i] = (byte[]) arg;
+            } else {
+                types[i] = JSON;
+                bytes[i] = toText(arg).getBytes(UTF8);
+            }
+        }
+
+        return bytes;
+    }
+
+    /* Size of the arguments section */
+    static int argsSize(byte[][] args) {
+        int size = 1;
+        for (byte[] arg : args) {
+            size += 5 + arg.length;
+        }
+        return size;
+    }
+
+    static void putArgs(ByteBuffer buffer, byte[][] args, byte[] types) {
+        buffer.put((byte) args.length);
+        for (int i = 0; i < args.length; i++) {
+            buffer.put(types[i]);
+            buffer.putInt(args[i].length);
+            buffer.put(args[i]);
+        }
+    }
+
+    static Object[] getArgs(ByteBuffer buffer) throws IOException {
+
+        Object[] args = new Object[buffer.get() & 0xff];
+        for (int i = 0; i < args.length; i++) {
+            byte type = buffer.get();
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            if (type == BINARY) {
+                args[i] = bytes;
+            } else if (type == JSON) {
+                args[i] = fromText(new String(bytes, UTF8));
+            } else {
+                args[i] = null;
+            }
+        }
+
+        return args;
+    }
+
+    static void putName(ByteBuffer buffer, byte[] name) {
+        buffer.put((byte) name.length);
+        buffer.put(name);
+    }
+
+    static String getName(ByteBuffer buffer) {
+        byte[] name = new byte[buffer.get() & 0xff];
+        buffer.get(name);
+        return new String(name, UTF8);
+    }
+
+    static byte[] nameBytes(String name) throws IOException {
+
+        byte[] bytes = name.getBytes(UTF8);
+        if (bytes.length > 255) {
+            throw new IOException("Event name too long: " + name);
+        }
+        return bytes;
+    }
+
+    private static String toText(Object value) throws IOException {
+
+        try {
+            if (value instanceof JSONObject || value instanceof JSONArray) {
+                return value.toString();
+            } else if (value instanceof Map) {
+                return new JSONObject((Map) value).toString();
+            } else if (value instanceof Collection) {
+                return new JSONArray((Collection) value).toString();
+            } else if (value instanceof Number) {
+                return JSONObject.numberToString((Number) value);
+            } else if (value instanceof Boolean) {
+                return value.toString();
+            } else {
+                return JSONObject.quote(value.toString());
+            }
+        } catch (JSONException e) {
+            throw new IOException(e.toString());
+        }
+    }
+
+    private static Object fromText(String text) throws IOException {
+
+        try {
+            return new JSONTokener(text).nextValue();
+        } catch (JSONException e) {
+            throw new IOException(e.toString());
+        }
+    }
+}
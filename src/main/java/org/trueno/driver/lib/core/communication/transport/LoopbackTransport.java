@@ -0,0 +1,138 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+import org.trueno.driver.lib.core.communication.codec.Codec;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * In-process transport handing every frame to a {@link RequestHandler} in the same JVM,
+ * with no network involved. Frames still go through the connection's codec both ways,
+ * so the client pays the same encoding costs as over a socket.
+ *
+ * Requests are handled on the calling thread, or on the given executor to mimic a
+ * server answering asynchronously.
+ */
+public class LoopbackTransport implements Transport {
+
+    /* Private properties */
+    private final RequestHandler handler;
+    private final Executor executor;
+    private volatile Codec codec;
+    private volatile TransportListener listener;
+    private volatile boolean open;
+
+    /* Constructor with Parameters */
+    public LoopbackTransport(RequestHandler handler) {
+        this(handler, null);
+    }
+
+    /* Constructor with Parameters, a null executor handles requests on the calling thread */
+    public LoopbackTransport(RequestHandler handler, Executor executor) {
+
+        if (handler == null) {
+            throw new IllegalArgumentException("A request handler is required");
+        }
+
+        this.handler = handler;
+        this.executor = executor;
+    }
+
+    /* Factory of loopback transports sharing the handler, host and port are ignored */
+    public static TransportFactory factory(final RequestHandler handler) {
+        return factory(handler, null);
+    }
+
+    public static TransportFactory factory(final RequestHandler handler, final Executor executor) {
+        return new TransportFactory() {
+            public Transport create(String host, int port) {
+                return new LoopbackTransport(handler, executor);
+            }
+        };
+    }
+
+    public void open(Codec codec, final TransportListener listener) {
+
+        this.codec = codec;
+        this.listener = listener;
+        this.open = true;
+
+        this.dispatch(new Runnable() {
+            public void run() {
+                listener.onOpen();
+            }
+        });
+    }
+
+    public void send(final String event, final Object frame, final Reply reply) throws IOException {
+
+        if (!this.open) {
+            throw new IOException("Loopback transport is closed");
+        }
+
+        /* This object reference */
+        final LoopbackTransport self = this;
+
+        this.listener.onTraffic(SocketIOTransport.binarySize(frame), 0);
+
+        this.dispatch(new Runnable() {
+            public void run() {
+
+                Object request;
+                try {
+                    request = self.codec.decode(frame);
+                } catch (IOException e) {
+                    reply.call(e);
+                    return;
+                }
+
+                self.handler.handle(event, request, new Reply() {
+                    public void call(Object... args) {
+                        try {
+                            for (int i = 0; i < args.length; i++) {
+                                args[i] = self.codec.encode(args[i]);
+                            }
+                        } catch (IOException e) {
+                            reply.call(e);
+                            return;
+                        }
+                        self.listener.onTraffic(0, SocketIOTransport.binarySize(args));
+                        reply.call(args);
+                    }
+                });
+            }
+        });
+    }
+
+    /* Pushes a document to the client as an event, as a server would outside of an acknowledgement */
+    public void push(String event, Object document) throws IOException {
+
+        if (!this.open) {
+            throw new IOException("Loopback transport is closed");
+        }
+
+        this.listener.onEvent(event, this.codec.encode(document));
+    }
+
+    public void close() {
+
+        if (!this.open) {
+            return;
+        }
+
+        this.open = false;
+        this.listener.onClose();
+    }
+
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    private void dispatch(Runnable task) {
+        if (this.executor != null) {
+            this.executor.execute(task);
+        } else {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+/**
+ * Acknowledgement of a frame sent through a {@link Transport}. A transport that cannot
+ * deliver the acknowledgement, e.g. because a frame failed to encode or decode, calls it
+ * with the exception explaining why as its only argument.
+ */
+public interface Reply {
+
+    void call(Object... args);
+}
@@ -0,0 +1,11 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+/**
+ * Server side of an in-process transport. Requests are handed over decoded, as the
+ * JSONObject the client sent, and are answered by calling the reply with decoded
+ * documents.
+ */
+public interface RequestHandler {
+
+    void handle(String event, Object request, Reply reply);
+}
@@ -0,0 +1,154 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+import com.github.nkzawa.emitter.Emitter;
+import com.github.nkzawa.socketio.client.Ack;
+import com.github.nkzawa.socketio.client.IO;
+import com.github.nkzawa.socketio.client.Socket;
+import org.trueno.driver.lib.core.communication.RPC;
+import org.trueno.driver.lib.core.communication.codec.Codec;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Socket.io connection to a TruenoDB server. Every transport owns its socket, instead of
+ * multiplexing on a shared manager.
+ */
+public class SocketIOTransport implements Transport {
+
+    /* Private properties */
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private TransportListener listener;
+    private final Set<String> events;
+
+    /* Constructor with Parameters */
+    public SocketIOTransport(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.events = ConcurrentHashMap.newKeySet();
+    }
+
+    /* Factory of socket.io transports, the default one */
+    public static TransportFactory factory() {
+        return new TransportFactory() {
+            public Transport create(String host, int port) {
+                return new SocketIOTransport(host, port);
+            }
+        };
+    }
+
+    public synchronized void open(Codec codec, final TransportListener listener) {
+
+        this.listener = listener;
+
+        IO.Options options = new IO.Options();
+        options.forceNew = true;
+        /* Reconnecting is left to the RPC, which applies its own backoff */
+        options.reconnection = false;
+        /* Announcing the wire encoding */
+        options.query = "codec=" + codec.getName();
+
+        /* instantiating the socket */
+        try {
+            this.socket = IO.socket(this.host + ":" + this.port, options);
+        } catch (URISyntaxException e) {
+            listener.onError(e);
+            return;
+        }
+
+        this.socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            public void call(Object... args) {
+                listener.onOpen();
+            }
+        }).on(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
+            public void call(Object... args) {
+                listener.onClose();
+            }
+        }).on(Socket.EVENT_CONNECT_ERROR, new Emitter.Listener() {
+            public void call(Object... args) {
+                listener.onError(args.length > 0 ? args[0] : null);
+            }
+        }).on(RPC.REPLY_EVENT, new Emitter.Listener() {
+            public void call(Object... args) {
+                if (args.length > 0) {
+                    listener.onTraffic(0, binarySize(args));
+                    listener.onEvent(RPC.REPLY_EVENT, args[0]);
+                }
+            }
+        });
+
+        /* Events of the exposed procedures, socket.io only reports the events listened to */
+        for (String event : this.events) {
+            this.on(this.socket, event);
+        }
+
+        /* Connecting Socket */
+        this.socket.connect();
+    }
+
+    public void send(String event, Object frame, final Reply reply) throws IOException {
+
+        if (this.socket == null) {
+            throw new IOException("Socket is not open");
+        }
+
+        final TransportListener listener = this.listener;
+        listener.onTraffic(binarySize(frame), 0);
+
+        this.socket.emit(event, frame, new Ack() {
+            public void call(Object... objects) {
+                listener.onTraffic(0, binarySize(objects));
+                reply.call(objects);
+            }
+        });
+    }
+
+    public synchronized void listen(String event) {
+
+        Socket socket = this.socket;
+        if (this.events.add(event) && socket != null) {
+            this.on(socket, event);
+        }
+    }
+
+    private void on(Socket socket, final String event) {
+
+        final TransportListener listener = this.listener;
+        socket.on(event, new Emitter.Listener() {
+            public void call(Object... args) {
+                listener.onTraffic(0, binarySize(args));
+                listener.onEvent(event, args.length > 0 ? args[0] : null);
+            }
+        });
+    }
+
+    public void close() {
+        if (this.socket != null) {
+            this.socket.disconnect();
+        }
+    }
+
+    /* Size of the binary frames, text frames are serialized inside the socket and are not counted */
+    static long binarySize(Object frame) {
+        return frame instanceof byte[] ? ((byte[]) frame).length : 0;
+    }
+
+    static long binarySize(Object[] frames) {
+
+        long size = 0;
+        for (Object frame : frames) {
+            size += binarySize(frame);
+        }
+
+        return size;
+    }
+
+    /* The underlying socket, null until opened */
+    public Socket getSocket() {
+        return this.socket;
+    }
+}
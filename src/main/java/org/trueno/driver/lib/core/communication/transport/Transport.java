@@ -0,0 +1,27 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+import org.trueno.driver.lib.core.communication.codec.Codec;
+
+import java.io.IOException;
+
+/**
+ * Carries the encoded frames of an {@link org.trueno.driver.lib.core.communication.RPC}
+ * connection to a server and back. A transport is opened once, sends events with an
+ * optional acknowledgement, and reports connection changes and pushed events to its
+ * listener.
+ */
+public interface Transport {
+
+    /* Opens the connection, announcing the codec the frames are encoded with */
+    void open(Codec codec, TransportListener listener);
+
+    /* Sends an encoded frame, the reply is called with the encoded acknowledgement */
+    void send(String event, Object frame, Reply reply) throws IOException;
+
+    /* Closes the connection */
+    void close();
+
+    /* Reports the event to the listener when pushed; transports that report every event need not track them */
+    default void listen(String event) {
+    }
+}
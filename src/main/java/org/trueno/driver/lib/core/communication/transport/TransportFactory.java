@@ -0,0 +1,9 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+/**
+ * Creates the transport of each connection of a pool.
+ */
+public interface TransportFactory {
+
+    Transport create(String host, int port);
+}
@@ -0,0 +1,21 @@
+package org.trueno.driver.lib.core.communication.transport;
+
+/**
+ * Receives the connection changes of a {@link Transport} and the events pushed by the
+ * server outside of an acknowledgement.
+ */
+public interface TransportListener {
+
+    void onOpen();
+
+    void onClose();
+
+    /* The connection could not be opened */
+    void onError(Object reason);
+
+    /* An encoded frame pushed by the server */
+    void onEvent(String event, Object frame);
+
+    /* Bytes written and read, as far as the transport can tell */
+    void onTraffic(long sent, long received);
+}
@@ -0,0 +1,199 @@
+package org.trueno.driver.lib.core.data_structures;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Attribute storage of a {@link Component}: a {@link Shape} holding the keys, shared with
+ * every store that has the same keys, and parallel arrays of value kinds and values.
+ * Integer, long and double values are kept unboxed in a long array; any other value is
+ * kept as a reference.
+ */
+final class AttributeStore {
+
+    /* Value kinds */
+    static final byte REF = 0;
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+
+    /* Private properties */
+    private Shape shape;
+    private byte[] kinds;
+    private long[] bits;
+    private Object[] refs;
+
+    AttributeStore(int capacity) {
+        this.shape = Shape.EMPTY;
+        this.kinds = new byte[Math.max(capacity, 2)];
+    }
+
+    int size() {
+        return this.shape.size();
+    }
+
+    String keyAt(int i) {
+        return this.shape.keyAt(i);
+    }
+
+    int indexOf(String key) {
+        return this.shape.indexOf(key);
+    }
+
+    Shape getShape() {
+        return this.shape;
+    }
+
+    /* Value at the given slot, boxing primitives */
+    Object get(int i) {
+
+        switch (this.kinds[i]) {
+            case INT:
+                return (int) this.bits[i];
+            case LONG:
+                return this.bits[i];
+            case DOUBLE:
+                return Double.longBitsToDouble(this.bits[i]);
+            default:
+                return this.refs[i];
+        }
+    }
+
+    Object get(String key) {
+        int i = this.indexOf(key);
+        return i >= 0 ? this.get(i) : null;
+    }
+
+    byte kindAt(int i) {
+        return this.kinds[i];
+    }
+
+    long getLong(int i) {
+
+        switch (this.kinds[i]) {
+            case INT:
+            case LONG:
+                return this.bits[i];
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(this.bits[i]);
+            default:
+                return ((Number) this.refs[i]).longValue();
+        }
+    }
+
+    double getDouble(int i) {
+
+        switch (this.kinds[i]) {
+            case INT:
+            case LONG:
+                return this.bits[i];
+            case DOUBLE:
+                return Double.longBitsToDouble(this.bits[i]);
+            default:
+                return ((Number) this.refs[i]).doubleValue();
+        }
+    }
+
+    /* Stores the value, unboxing integers, longs and doubles */
+    void set(String key, Object value) {
+
+        if (value instanceof Integer) {
+            this.setBits(key, INT, (Integer) value);
+        } else if (value instanceof Long) {
+            this.setBits(key, LONG, (Long) value);
+        } else if (value instanceof Double) {
+            this.setBits(key, DOUBLE, Double.doubleToRawLongBits((Double) value));
+        } else {
+            int i = this.slot(key);
+            if (this.refs == null) {
+                this.refs = new Object[this.kinds.length];
+            }
+            this.kinds[i] = REF;
+            this.refs[i] = value;
+        }
+    }
+
+    void setBits(String key, byte kind, long value) {
+
+        int i = this.slot(key);
+        if (this.bits == null) {
+            this.bits = new long[this.kinds.length];
+        }
+        this.kinds[i] = kind;
+        this.bits[i] = value;
+        if (this.refs != null) {
+            this.refs[i] = null;
+        }
+    }
+
+    boolean remove(String key) {
+
+        int i = this.indexOf(key);
+        if (i < 0) {
+            return false;
+        }
+
+        /* Shifting the following slots down keeps the order of the remaining keys */
+        int size = this.size();
+        int tail = size - i - 1;
+        System.arraycopy(this.kinds, i + 1, this.kinds, i, tail);
+        if (this.bits != null) {
+            System.arraycopy(this.bits, i + 1, this.bits, i, tail);
+        }
+        if (this.refs != null) {
+            System.arraycopy(this.refs, i + 1, this.refs, i, tail);
+            this.refs[size - 1] = null;
+        }
+        this.shape = this.shape.without(key);
+
+        return true;
+    }
+
+    JSONObject toJSON() throws JSONException {
+
+        JSONObject json = new JSONObject();
+        for (int i = 0; i < this.size(); i++) {
+            json.put(this.shape.keyAt(i), this.get(i));
+        }
+
+        return json;
+    }
+
+    HashMap toMap() {
+
+        HashMap map = new HashMap(this.size() * 2);
+        for (int i = 0; i < this.size(); i++) {
+            map.put(this.shape.keyAt(i), this.get(i));
+        }
+
+        return map;
+    }
+
+    /* Slot of the key, moving to the next shape if missing */
+    private int slot(String key) {
+
+        int i = this.indexOf(key);
+        if (i >= 0) {
+            return i;
+        }
+
+        i = this.size();
+        if (i == this.kinds.length) {
+            int capacity = this.kinds.length * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            if (this.bits != null) {
+                this.bits = Arrays.copyOf(this.bits, capacity);
+            }
+            if (this.refs != null) {
+                this.refs = Arrays.copyOf(this.refs, capacity);
+            }
+        }
+
+        this.shape = this.shape.with(key);
+
+        return i;
+    }
+}
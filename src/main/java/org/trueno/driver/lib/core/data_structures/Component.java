@@ -4,146 +4,124 @@ import javafx.util.Pair;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Created by victor on 7/19/16.
+ *
+ * Identifiers are plain fields and every collection is created on first write, so an
+ * empty component holds no maps at all. Attributes live in an {@link AttributeStore},
+ * which keeps numeric values unboxed and shares its key layout with every component
+ * that has the same attribute keys. The JSON document exchanged with the server is
+ * built by {@link #toJSON()} and read back by {@link #load(JSONObject)}.
  */
-public class Component extends JSONObject {
+public class Component {
 
+    /* Identifiers */
+    private String id;
+    private String graphid;
 
-    public Component() {
-
-        try {
-            /* Setting internal fields */
-            this.put("_internal", new HashMap());
-            ((JSONObject) this.get("_internal")).put("modified", new HashMap());
-            ((JSONObject) this.get("_internal")).put("fields", new HashMap());
+    /* Collections, created on first write */
+    private AttributeStore attributes;
+    private HashMap<String, HashMap> computed;
+    private HashMap meta;
+    private HashMap fields;
 
-            /* Setting property fields */
-            this.put("_property", new HashMap());
-            ((JSONObject) this.get("_property")).put("_id", "");
-            ((JSONObject) this.get("_property")).put("_graphid", "");
-
-            /* Set the attributes, computed, and meta fields */
-            ((JSONObject) this.get("_property")).put("_attributes", new HashMap());
-            ((JSONObject) this.get("_property")).put("_computed", new HashMap<String, HashMap>());
-            ((JSONObject) this.get("_property")).put("_meta", new HashMap());
+    /* Modified state, section -> version of its latest change, or section -> key -> version */
+    private HashMap<String, Long> dirtySections;
+    private HashMap<String, HashMap<String, Long>> dirtyKeys;
+    private long version;
 
+    public Component() {
 
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+        /* Setting property fields */
+        this.id = "";
+        this.graphid = "";
     }
 
     /* Getters */
     public String getGraphid() {
-        try {
-            return (String) ((JSONObject) this.get("_property")).get("_graphid");
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
-        return null;
+        return this.graphid;
     }
 
     public String getId() {
-        try {
-            return (String) ((JSONObject) this.get("_property")).get("_id");
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
-        return null;
+        return this.id;
     }
 
-    public HashMap getAttributes() {
-
-        try {
-            return (HashMap) ((JSONObject) this.get("_property")).get("_attributes");
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
-        return null;
-
+    /* Read-only views of the sections, following later changes; writes go through the setters so they are tracked */
+    public Map getAttributes() {
+        return new AttributeView();
     }
 
-    public HashMap getComputed() {
-        try {
-            return (HashMap) ((JSONObject) this.get("_property")).get("_computed");
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
-        return null;
+    public Map getComputed() {
+        return new SectionView("_computed");
     }
 
-    public HashMap getMeta() {
-        try {
-            return (HashMap) ((JSONObject) this.get("_property")).get("_meta");
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
-        return null;
+    public Map getMeta() {
+        return new SectionView("_meta");
     }
 
     public HashMap getFields() {
-        try {
-            return (HashMap) ((JSONObject) this.get("_internal")).get("fields");
-        } catch (JSONException e) {
-            System.out.println(e);
+        if (this.fields == null) {
+            this.fields = new HashMap();
         }
-        return null;
+        return this.fields;
     }
 
     /* Setters */
     public void setGraphid(String graphid) {
-        try {
-           ((JSONObject) this.get("_property")).put("_graphid",graphid);
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+        this.graphid = graphid;
     }
 
     public void setId(String id) {
-        try {
-            ((JSONObject) this.get("_property")).put("_id", id);
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+        this.id = id;
     }
 
     public void setAttributes(HashMap attributes) {
 
-        try {
-           ((JSONObject) this.get("_property")).put("_attributes",attributes);
-        } catch (JSONException e) {
-            System.out.println(e);
+        this.mark("_attributes");
+        /* Copying into the compact store */
+        this.attributes = null;
+        if (attributes != null && !attributes.isEmpty()) {
+            this.attributes = new AttributeStore(attributes.size());
+            for (Object entry : attributes.entrySet()) {
+                Map.Entry e = (Map.Entry) entry;
+                this.attributes.set(String.valueOf(e.getKey()), e.getValue());
+            }
         }
     }
 
     public void getComputed(HashMap computed) {
-        try {
-            ((JSONObject) this.get("_property")).put("_computed",computed);
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+        this.mark("_computed");
+        this.computed = computed;
     }
 
     public void setMeta(HashMap meta) {
-        try {
-           ((JSONObject) this.get("_property")).put("_meta", meta);
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+        this.mark("_meta");
+        this.meta = meta;
     }
 
     public void setFields(HashMap fields) {
-        try {
-            ((JSONObject) this.get("_internal")).put("fields",fields);
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+        this.fields = fields;
+    }
+
+    /* Maximum number of attribute layouts shared between components, zero disables sharing */
+    public static void setSharedShapeLimit(int limit) {
+        Shape.setLimit(limit);
+    }
+
+    /* Number of attribute layouts shared so far */
+    public static int getSharedShapes() {
+        return Shape.getInterned();
     }
 
      /*====================== ATTRIBUTES ======================*/
@@ -151,37 +129,62 @@ public class Component extends JSONObject {
     /* Attributes collection methods */
     public void setAttribute(String attr, Object value) {
 
-        try {
-            this.mark("_attributes");
-            /* Adding the attribute */
-            ((JSONObject)((JSONObject) this.get("_property")).get("_attributes")).put(attr,value);
+        this.mark("_attributes", attr);
+        /* Adding the attribute */
+        this.attributeStore().set(attr, value);
+    }
 
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+    public void setAttribute(String attr, int value) {
+
+        this.mark("_attributes", attr);
+        /* Adding the attribute, unboxed */
+        this.attributeStore().setBits(attr, AttributeStore.INT, value);
+    }
+
+    public void setAttribute(String attr, long value) {
+
+        this.mark("_attributes", attr);
+        /* Adding the attribute, unboxed */
+        this.attributeStore().setBits(attr, AttributeStore.LONG, value);
+    }
+
+    public void setAttribute(String attr, double value) {
+
+        this.mark("_attributes", attr);
+        /* Adding the attribute, unboxed */
+        this.attributeStore().setBits(attr, AttributeStore.DOUBLE, Double.doubleToRawLongBits(value));
     }
 
     public Object getAttribute(String attr) {
 
-        try {
-            /* returning the attribute */
-           return  ((HashMap)((JSONObject) this.get("_property")).get("_attributes")).get(attr);
+        /* returning the attribute */
+        return this.attributes != null ? this.attributes.get(attr) : null;
+    }
 
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
+    /* Numeric attribute without boxing, or the default if missing */
+    public long getLongAttribute(String attr, long defaultValue) {
 
-        return null;
+        int i = this.attributes != null ? this.attributes.indexOf(attr) : -1;
+        return i >= 0 ? this.attributes.getLong(i) : defaultValue;
     }
 
-    public void removeAttribute(String attr) {
+    /* Numeric attribute without boxing, or the default if missing */
+    public double getDoubleAttribute(String attr, double defaultValue) {
 
-        try {
-            /* Removing the attribute */
-            ((HashMap)((JSONObject) this.get("_property")).get("_attributes")).remove(attr);
+        int i = this.attributes != null ? this.attributes.indexOf(attr) : -1;
+        return i >= 0 ? this.attributes.getDouble(i) : defaultValue;
+    }
 
-        } catch (JSONException e) {
-            System.out.println(e);
+    public boolean hasAttribute(String attr) {
+        return this.attributes != null && this.attributes.indexOf(attr) >= 0;
+    }
+
+    public void removeAttribute(String attr) {
+
+        this.mark("_attributes", attr);
+        /* Removing the attribute */
+        if (this.attributes != null) {
+            this.attributes.remove(attr);
         }
     }
 
@@ -192,13 +195,13 @@ public class Component extends JSONObject {
 
         try {
             /* Marking as modified */
-            this.mark("_computed");
+            this.mark("_computed", algo);
             /* if algo attribute exist */
-            if(((HashMap)((JSONObject) this.get("_property")).get("_computed")).containsKey(algo)){
+            if(this.computed != null && this.computed.containsKey(algo)){
                 throw new Exception("Provided algorithm(" + algo + ") is already present");
             }
             /* adding the computed algorithm */
-            ((HashMap)((JSONObject) this.get("_property")).get("_computed")).put(algo,new HashMap());
+            this.computedMap().put(algo, new HashMap());
 
         } catch (Exception e) {
             System.out.println(e);
@@ -207,26 +210,21 @@ public class Component extends JSONObject {
 
     public HashMap getComputedAlgorithm(String algo) {
 
-        try {
-            /* returning the attribute */
-            return  (HashMap)((HashMap)((JSONObject) this.get("_property")).get("_computed")).get(algo);
-
-        } catch (JSONException e) {
-            System.out.println(e);
-        }
-
-        return null;
+        /* returning the attribute */
+        return this.computed != null ? this.computed.get(algo) : null;
     }
 
     public void removeComputedAlgorithm(String algo) {
 
         try {
             /* if algo attribute exist */
-            if(!((HashMap)((JSONObject) this.get("_property")).get("_computed")).containsKey(algo)){
+            if(this.computed == null || !this.computed.containsKey(algo)){
                 throw new Exception("Provided algorithm(" + algo + ") is not present");
             }
+            /* Marking as modified */
+            this.mark("_computed", algo);
             /* adding the computed algorithm */
-            ((HashMap)((JSONObject) this.get("_property")).get("_computed")).remove(algo);
+            this.computed.remove(algo);
 
         } catch (Exception e) {
             System.out.println(e);
@@ -236,32 +234,29 @@ public class Component extends JSONObject {
     /* Attributes collection methods */
     public void setComputedAttribute(String algo, String attr, Object value) {
 
-        try {
-            /* Marking as modified */
-            this.mark("_computed");
-            /* if algo attribute exist */
-            if(!((HashMap)((JSONObject) this.get("_property")).get("_computed")).containsKey(algo)){
-                /* adding the computed algorithm */
-                ((HashMap)((JSONObject) this.get("_property")).get("_computed")).put(algo,new HashMap());
-            }
-            /* Setting attribute */
-            ((HashMap)((HashMap)((JSONObject) this.get("_property")).get("_computed")).get(algo)).put(attr,value);
-
-        } catch (Exception e) {
-            System.out.println(e);
+        /* Marking as modified */
+        this.mark("_computed", algo);
+        /* if algo attribute exist */
+        HashMap values = this.computedMap().get(algo);
+        if (values == null) {
+            /* adding the computed algorithm */
+            values = new HashMap();
+            this.computed.put(algo, values);
         }
+        /* Setting attribute */
+        values.put(attr, value);
     }
 
-    public HashMap getComputedAttribute(String algo, String attr) {
+    public Object getComputedAttribute(String algo, String attr) {
 
         try {
             /* if algo attribute exist */
-            if(!((HashMap)((JSONObject) this.get("_property")).get("_computed")).containsKey(algo)){
+            if(this.computed == null || !this.computed.containsKey(algo)){
                 throw new Exception("Provided algorithm(" + algo + ") is not present");
             }
 
             /* returning algorithm's computed attribute */
-            ((HashMap)((HashMap)((JSONObject) this.get("_property")).get("_computed")).get(algo)).get(attr);
+            return this.computed.get(algo).get(attr);
 
         } catch (Exception e) {
             System.out.println(e);
@@ -274,11 +269,13 @@ public class Component extends JSONObject {
 
         try {
             /* if algo attribute exist */
-            if(!((HashMap)((JSONObject) this.get("_property")).get("_computed")).containsKey(algo)){
+            if(this.computed == null || !this.computed.containsKey(algo)){
                 throw new Exception("Provided algorithm(" + algo + ") is not present");
             }
+            /* Marking as modified */
+            this.mark("_computed", algo);
             /* removing algorithm's computed attribute */
-            ((HashMap)((HashMap)((JSONObject) this.get("_property")).get("_computed")).get(algo)).remove(attr);
+            this.computed.get(algo).remove(attr);
 
         } catch (Exception e) {
             System.out.println(e);
@@ -290,21 +287,46 @@ public class Component extends JSONObject {
     /* Attributes collection methods */
     public void setMetaAttribute(String attr, Object value) {
 
-        try {
-            this.mark("_meta");
-            /* Adding the attribute */
-            ((HashMap)((JSONObject) this.get("_property")).get("_meta")).put(attr,value);
+        this.mark("_meta", attr);
+        /* Adding the attribute */
+        this.metaMap().put(attr, value);
+    }
 
-        } catch (JSONException e) {
-            System.out.println(e);
+    public Object getMetaAttribute(String attr) {
+
+        /* returning the attribute */
+        return this.meta != null ? this.meta.get(attr) : null;
+    }
+
+    public void removeMetaAttribute(String attr) {
+
+        this.mark("_meta", attr);
+        /* Removing the attribute */
+        if (this.meta != null) {
+            this.meta.remove(attr);
         }
     }
 
-    public Object getMetaAttribute(String attr) {
+    /*====================== SERIALIZATION ======================*/
+
+    /* Document sent to the server */
+    public JSONObject toJSON() {
 
         try {
-            /* returning the attribute */
-            return  ((HashMap)((JSONObject) this.get("_property")).get("_meta")).get(attr);
+            JSONObject property = this.identity();
+            property.put("_attributes", this.section("_attributes"));
+            property.put("_computed", this.section("_computed"));
+            property.put("_meta", this.section("_meta"));
+
+            JSONObject json = new JSONObject();
+            json.put("_property", property);
+            if (this.fields != null && !this.fields.isEmpty()) {
+                JSONObject internal = new JSONObject();
+                internal.put("fields", new JSONObject(new HashMap(this.fields)));
+                json.put("_internal", internal);
+            }
+
+            return json;
 
         } catch (JSONException e) {
             System.out.println(e);
@@ -313,58 +335,204 @@ public class Component extends JSONObject {
         return null;
     }
 
-    public void removeMetaAttribute(String attr) {
+    /* Replaces the content of the component with a document received from the server, either
+       the whole component or its "_property" object. The component is left unmodified. */
+    public void load(JSONObject json) {
 
-        try {
-            /* Removing the attribute */
-            ((HashMap)((JSONObject) this.get("_property")).get("_meta")).remove(attr);
+        if (json == null) {
+            return;
+        }
 
-        } catch (JSONException e) {
-            System.out.println(e);
+        JSONObject property = json.has("_property") ? json.optJSONObject("_property") : json;
+        if (property == null) {
+            return;
+        }
+
+        this.loadIdentity(property);
+
+        /* Attributes */
+        this.attributes = null;
+        JSONObject attrs = property.optJSONObject("_attributes");
+        if (attrs != null && attrs.length() > 0) {
+            this.attributes = new AttributeStore(attrs.length());
+            Iterator keys = attrs.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                this.attributes.set(key, attrs.opt(key));
+            }
         }
+
+        /* Computed values, one map per algorithm */
+        this.computed = null;
+        JSONObject comp = property.optJSONObject("_computed");
+        if (comp != null && comp.length() > 0) {
+            this.computed = new HashMap<String, HashMap>();
+            Iterator algos = comp.keys();
+            while (algos.hasNext()) {
+                String algo = (String) algos.next();
+                JSONObject values = comp.optJSONObject(algo);
+                this.computed.put(algo, values != null ? this.toMap(values, values.keys()) : new HashMap());
+            }
+        }
+
+        /* Meta */
+        this.meta = null;
+        JSONObject m = property.optJSONObject("_meta");
+        if (m != null && m.length() > 0) {
+            this.meta = this.toMap(m, m.keys());
+        }
+
+        this.clear();
+    }
+
+    @Override
+    public String toString() {
+        JSONObject json = this.toJSON();
+        return json != null ? json.toString() : "";
     }
 
     /*====================== OPERATIONS ======================*/
 
-    public void clear() {
-        try {
-            ((JSONObject) this.get("_internal")).put("modified", new HashMap());
-        } catch (JSONException e) {
-            System.out.println(e);
+    public synchronized void clear() {
+        this.dirtySections = null;
+        this.dirtyKeys = null;
+    }
+
+    /* Forgets the changes made up to the given version, as returned by getVersion() */
+    public synchronized void clear(long version) {
+
+        /* Changes made after the version was taken are kept */
+        if (this.dirtySections != null) {
+            Iterator<Map.Entry<String, Long>> it = this.dirtySections.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue() <= version) {
+                    it.remove();
+                }
+            }
+        }
+
+        if (this.dirtyKeys != null) {
+            Iterator<Map.Entry<String, HashMap<String, Long>>> sections = this.dirtyKeys.entrySet().iterator();
+            while (sections.hasNext()) {
+                HashMap<String, Long> keys = sections.next().getValue();
+                Iterator<Map.Entry<String, Long>> k = keys.entrySet().iterator();
+                while (k.hasNext()) {
+                    if (k.next().getValue() <= version) {
+                        k.remove();
+                    }
+                }
+                if (keys.isEmpty()) {
+                    sections.remove();
+                }
+            }
+        }
+
+        if (!this.isModified()) {
+            this.clear();
         }
     }
 
-    public void mark(String id){
-        try {
-            ((JSONObject)((JSONObject) this.get("_internal")).get("modified")).put(id,0);
-        } catch (JSONException e) {
-            System.out.println(e);
+    /* Marks a whole section as modified */
+    public synchronized void mark(String id){
+
+        if (this.dirtySections == null) {
+            this.dirtySections = new HashMap<String, Long>();
+        }
+        this.dirtySections.put(id, ++this.version);
+        if (this.dirtyKeys != null) {
+            this.dirtyKeys.remove(id);
         }
     }
 
-    public void setMapping(String id, HashMap map) {
+    /* Marks a single key of a section as modified */
+    public synchronized void mark(String id, String key){
+
+        if (this.dirtySections != null && this.dirtySections.containsKey(id)) {
+            /* The whole section is sent anyway */
+            this.dirtySections.put(id, ++this.version);
+            return;
+        }
+        if (this.dirtyKeys == null) {
+            this.dirtyKeys = new HashMap<String, HashMap<String, Long>>();
+        }
+        HashMap<String, Long> keys = this.dirtyKeys.get(id);
+        if (keys == null) {
+            keys = new HashMap<String, Long>();
+            this.dirtyKeys.put(id, keys);
+        }
+        keys.put(key, ++this.version);
+    }
+
+    /* Version of the latest change, to be passed to clear(long) once the change is stored */
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    /* Sections modified as a whole, e.g. by setAttributes, which delta() sends in full */
+    public synchronized Set<String> getReplacedSections() {
+        return this.dirtySections != null ? new HashSet<String>(this.dirtySections.keySet()) : new HashSet<String>();
+    }
+
+    public synchronized boolean isModified() {
+        return (this.dirtySections != null && !this.dirtySections.isEmpty())
+                || (this.dirtyKeys != null && !this.dirtyKeys.isEmpty());
+    }
+
+    /* Properties to send on update: the identifiers plus the modified sections, or only their
+       modified keys, with removed keys set to null. Everything is sent if nothing is marked. */
+    public synchronized JSONObject delta() {
+
+        if (!this.isModified()) {
+            return this.toJSON();
+        }
+
         try {
-            ((HashMap)((JSONObject) this.get("_internal")).get("fields")).put(id,map);
+            JSONObject changed = this.identity();
+
+            if (this.dirtySections != null) {
+                for (String section : this.dirtySections.keySet()) {
+                    changed.put(section, this.section(section));
+                }
+            }
+
+            if (this.dirtyKeys != null) {
+                for (Map.Entry<String, HashMap<String, Long>> entry : this.dirtyKeys.entrySet()) {
+                    changed.put(entry.getKey(), this.changedKeys(entry.getKey(), entry.getValue().keySet()));
+                }
+            }
+
+            JSONObject delta = new JSONObject();
+            delta.put("_property", changed);
+            return delta;
+
         } catch (JSONException e) {
             System.out.println(e);
         }
+
+        return null;
     }
 
+    public void setMapping(String id, HashMap map) {
+        this.getFields().put(id, map);
+    }
 
-    public ArrayList<Pair<String,HashMap>> flush() {
+    /* Returns the modified sections with their modified keys, and clears the modified state */
+    public synchronized ArrayList<Pair<String,HashMap>> flush() {
 
         try {
-            HashMap modified = ((HashMap)((JSONObject) this.get("_internal")).get("modified"));
             ArrayList<Pair<String, HashMap>> pairs =  new ArrayList<Pair<String, HashMap>>();
 
-            Iterator it = modified.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry pair = (Map.Entry)it.next();
-                String key = (String)pair.getKey();
-                HashMap x = (HashMap)pair.getValue();
+            if (this.dirtySections != null) {
+                for (String section : this.dirtySections.keySet()) {
+                    JSONObject values = this.section(section);
+                    pairs.add(new Pair<String, HashMap>(section, this.toMap(values, values.keys())));
+                }
+            }
 
-                if(x != null){
-                    pairs.add(new Pair<String, HashMap>(key,x));
+            if (this.dirtyKeys != null) {
+                for (Map.Entry<String, HashMap<String, Long>> entry : this.dirtyKeys.entrySet()) {
+                    JSONObject values = this.changedKeys(entry.getKey(), entry.getValue().keySet());
+                    pairs.add(new Pair<String, HashMap>(entry.getKey(), this.toMap(values, values.keys())));
                 }
             }
 
@@ -378,4 +546,184 @@ public class Component extends JSONObject {
         return null;
     }
 
+    /* Property object holding the identifiers, subclasses add their own fields */
+    protected JSONObject identity() throws JSONException {
+
+        JSONObject property = new JSONObject();
+        property.put("_id", this.id);
+        property.put("_graphid", this.graphid);
+
+        return property;
+    }
+
+    /* Reads the identifiers back, subclasses read their own fields */
+    protected void loadIdentity(JSONObject property) {
+        this.id = property.optString("_id", "");
+        this.graphid = property.optString("_graphid", "");
+    }
+
+    /* Current content of a section */
+    private JSONObject section(String section) throws JSONException {
+
+        if ("_attributes".equals(section)) {
+            return this.attributes != null ? this.attributes.toJSON() : new JSONObject();
+        }
+
+        Map values = "_computed".equals(section) ? this.computed : "_meta".equals(section) ? this.meta : null;
+        return values != null ? new JSONObject(new HashMap(values)) : new JSONObject();
+    }
+
+    /* Values of the given keys of a section, removed keys map to null */
+    private JSONObject changedKeys(String section, Set<String> keys) throws JSONException {
+
+        JSONObject changed = new JSONObject();
+
+        for (String key : keys) {
+            Object value;
+            if ("_attributes".equals(section)) {
+                value = this.getAttribute(key);
+            } else if ("_computed".equals(section)) {
+                value = this.computed != null ? this.computed.get(key) : null;
+            } else {
+                value = this.getMetaAttribute(key);
+            }
+            changed.put(key, value != null ? value : JSONObject.NULL);
+        }
+
+        return changed;
+    }
+
+    private AttributeStore attributeStore() {
+        if (this.attributes == null) {
+            this.attributes = new AttributeStore(4);
+        }
+        return this.attributes;
+    }
+
+    private HashMap<String, HashMap> computedMap() {
+        if (this.computed == null) {
+            this.computed = new HashMap<String, HashMap>();
+        }
+        return this.computed;
+    }
+
+    private HashMap metaMap() {
+        if (this.meta == null) {
+            this.meta = new HashMap();
+        }
+        return this.meta;
+    }
+
+    private HashMap toMap(JSONObject values, Iterator keys) {
+
+        HashMap map = new HashMap();
+        while (keys != null && keys.hasNext()) {
+            String key = (String) keys.next();
+            Object value = values.opt(key);
+            map.put(key, value == JSONObject.NULL ? null : value);
+        }
+
+        return map;
+    }
+
+    /* Nested maps are handed out read-only as well */
+    private static Object readOnly(Object value) {
+        return value instanceof Map ? Collections.unmodifiableMap((Map) value) : value;
+    }
+
+    /* Attributes as they are now in the store */
+    private final class AttributeView extends AbstractMap {
+
+        public int size() {
+            return attributes != null ? attributes.size() : 0;
+        }
+
+        public boolean containsKey(Object key) {
+            return key instanceof String && attributes != null && attributes.indexOf((String) key) >= 0;
+        }
+
+        public Object get(Object key) {
+            return key instanceof String && attributes != null ? readOnly(attributes.get((String) key)) : null;
+        }
+
+        public Set entrySet() {
+            return new AbstractSet() {
+                public int size() {
+                    return AttributeView.this.size();
+                }
+
+                public Iterator iterator() {
+
+                    final AttributeStore store = attributes;
+
+                    return new Iterator() {
+                        int next;
+
+                        public boolean hasNext() {
+                            return store != null && this.next < store.size();
+                        }
+
+                        public Object next() {
+                            if (!this.hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = this.next++;
+                            return new SimpleImmutableEntry(store.keyAt(i), readOnly(store.get(i)));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /* Computed or meta section as it is now */
+    private final class SectionView extends AbstractMap {
+
+        private final String section;
+
+        SectionView(String section) {
+            this.section = section;
+        }
+
+        private Map current() {
+            Map values = "_computed".equals(this.section) ? computed : meta;
+            return values != null ? values : Collections.EMPTY_MAP;
+        }
+
+        public int size() {
+            return this.current().size();
+        }
+
+        public boolean containsKey(Object key) {
+            return this.current().containsKey(key);
+        }
+
+        public Object get(Object key) {
+            return readOnly(this.current().get(key));
+        }
+
+        public Set entrySet() {
+            return new AbstractSet() {
+                public int size() {
+                    return SectionView.this.size();
+                }
+
+                public Iterator iterator() {
+
+                    final Iterator entries = SectionView.this.current().entrySet().iterator();
+
+                    return new Iterator() {
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        public Object next() {
+                            Map.Entry entry = (Map.Entry) entries.next();
+                            return new SimpleImmutableEntry(entry.getKey(), readOnly(entry.getValue()));
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -1,8 +1,71 @@
 package org.trueno.driver.lib.core.data_structures;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 /**
  * Created by victor on 7/19/16.
+ *
+ * Besides the identifiers of every component, an edge names the vertices it connects
+ * and its label, sent as "_from", "_to" and "_label" next to "_id".
  */
 public class Edge extends Component {
-    //TODO: Implement the same as Component.java, using Edge.js as guide.
+
+    /* Endpoints and label */
+    private String from;
+    private String to;
+    private String label;
+
+    public Edge() {
+
+        /* Setting property fields */
+        this.from = "";
+        this.to = "";
+        this.label = "";
+    }
+
+    /* Getters */
+    public String getFrom() {
+        return this.from;
+    }
+
+    public String getTo() {
+        return this.to;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+
+    /* Setters */
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    @Override
+    protected JSONObject identity() throws JSONException {
+
+        JSONObject property = super.identity();
+        property.put("_from", this.from);
+        property.put("_to", this.to);
+        property.put("_label", this.label);
+
+        return property;
+    }
+
+    @Override
+    protected void loadIdentity(JSONObject property) {
+        super.loadIdentity(property);
+        this.from = property.optString("_from", "");
+        this.to = property.optString("_to", "");
+        this.label = property.optString("_label", "");
+    }
 }
@@ -0,0 +1,149 @@
+package org.trueno.driver.lib.core.data_structures;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Key layout of an {@link AttributeStore}: the ordered attribute keys and their slots.
+ * Shapes are interned in a transition tree rooted at {@link #EMPTY}, so every store that
+ * received the same keys in the same order points to the same shape and only keeps its
+ * values. Adding a key moves a store to the child shape for that key.
+ *
+ * The number of interned shapes is bounded. Past the limit, new layouts are created
+ * unshared, so components with unique key sets do not grow the tree without end.
+ */
+final class Shape {
+
+    /* Root of the transition tree */
+    static final Shape EMPTY = new Shape(new String[0], true);
+
+    /* Number of keys above which lookups go through the index */
+    private static final int INDEX_THRESHOLD = 8;
+
+    /* Interned shapes, and the maximum allowed */
+    private static final AtomicInteger interned = new AtomicInteger();
+    private static volatile int limit = 100000;
+
+    /* Private properties */
+    private final String[] keys;
+    private final boolean shared;
+    private final HashMap<String, Integer> index;
+    private volatile ConcurrentHashMap<String, Shape> transitions;
+
+    private Shape(String[] keys, boolean shared) {
+        this.keys = keys;
+        this.shared = shared;
+        if (keys.length > INDEX_THRESHOLD) {
+            this.index = new HashMap<String, Integer>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                this.index.put(keys[i], i);
+            }
+        } else {
+            this.index = null;
+        }
+    }
+
+    int size() {
+        return this.keys.length;
+    }
+
+    String keyAt(int i) {
+        return this.keys[i];
+    }
+
+    int indexOf(String key) {
+
+        if (this.index != null) {
+            Integer i = this.index.get(key);
+            return i != null ? i : -1;
+        }
+
+        /* Keys are usually literals, so identity is tried before equality */
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i].equals(key)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /* Shape holding the keys of this one followed by the given key */
+    Shape with(String key) {
+
+        ConcurrentHashMap<String, Shape> transitions = this.transitions;
+        if (transitions != null) {
+            Shape next = transitions.get(key);
+            if (next != null) {
+                return next;
+            }
+        }
+
+        String[] keys = new String[this.keys.length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, this.keys.length);
+        keys[this.keys.length] = key;
+
+        /* Unshared shapes and shapes past the limit are not interned */
+        if (!this.shared || interned.get() >= limit) {
+            return new Shape(keys, false);
+        }
+
+        if (transitions == null) {
+            synchronized (this) {
+                if (this.transitions == null) {
+                    this.transitions = new ConcurrentHashMap<String, Shape>(4);
+                }
+                transitions = this.transitions;
+            }
+        }
+
+        Shape next = new Shape(keys, true);
+        Shape existing = transitions.putIfAbsent(key, next);
+        if (existing != null) {
+            return existing;
+        }
+
+        interned.incrementAndGet();
+        return next;
+    }
+
+    /* Shape holding the keys of this one except the given one, in the same order */
+    Shape without(String key) {
+
+        Shape shape = EMPTY;
+        for (String k : this.keys) {
+            if (!k.equals(key)) {
+                shape = shape.with(k);
+            }
+        }
+
+        return shape;
+    }
+
+    boolean isShared() {
+        return this.shared;
+    }
+
+    /* Number of shapes interned so far */
+    static int getInterned() {
+        return interned.get();
+    }
+
+    /* Maximum number of interned shapes, zero disables sharing */
+    static void setLimit(int max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("Shape limit must not be negative");
+        }
+        limit = max;
+    }
+
+    static int getLimit() {
+        return limit;
+    }
+}
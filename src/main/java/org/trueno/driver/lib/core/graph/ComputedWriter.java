@@ -0,0 +1,130 @@
+package org.trueno.driver.lib.core.graph;
+
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.trueno.driver.lib.core.Trueno;
+import org.trueno.driver.lib.core.TruenoException;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes per-vertex results back to the server as computed attributes. Each vertex is
+ * sent as an update carrying only its "_computed" section, so its other properties are
+ * untouched, and at most maxInFlight updates wait for the server at any time. Set a
+ * {@link org.trueno.driver.lib.core.communication.BatchPolicy} on the client so the
+ * updates travel many to a frame.
+ *
+ * Deltas track computed values per algorithm, so each update replaces the whole map of
+ * the algorithm on the server: the writer owns "_computed.algo", and attributes stored
+ * there earlier under another name are dropped. Keep one attribute per algorithm, or use
+ * a distinct algorithm name for each writer.
+ */
+public class ComputedWriter {
+
+    /* Private properties */
+    private final Trueno trueno;
+    private final String graphid;
+    private int maxInFlight;
+
+    /* Constructor with Parameters */
+    public ComputedWriter(Trueno trueno, String graphid) {
+
+        /* Set parameters */
+        this.trueno = trueno;
+        this.graphid = graphid;
+        this.maxInFlight = 1024;
+    }
+
+    /* Getters */
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    /* Setters */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /* Stores values[v] as the only attribute of the algorithm on every vertex, returning the number of vertices updated */
+    public long write(CsrGraph g, String algo, String attr, double[] values) throws InterruptedException {
+        return this.send(g, algo, attr, values);
+    }
+
+    public long write(CsrGraph g, String algo, String attr, int[] values) throws InterruptedException {
+        return this.send(g, algo, attr, values);
+    }
+
+    public long write(CsrGraph g, String algo, String attr, long[] values) throws InterruptedException {
+        return this.send(g, algo, attr, values);
+    }
+
+    private long send(CsrGraph g, String algo, String attr, Object values) throws InterruptedException {
+
+        final int n = g.vertexCount();
+        if (Array.getLength(values) != n) {
+            throw new IllegalArgumentException("Expected one value per vertex");
+        }
+
+        final Semaphore permits = new Semaphore(this.maxInFlight);
+        final LongAdder updated = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final AtomicReference<Object> firstError = new AtomicReference<Object>();
+
+        DoneCallback onDone = new DoneCallback() {
+            public void onDone(Object o) {
+                updated.increment();
+                permits.release();
+            }
+        };
+        FailCallback onFail = new FailCallback() {
+            public void onFail(Object o) {
+                firstError.compareAndSet(null, o);
+                failed.increment();
+                permits.release();
+            }
+        };
+
+        for (int v = 0; v < n; v++) {
+            Vertex vertex = new Vertex();
+            vertex.setGraphid(this.graphid);
+            vertex.setId(g.id(v));
+            vertex.setComputedAttribute(algo, attr, value(values, v));
+
+            permits.acquire();
+            try {
+                this.trueno.updateVertex(vertex).then(onDone, onFail);
+            } catch (RuntimeException e) {
+                onFail.onFail(e);
+            }
+        }
+
+        /* Sending what the batcher holds, then waiting for the last acknowledgements */
+        this.trueno.flush();
+        permits.acquire(this.maxInFlight);
+        permits.release(this.maxInFlight);
+
+        if (failed.sum() > 0) {
+            throw new TruenoException(failed.sum() + " of " + n + " computed updates failed", firstError.get());
+        }
+
+        return updated.sum();
+    }
+
+    private static Object value(Object values, int v) {
+
+        if (values instanceof double[]) {
+            return ((double[]) values)[v];
+        } else if (values instanceof int[]) {
+            return ((int[]) values)[v];
+        }
+
+        return ((long[]) values)[v];
+    }
+}
@@ -0,0 +1,200 @@
+package org.trueno.driver.lib.core.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Collects vertices and edges and lays them out as a {@link CsrGraph}. Vertices are
+ * numbered in the order they are first seen, whether added directly or as the endpoint
+ * of an edge. Edges are kept as two int arrays until {@link #build} counts the degrees,
+ * places every edge at its vertex's offset and sorts each neighbour list. An undirected
+ * builder stores every edge in both directions.
+ */
+public class CsrBuilder {
+
+    /* Private properties */
+    private final boolean directed;
+    private final HashMap<String, Integer> index;
+    private final ArrayList<String> ids;
+    private int[] from;
+    private int[] to;
+    private int edges;
+
+    /* Constructor with Parameters */
+    public CsrBuilder(boolean directed) {
+
+        /* Set parameters */
+        this.directed = directed;
+        this.index = new HashMap<String, Integer>();
+        this.ids = new ArrayList<String>();
+        this.from = new int[1024];
+        this.to = new int[1024];
+    }
+
+    /* Number of the vertex, adding it if it is new */
+    public int addVertex(String id) {
+
+        Integer v = this.index.get(id);
+        if (v == null) {
+            v = this.ids.size();
+            this.index.put(id, v);
+            this.ids.add(id);
+        }
+
+        return v;
+    }
+
+    public void addEdge(String from, String to) {
+        this.addEdge(this.addVertex(from), this.addVertex(to));
+    }
+
+    /* Adds an edge between vertices already numbered by addVertex */
+    public void addEdge(int from, int to) {
+
+        int n = this.ids.size();
+        if (from < 0 || from >= n || to < 0 || to >= n) {
+            throw new IndexOutOfBoundsException("Edge " + from + " -> " + to + " outside the " + n + " vertices");
+        }
+
+        if (this.edges == this.from.length) {
+            if (this.edges == Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Too many edges for one builder");
+            }
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8L, this.edges * 2L);
+            this.from = Arrays.copyOf(this.from, capacity);
+            this.to = Arrays.copyOf(this.to, capacity);
+        }
+        this.from[this.edges] = from;
+        this.to[this.edges] = to;
+        this.edges++;
+    }
+
+    public int getVertices() {
+        return this.ids.size();
+    }
+
+    /* Edges added so far, before undirected edges are doubled */
+    public int getEdges() {
+        return this.edges;
+    }
+
+    /* Lays out the graph on the heap or in direct buffers, the builder is empty afterwards */
+    public CsrGraph build(boolean offHeap) {
+
+        int n = this.ids.size();
+        String[] ids = this.ids.toArray(new String[n]);
+
+        /* Degrees, then their prefix sums */
+        long[] offsets = new long[n + 1];
+        for (int i = 0; i < this.edges; i++) {
+            offsets[this.from[i] + 1]++;
+            if (!this.directed && this.from[i] != this.to[i]) {
+                offsets[this.to[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        long m = offsets[n];
+
+        if (!offHeap && m > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(m + " edges do not fit in a heap array, build the graph off heap");
+        }
+
+        int[] targets = offHeap ? null : new int[(int) m];
+        IntBuffer[] chunks = offHeap ? allocate(m) : null;
+
+        /* Each edge at the next free position of its source */
+        long[] next = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < this.edges; i++) {
+            int f = this.from[i];
+            int t = this.to[i];
+            put(targets, chunks, next[f]++, t);
+            if (!this.directed && f != t) {
+                put(targets, chunks, next[t]++, f);
+            }
+        }
+
+        /* The builder's arrays are no longer needed */
+        this.index.clear();
+        this.ids.clear();
+        this.from = new int[1024];
+        this.to = new int[1024];
+        this.edges = 0;
+
+        sort(targets, chunks, offsets);
+
+        if (!offHeap) {
+            return new HeapCsrGraph(ids, this.directed, offsets, targets);
+        }
+
+        if (n >= Integer.MAX_VALUE / 8) {
+            throw new IllegalStateException(n + " vertices do not fit in one offsets buffer");
+        }
+        LongBuffer direct = ByteBuffer.allocateDirect(8 * (n + 1)).order(ByteOrder.nativeOrder()).asLongBuffer();
+        direct.put(offsets);
+        return new OffHeapCsrGraph(ids, this.directed, direct, chunks, m);
+    }
+
+    private static IntBuffer[] allocate(long edges) {
+
+        int count = (int) ((edges + OffHeapCsrGraph.CHUNK_MASK) >>> OffHeapCsrGraph.CHUNK_SHIFT);
+        IntBuffer[] chunks = new IntBuffer[Math.max(1, count)];
+        for (int i = 0; i < chunks.length; i++) {
+            long size = Math.min(1L << OffHeapCsrGraph.CHUNK_SHIFT, edges - ((long) i << OffHeapCsrGraph.CHUNK_SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect(4 * (int) size).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+
+        return chunks;
+    }
+
+    private static void put(int[] targets, IntBuffer[] chunks, long position, int value) {
+        if (targets != null) {
+            targets[(int) position] = value;
+        } else {
+            chunks[(int) (position >>> OffHeapCsrGraph.CHUNK_SHIFT)].put((int) position & OffHeapCsrGraph.CHUNK_MASK, value);
+        }
+    }
+
+    private static int get(int[] targets, IntBuffer[] chunks, long position) {
+        if (targets != null) {
+            return targets[(int) position];
+        }
+        return chunks[(int) (position >>> OffHeapCsrGraph.CHUNK_SHIFT)].get((int) position & OffHeapCsrGraph.CHUNK_MASK);
+    }
+
+    /* Sorts every neighbour list, off-heap lists through a scratch array */
+    private static void sort(int[] targets, IntBuffer[] chunks, long[] offsets) {
+
+        int[] scratch = new int[16];
+
+        for (int v = 0; v + 1 < offsets.length; v++) {
+            long start = offsets[v];
+            int degree = (int) (offsets[v + 1] - start);
+            if (degree < 2) {
+                continue;
+            }
+
+            if (targets != null) {
+                Arrays.sort(targets, (int) start, (int) start + degree);
+                continue;
+            }
+
+            if (scratch.length < degree) {
+                scratch = new int[Math.max(degree, scratch.length * 2)];
+            }
+            for (int i = 0; i < degree; i++) {
+                scratch[i] = get(null, chunks, start + i);
+            }
+            Arrays.sort(scratch, 0, degree);
+            for (int i = 0; i < degree; i++) {
+                put(null, chunks, start + i, scratch[i]);
+            }
+        }
+    }
+}
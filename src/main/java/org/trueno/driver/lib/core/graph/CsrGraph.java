@@ -0,0 +1,213 @@
+package org.trueno.driver.lib.core.graph;
+
+import org.trueno.driver.lib.core.ListCursor;
+import org.trueno.driver.lib.core.TruenoBlocking;
+import org.trueno.driver.lib.core.data_structures.Edge;
+import org.trueno.driver.lib.core.data_structures.Graph;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+import org.trueno.driver.lib.core.snapshot.SnapshotReader;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Adjacency of a graph in compressed sparse row form. Vertices are numbered 0 to n - 1 in
+ * the order they were added; the out-neighbours of vertex v are the targets between
+ * offset(v) and offset(v + 1), sorted. Offsets are a long[] of n + 1 entries and targets
+ * an int[] of one entry per edge, or direct buffers outside the heap, so a graph costs
+ * 12 bytes per edge at most instead of an Edge object each.
+ *
+ * Graphs are built with a {@link CsrBuilder}, or loaded from the server or a snapshot.
+ * A graph is immutable and can be read from any number of threads.
+ */
+public abstract class CsrGraph {
+
+    /* Private properties */
+    private final String[] ids;
+    private final boolean directed;
+    private volatile HashMap<String, Integer> index;
+
+    /* Constructor with Parameters */
+    CsrGraph(String[] ids, boolean directed) {
+        this.ids = ids;
+        this.directed = directed;
+    }
+
+    /* Loads the vertices and edges of the graph from the server, in pages of pageSize */
+    public static CsrGraph load(TruenoBlocking trueno, Graph g, int pageSize, boolean directed, boolean offHeap) {
+
+        CsrBuilder builder = new CsrBuilder(directed);
+
+        Vertex v = new Vertex();
+        v.setGraphid(g.getGraphid());
+        ListCursor<Vertex> vertices = trueno.iterateVertexList(v, pageSize);
+        try {
+            while (vertices.hasNext()) {
+                builder.addVertex(vertices.next().getId());
+            }
+        } finally {
+            vertices.close();
+        }
+
+        Edge e = new Edge();
+        e.setGraphid(g.getGraphid());
+        ListCursor<Edge> edges = trueno.iterateEdgeList(e, pageSize);
+        try {
+            while (edges.hasNext()) {
+                Edge next = edges.next();
+                builder.addEdge(next.getFrom(), next.getTo());
+            }
+        } finally {
+            edges.close();
+        }
+
+        return builder.build(offHeap);
+    }
+
+    /* Loads the vertices and edges of a snapshot file */
+    public static CsrGraph load(SnapshotReader snapshot, boolean directed, boolean offHeap) {
+
+        CsrBuilder builder = new CsrBuilder(directed);
+
+        Iterator<Vertex> vertices = snapshot.vertices();
+        while (vertices.hasNext()) {
+            builder.addVertex(vertices.next().getId());
+        }
+
+        Iterator<Edge> edges = snapshot.edges();
+        while (edges.hasNext()) {
+            Edge next = edges.next();
+            builder.addEdge(next.getFrom(), next.getTo());
+        }
+
+        return builder.build(offHeap);
+    }
+
+    public int vertexCount() {
+        return this.ids.length;
+    }
+
+    /* Number of stored edges, each undirected edge counting in both directions */
+    public abstract long edgeCount();
+
+    public boolean isDirected() {
+        return this.directed;
+    }
+
+    public abstract boolean isOffHeap();
+
+    /* Index of the first neighbour of v, offset(vertexCount()) is edgeCount() */
+    public abstract long offset(int v);
+
+    /* Vertex at the given position of the targets */
+    public abstract int target(long edge);
+
+    public int degree(int v) {
+        return (int) (this.offset(v + 1) - this.offset(v));
+    }
+
+    /* Copies the neighbours of v into the array, which must hold degree(v) entries, returning their number */
+    public int neighbors(int v, int[] into) {
+
+        long from = this.offset(v);
+        int degree = (int) (this.offset(v + 1) - from);
+        for (int i = 0; i < degree; i++) {
+            into[i] = this.target(from + i);
+        }
+
+        return degree;
+    }
+
+    public int[] neighbors(int v) {
+        int[] into = new int[this.degree(v)];
+        this.neighbors(v, into);
+        return into;
+    }
+
+    public void forEachNeighbor(int v, IntConsumer action) {
+
+        long end = this.offset(v + 1);
+        for (long e = this.offset(v); e < end; e++) {
+            action.accept(this.target(e));
+        }
+    }
+
+    /* Whether the edge from v to w exists, by binary search over the sorted neighbours */
+    public boolean hasEdge(int v, int w) {
+
+        long low = this.offset(v);
+        long high = this.offset(v + 1) - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int t = this.target(mid);
+            if (t < w) {
+                low = mid + 1;
+            } else if (t > w) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /* Identifier of the vertex */
+    public String id(int v) {
+        return this.ids[v];
+    }
+
+    /* Number of the vertex with the given identifier, -1 if it is not in the graph */
+    public int indexOf(String id) {
+
+        HashMap<String, Integer> index = this.index;
+        if (index == null) {
+            /* Built on first use, algorithms that only walk numbers never need it */
+            index = new HashMap<String, Integer>(this.ids.length * 4 / 3 + 1);
+            for (int v = 0; v < this.ids.length; v++) {
+                index.put(this.ids[v], v);
+            }
+            this.index = index;
+        }
+
+        Integer v = index.get(id);
+        return v != null ? v : -1;
+    }
+
+    /* Graph with every edge reversed, giving the in-neighbours of each vertex */
+    public CsrGraph transpose() {
+
+        if (!this.directed) {
+            return this;
+        }
+
+        CsrBuilder builder = new CsrBuilder(true);
+        for (int v = 0; v < this.ids.length; v++) {
+            builder.addVertex(this.ids[v]);
+        }
+        for (int v = 0; v < this.ids.length; v++) {
+            long end = this.offset(v + 1);
+            for (long e = this.offset(v); e < end; e++) {
+                builder.addEdge(this.target(e), v);
+            }
+        }
+
+        return builder.build(this.isOffHeap());
+    }
+
+    /* Bytes held by the offsets and targets */
+    public long memoryBytes() {
+        return 8L * (this.ids.length + 1) + 4L * this.edgeCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CsrGraph(vertices=%d, edges=%d, %s, %s)", this.vertexCount(), this.edgeCount(),
+                this.directed ? "directed" : "undirected", this.isOffHeap() ? "off-heap" : "heap");
+    }
+
+    String[] ids() {
+        return this.ids;
+    }
+}
@@ -0,0 +1,320 @@
+package org.trueno.driver.lib.core.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Graph algorithms over a {@link CsrGraph}, run in parallel on a fork-join pool. Each
+ * returns one value per vertex, indexed by vertex number, ready to be written back to the
+ * server as computed attributes with a {@link ComputedWriter}.
+ */
+public class GraphAlgorithms {
+
+    /* Vertices handled by one task */
+    private static final int GRAIN = 1024;
+
+    /* Private properties */
+    private final ForkJoinPool pool;
+
+    /* Default Constructor, running on the common pool */
+    public GraphAlgorithms() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /* Constructor with Parameters */
+    public GraphAlgorithms(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Rank of every vertex, iterated until the ranks change by less than tolerance in
+     * total or maxIterations is reached. Each vertex pulls the rank of its in-neighbours;
+     * the rank of vertices without out-edges is spread over every vertex.
+     */
+    public double[] pageRank(CsrGraph g, final double damping, int maxIterations, double tolerance) {
+
+        if (damping < 0 || damping > 1) {
+            throw new IllegalArgumentException("Damping must be between 0 and 1");
+        }
+
+        final int n = g.vertexCount();
+        if (n == 0) {
+            return new double[0];
+        }
+
+        final CsrGraph out = g;
+        final CsrGraph in = g.transpose();
+        final double[] contribution = new double[n];
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+
+            /* Share of each vertex's rank along each of its out-edges */
+            final double[] current = rank;
+            final DoubleAdder dangling = new DoubleAdder();
+            this.run(n, new ParallelRange.Body() {
+                public void run(int lo, int hi) {
+                    double sum = 0;
+                    for (int v = lo; v < hi; v++) {
+                        int degree = out.degree(v);
+                        if (degree == 0) {
+                            sum += current[v];
+                            contribution[v] = 0;
+                        } else {
+                            contribution[v] = current[v] / degree;
+                        }
+                    }
+                    dangling.add(sum);
+                }
+            });
+
+            final double base = (1 - damping) / n + damping * dangling.sum() / n;
+            final double[] updated = next;
+            final DoubleAdder delta = new DoubleAdder();
+            this.run(n, new ParallelRange.Body() {
+                public void run(int lo, int hi) {
+                    double change = 0;
+                    for (int v = lo; v < hi; v++) {
+                        double sum = 0;
+                        long end = in.offset(v + 1);
+                        for (long e = in.offset(v); e < end; e++) {
+                            sum += contribution[in.target(e)];
+                        }
+                        updated[v] = base + damping * sum;
+                        change += Math.abs(updated[v] - current[v]);
+                    }
+                    delta.add(change);
+                }
+            });
+
+            next = rank;
+            rank = updated;
+            if (delta.sum() < tolerance) {
+                break;
+            }
+        }
+
+        return rank;
+    }
+
+    /**
+     * Component of every vertex, ignoring edge direction, labelled with the smallest
+     * vertex number in the component. Edges are merged concurrently into a union-find
+     * forest whose roots are always linked to the smaller root.
+     */
+    public int[] connectedComponents(final CsrGraph g) {
+
+        final int n = g.vertexCount();
+        final AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            parent.set(v, v);
+        }
+
+        this.run(n, new ParallelRange.Body() {
+            public void run(int lo, int hi) {
+                for (int v = lo; v < hi; v++) {
+                    long end = g.offset(v + 1);
+                    for (long e = g.offset(v); e < end; e++) {
+                        union(parent, v, g.target(e));
+                    }
+                }
+            }
+        });
+
+        final int[] labels = new int[n];
+        this.run(n, new ParallelRange.Body() {
+            public void run(int lo, int hi) {
+                for (int v = lo; v < hi; v++) {
+                    labels[v] = find(parent, v);
+                }
+            }
+        });
+
+        return labels;
+    }
+
+    /**
+     * Number of hops from the source to every vertex along out-edges, -1 for vertices it
+     * does not reach. Each level's frontier is expanded in parallel; a vertex joins the
+     * next frontier once, when its distance is set.
+     */
+    public int[] bfs(final CsrGraph g, int source) {
+
+        final int n = g.vertexCount();
+        if (source < 0 || source >= n) {
+            throw new IndexOutOfBoundsException("Source " + source + " outside the " + n + " vertices");
+        }
+
+        final AtomicIntegerArray distance = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            distance.set(v, -1);
+        }
+        distance.set(source, 0);
+
+        int[] frontier = new int[n];
+        int[] next = new int[n];
+        frontier[0] = source;
+        int size = 1;
+
+        for (int level = 1; size > 0; level++) {
+
+            final int[] current = frontier;
+            final int[] found = next;
+            final int depth = level;
+            final AtomicInteger tail = new AtomicInteger();
+            this.run(size, new ParallelRange.Body() {
+                public void run(int lo, int hi) {
+                    int[] local = new int[64];
+                    int count = 0;
+                    for (int i = lo; i < hi; i++) {
+                        int v = current[i];
+                        long end = g.offset(v + 1);
+                        for (long e = g.offset(v); e < end; e++) {
+                            int w = g.target(e);
+                            if (distance.get(w) < 0 && distance.compareAndSet(w, -1, depth)) {
+                                if (count == local.length) {
+                                    count = publish(local, count, found, tail);
+                                }
+                                local[count++] = w;
+                            }
+                        }
+                    }
+                    publish(local, count, found, tail);
+                }
+            });
+
+            size = tail.get();
+            next = frontier;
+            frontier = found;
+        }
+
+        int[] result = new int[n];
+        for (int v = 0; v < n; v++) {
+            result[v] = distance.get(v);
+        }
+
+        return result;
+    }
+
+    /**
+     * Number of triangles through every vertex of an undirected graph. Each triangle
+     * v &lt; u &lt; w is found once, from v, by intersecting the sorted neighbours of v
+     * and u; parallel and self edges are ignored.
+     */
+    public long[] triangles(final CsrGraph g) {
+
+        if (g.isDirected()) {
+            throw new IllegalArgumentException("Triangles are counted on undirected graphs");
+        }
+
+        final int n = g.vertexCount();
+        final AtomicLongArray counts = new AtomicLongArray(n);
+
+        this.run(n, new ParallelRange.Body() {
+            public void run(int lo, int hi) {
+                for (int v = lo; v < hi; v++) {
+                    long found = 0;
+                    long vEnd = g.offset(v + 1);
+                    int previous = -1;
+                    for (long e = g.offset(v); e < vEnd; e++) {
+                        int u = g.target(e);
+                        if (u <= v || u == previous) {
+                            continue;
+                        }
+                        previous = u;
+
+                        /* Common neighbours w greater than u */
+                        long a = e + 1;
+                        long b = g.offset(u);
+                        long uEnd = g.offset(u + 1);
+                        int last = -1;
+                        while (a < vEnd && b < uEnd) {
+                            int x = g.target(a);
+                            int y = g.target(b);
+                            if (x < y) {
+                                a++;
+                            } else if (y < x) {
+                                b++;
+                            } else {
+                                if (x > u && x != last) {
+                                    last = x;
+                                    found++;
+                                    counts.incrementAndGet(u);
+                                    counts.incrementAndGet(x);
+                                }
+                                a++;
+                                b++;
+                            }
+                        }
+                    }
+                    if (found > 0) {
+                        counts.addAndGet(v, found);
+                    }
+                }
+            }
+        });
+
+        long[] result = new long[n];
+        for (int v = 0; v < n; v++) {
+            result[v] = counts.get(v);
+        }
+
+        return result;
+    }
+
+    private void run(int size, ParallelRange.Body body) {
+        if (size > 0) {
+            this.pool.invoke(new ParallelRange(body, 0, size, GRAIN));
+        }
+    }
+
+    /* Copies the locally found vertices to the shared frontier, returning the new local count */
+    private static int publish(int[] local, int count, int[] frontier, AtomicInteger tail) {
+        if (count > 0) {
+            System.arraycopy(local, 0, frontier, tail.getAndAdd(count), count);
+        }
+        return 0;
+    }
+
+    /* Root of the vertex, halving the path on the way */
+    private static int find(AtomicIntegerArray parent, int v) {
+
+        int p = parent.get(v);
+        while (p != v) {
+            int grand = parent.get(p);
+            if (grand != p) {
+                parent.compareAndSet(v, p, grand);
+            }
+            v = p;
+            p = grand;
+        }
+
+        return v;
+    }
+
+    /* Links the larger of the two roots under the smaller, retrying if another thread moved them */
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+
+        while (true) {
+            int ra = find(parent, a);
+            int rb = find(parent, b);
+            if (ra == rb) {
+                return;
+            }
+            if (ra < rb) {
+                int swap = ra;
+                ra = rb;
+                rb = swap;
+            }
+            if (parent.compareAndSet(ra, ra, rb)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.trueno.driver.lib.core.graph;
+
+/**
+ * Compressed sparse row graph held in heap arrays.
+ */
+final class HeapCsrGraph extends CsrGraph {
+
+    /* Private properties */
+    private final long[] offsets;
+    private final int[] targets;
+
+    /* Constructor with Parameters */
+    HeapCsrGraph(String[] ids, boolean directed, long[] offsets, int[] targets) {
+        super(ids, directed);
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public long edgeCount() {
+        return this.targets.length;
+    }
+
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    public long offset(int v) {
+        return this.offsets[v];
+    }
+
+    public int target(long edge) {
+        return this.targets[(int) edge];
+    }
+}
@@ -0,0 +1,45 @@
+package org.trueno.driver.lib.core.graph;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Compressed sparse row graph held in direct buffers, outside the heap and the reach of
+ * the garbage collector. A direct buffer holds at most 2 GB, so targets are split into
+ * chunks of 2^28 edges.
+ */
+final class OffHeapCsrGraph extends CsrGraph {
+
+    /* Edges per targets chunk */
+    static final int CHUNK_SHIFT = 28;
+    static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    /* Private properties */
+    private final LongBuffer offsets;
+    private final IntBuffer[] targets;
+    private final long edges;
+
+    /* Constructor with Parameters */
+    OffHeapCsrGraph(String[] ids, boolean directed, LongBuffer offsets, IntBuffer[] targets, long edges) {
+        super(ids, directed);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.edges = edges;
+    }
+
+    public long edgeCount() {
+        return this.edges;
+    }
+
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    public long offset(int v) {
+        return this.offsets.get(v);
+    }
+
+    public int target(long edge) {
+        return this.targets[(int) (edge >>> CHUNK_SHIFT)].get((int) edge & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,45 @@
+package org.trueno.driver.lib.core.graph;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a body over a range of indexes on a fork-join pool, halving the range until it
+ * holds at most grain indexes. Idle workers steal the other halves, which evens out
+ * ranges holding vertices of very different degrees.
+ */
+final class ParallelRange extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /* Work done on a sub-range [lo, hi) */
+    interface Body {
+        void run(int lo, int hi);
+    }
+
+    /* Private properties */
+    private final Body body;
+    private final int lo;
+    private final int hi;
+    private final int grain;
+
+    /* Constructor with Parameters */
+    ParallelRange(Body body, int lo, int hi, int grain) {
+        this.body = body;
+        this.lo = lo;
+        this.hi = hi;
+        this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+
+        if (this.hi - this.lo <= this.grain) {
+            this.body.run(this.lo, this.hi);
+            return;
+        }
+
+        int mid = (this.lo + this.hi) >>> 1;
+        invokeAll(new ParallelRange(this.body, this.lo, mid, this.grain),
+                new ParallelRange(this.body, mid, this.hi, this.grain));
+    }
+}
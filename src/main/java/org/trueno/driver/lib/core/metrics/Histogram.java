@@ -0,0 +1,126 @@
+package org.trueno.driver.lib.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, e.g. latencies in nanoseconds. Buckets are
+ * log-linear: every power of two is split into 32 linear sub-buckets, so a recorded value
+ * is reported within about 3% of its true value, from 1ns up to the largest trackable
+ * value, about 18 minutes. Larger values are counted in the last bucket.
+ *
+ * Recording is a few arithmetic operations and atomic increments, with no allocation
+ * and no locking, so it can stay on in production. Reads are not atomic with respect to
+ * concurrent recording; a snapshot may miss the values recorded while it is taken.
+ */
+public class Histogram {
+
+    /* Sub-buckets per power of two, as a power of two */
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /* Largest value tracked exactly */
+    public static final long MAX_TRACKABLE = (1L << 40) - 1;
+
+    private static final int BUCKETS = index(MAX_TRACKABLE) + 1;
+
+    /* Private properties */
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    /* Default Constructor */
+    public Histogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    public void record(long value) {
+
+        if (value < 0) {
+            value = 0;
+        }
+
+        this.counts.incrementAndGet(index(Math.min(value, MAX_TRACKABLE)));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+
+        long current = this.max.get();
+        while (value > current && !this.max.compareAndSet(current, value)) {
+            current = this.max.get();
+        }
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public double getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : (double) this.sum.get() / count;
+    }
+
+    /* Value below which the given percentage (0 to 100) of the recorded values fall */
+    public long getPercentile(double percentile) {
+
+        long count = this.count.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count);
+        rank = Math.max(rank, 1);
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highest(i), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+
+    /* Bucket of a value: values below SUB_COUNT map to themselves, then SUB_COUNT buckets per power of two */
+    private static int index(long value) {
+
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) - SUB_COUNT;
+
+        return SUB_COUNT + shift * SUB_COUNT + sub;
+    }
+
+    /* Highest value that maps to the bucket */
+    private static long highest(int index) {
+
+        if (index < SUB_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_COUNT) / SUB_COUNT;
+        int sub = (index - SUB_COUNT) % SUB_COUNT;
+
+        return ((long) (SUB_COUNT + sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,242 @@
+package org.trueno.driver.lib.core.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and per-operation latency histograms of a client. Everything is recorded with
+ * atomic increments into preallocated structures; the only allocation is the first call
+ * of each operation, which creates its histogram.
+ *
+ * Read the values with {@link #snapshot()}, or publish them over JMX with
+ * {@link #register(String)}.
+ */
+public class Metrics implements MetricsMXBean {
+
+    /* JMX domain the metrics are registered under */
+    public static final String DOMAIN = "org.trueno.driver";
+
+    /* Private properties */
+    private final ConcurrentHashMap<String, OperationMetrics> operations;
+    private final AtomicLong requests;
+    private final AtomicLong errors;
+    private final AtomicLong inFlight;
+    private final AtomicLong bytesSent;
+    private final AtomicLong bytesReceived;
+    private final AtomicLong connects;
+    private final AtomicLong disconnects;
+    private final AtomicLong reconnects;
+    private final AtomicLong timeouts;
+    private final AtomicLong hedges;
+    private final AtomicLong hedgeWins;
+    private final AtomicLong coalesced;
+    private ObjectName registered;
+
+    /* Default Constructor */
+    public Metrics() {
+        this.operations = new ConcurrentHashMap<String, OperationMetrics>();
+        this.requests = new AtomicLong();
+        this.errors = new AtomicLong();
+        this.inFlight = new AtomicLong();
+        this.bytesSent = new AtomicLong();
+        this.bytesReceived = new AtomicLong();
+        this.connects = new AtomicLong();
+        this.disconnects = new AtomicLong();
+        this.reconnects = new AtomicLong();
+        this.timeouts = new AtomicLong();
+        this.hedges = new AtomicLong();
+        this.hedgeWins = new AtomicLong();
+        this.coalesced = new AtomicLong();
+    }
+
+    /* Metrics of the operation, created on first use */
+    public OperationMetrics operation(String name) {
+
+        OperationMetrics operation = this.operations.get(name);
+        if (operation == null) {
+            operation = new OperationMetrics(name);
+            OperationMetrics existing = this.operations.putIfAbsent(name, operation);
+            if (existing != null) {
+                operation = existing;
+            }
+        }
+
+        return operation;
+    }
+
+    /* A request was sent and is waiting for its reply */
+    public void requestStarted() {
+        this.requests.incrementAndGet();
+        this.inFlight.incrementAndGet();
+    }
+
+    /* A request was answered or failed */
+    public void requestEnded() {
+        this.inFlight.decrementAndGet();
+    }
+
+    /* Errors outside of a reply, e.g. a frame that could not be decoded or a failed connection attempt */
+    public void error() {
+        this.errors.incrementAndGet();
+    }
+
+    public void sent(long bytes) {
+        this.bytesSent.addAndGet(bytes);
+    }
+
+    public void received(long bytes) {
+        this.bytesReceived.addAndGet(bytes);
+    }
+
+    /* A connection opened, counted as a reconnect when it was opened before */
+    public void connected(boolean reconnect) {
+        this.connects.incrementAndGet();
+        if (reconnect) {
+            this.reconnects.incrementAndGet();
+        }
+    }
+
+    public void disconnected() {
+        this.disconnects.incrementAndGet();
+    }
+
+    /* A call failed because no reply arrived before its deadline */
+    public void timedOut() {
+        this.timeouts.incrementAndGet();
+    }
+
+    /* A duplicate of a slow read was sent on another connection */
+    public void hedged() {
+        this.hedges.incrementAndGet();
+    }
+
+    /* The duplicate answered first */
+    public void hedgeWon() {
+        this.hedgeWins.incrementAndGet();
+    }
+
+    /* A read joined an identical one already in flight instead of being sent */
+    public void coalesced() {
+        this.coalesced.incrementAndGet();
+    }
+
+    /* Getters */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /* Failed replies plus errors outside of a reply */
+    public long getErrors() {
+
+        long total = this.errors.get();
+        for (OperationMetrics operation : this.operations.values()) {
+            total += operation.getErrors();
+        }
+
+        return total;
+    }
+
+    public long getInFlight() {
+        return this.inFlight.get();
+    }
+
+    public long getBytesSent() {
+        return this.bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived.get();
+    }
+
+    public long getConnects() {
+        return this.connects.get();
+    }
+
+    public long getDisconnects() {
+        return this.disconnects.get();
+    }
+
+    public long getReconnects() {
+        return this.reconnects.get();
+    }
+
+    public long getTimeouts() {
+        return this.timeouts.get();
+    }
+
+    public long getHedges() {
+        return this.hedges.get();
+    }
+
+    public long getHedgeWins() {
+        return this.hedgeWins.get();
+    }
+
+    public long getCoalesced() {
+        return this.coalesced.get();
+    }
+
+    public Map<String, OperationSnapshot> getOperations() {
+
+        TreeMap<String, OperationSnapshot> operations = new TreeMap<String, OperationSnapshot>();
+        for (OperationMetrics operation : this.operations.values()) {
+            operations.put(operation.getName(), operation.snapshot());
+        }
+
+        return operations;
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.nanoTime(), this.getRequests(), this.getErrors(), this.getInFlight(),
+                this.getBytesSent(), this.getBytesReceived(), this.getConnects(), this.getDisconnects(),
+                this.getReconnects(), this.getTimeouts(), this.getHedges(), this.getHedgeWins(), this.getCoalesced(),
+                this.getOperations());
+    }
+
+    /* Clears the counters and histograms, the in-flight gauge is kept */
+    public void reset() {
+        for (OperationMetrics operation : this.operations.values()) {
+            operation.reset();
+        }
+        this.requests.set(0);
+        this.errors.set(0);
+        this.bytesSent.set(0);
+        this.bytesReceived.set(0);
+        this.connects.set(0);
+        this.disconnects.set(0);
+        this.reconnects.set(0);
+        this.timeouts.set(0);
+        this.hedges.set(0);
+        this.hedgeWins.set(0);
+        this.coalesced.set(0);
+    }
+
+    /* Registers the metrics with the platform MBean server as org.trueno.driver:type=Metrics,name=<name> */
+    public synchronized void register(String name) throws JMException {
+
+        this.unregister();
+
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.registered = objectName;
+    }
+
+    public synchronized void unregister() throws JMException {
+
+        if (this.registered == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(this.registered)) {
+            server.unregisterMBean(this.registered);
+        }
+        this.registered = null;
+    }
+}
@@ -0,0 +1,38 @@
+package org.trueno.driver.lib.core.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of a client's {@link Metrics}. Latencies are in nanoseconds.
+ */
+public interface MetricsMXBean {
+
+    long getRequests();
+
+    long getErrors();
+
+    long getInFlight();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    long getConnects();
+
+    long getDisconnects();
+
+    long getReconnects();
+
+    long getTimeouts();
+
+    long getHedges();
+
+    long getHedgeWins();
+
+    long getCoalesced();
+
+    /* Latency summary per operation, keyed by operation name */
+    Map<String, OperationSnapshot> getOperations();
+
+    void reset();
+}
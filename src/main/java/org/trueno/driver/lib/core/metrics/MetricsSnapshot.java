@@ -0,0 +1,139 @@
+package org.trueno.driver.lib.core.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point-in-time copy of a client's {@link Metrics}.
+ */
+public class MetricsSnapshot {
+
+    /* Private properties */
+    private final long timestamp;
+    private final long requests;
+    private final long errors;
+    private final long inFlight;
+    private final long bytesSent;
+    private final long bytesReceived;
+    private final long connects;
+    private final long disconnects;
+    private final long reconnects;
+    private final long timeouts;
+    private final long hedges;
+    private final long hedgeWins;
+    private final long coalesced;
+    private final Map<String, OperationSnapshot> operations;
+
+    /* Constructor with Parameters, the timestamp is from System.nanoTime */
+    public MetricsSnapshot(long timestamp, long requests, long errors, long inFlight, long bytesSent,
+                           long bytesReceived, long connects, long disconnects, long reconnects, long timeouts,
+                           long hedges, long hedgeWins, long coalesced, Map<String, OperationSnapshot> operations) {
+        this.timestamp = timestamp;
+        this.requests = requests;
+        this.errors = errors;
+        this.inFlight = inFlight;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.connects = connects;
+        this.disconnects = disconnects;
+        this.reconnects = reconnects;
+        this.timeouts = timeouts;
+        this.hedges = hedges;
+        this.hedgeWins = hedgeWins;
+        this.coalesced = coalesced;
+        this.operations = Collections.unmodifiableMap(operations);
+    }
+
+    /* Getters */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public long getRequests() {
+        return this.requests;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+
+    public long getInFlight() {
+        return this.inFlight;
+    }
+
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    public long getConnects() {
+        return this.connects;
+    }
+
+    public long getDisconnects() {
+        return this.disconnects;
+    }
+
+    public long getReconnects() {
+        return this.reconnects;
+    }
+
+    public long getTimeouts() {
+        return this.timeouts;
+    }
+
+    public long getHedges() {
+        return this.hedges;
+    }
+
+    public long getHedgeWins() {
+        return this.hedgeWins;
+    }
+
+    public long getCoalesced() {
+        return this.coalesced;
+    }
+
+    public Map<String, OperationSnapshot> getOperations() {
+        return this.operations;
+    }
+
+    /* Latency summary of the operation, null if it was never called */
+    public OperationSnapshot getOperation(String name) {
+        return this.operations.get(name);
+    }
+
+    /* Requests per second completed between an earlier snapshot and this one */
+    public double throughput(MetricsSnapshot since) {
+        long nanos = this.timestamp - since.timestamp;
+        return nanos <= 0 ? 0 : (this.completed() - since.completed()) * 1e9 / nanos;
+    }
+
+    private long completed() {
+        long total = 0;
+        for (OperationSnapshot operation : this.operations.values()) {
+            total += operation.getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("MetricsSnapshot{requests=").append(this.requests).append(", errors=").append(this.errors)
+                .append(", inFlight=").append(this.inFlight).append(", bytesSent=").append(this.bytesSent)
+                .append(", bytesReceived=").append(this.bytesReceived).append(", connects=").append(this.connects)
+                .append(", disconnects=").append(this.disconnects).append(", reconnects=").append(this.reconnects)
+                .append(", timeouts=").append(this.timeouts).append(", hedges=").append(this.hedges)
+                .append(", hedgeWins=").append(this.hedgeWins).append(", coalesced=").append(this.coalesced);
+        for (OperationSnapshot operation : this.operations.values()) {
+            sb.append(", ").append(operation);
+        }
+
+        return sb.append("}").toString();
+    }
+}
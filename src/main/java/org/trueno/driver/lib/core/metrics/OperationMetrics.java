@@ -0,0 +1,109 @@
+package org.trueno.driver.lib.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histogram and error count of one remote operation, e.g. "ex_getVertex".
+ * Successful calls are also timed into windows of ten seconds, so decisions such as
+ * hedging follow the recent latency rather than the whole history and its failures.
+ * The windows rotate through three histograms allocated up front: the one retired two
+ * windows ago is cleared and reused, so rotating allocates nothing.
+ */
+public class OperationMetrics {
+
+    /* Private properties */
+    private final String name;
+    private final Histogram latency;
+    private final AtomicLong errors;
+    private volatile Histogram current;
+    private volatile Histogram previous;
+    private Histogram spare;
+    private volatile long windowStart;
+
+    /* Length of a recent latency window */
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    OperationMetrics(String name) {
+        this.name = name;
+        this.latency = new Histogram();
+        this.errors = new AtomicLong();
+        this.current = new Histogram();
+        this.previous = new Histogram();
+        this.spare = new Histogram();
+        this.windowStart = System.nanoTime();
+    }
+
+    /* Records a completed call, timed from when it was issued */
+    public void record(long nanos, boolean error) {
+        this.latency.record(nanos);
+        if (error) {
+            this.errors.incrementAndGet();
+        } else {
+            this.rotate(System.nanoTime()).record(nanos);
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Histogram getLatency() {
+        return this.latency;
+    }
+
+    /* Latency of the successful calls of the last window, or of the current one once it holds more */
+    public Histogram getRecentLatency() {
+
+        Histogram current = this.rotate(System.nanoTime());
+        Histogram previous = this.previous;
+
+        return current.getCount() >= previous.getCount() ? current : previous;
+    }
+
+    public long getErrors() {
+        return this.errors.get();
+    }
+
+    public OperationSnapshot snapshot() {
+        return new OperationSnapshot(this.name, this.latency.getCount(), this.errors.get(),
+                this.latency.getMean(), this.latency.getPercentile(50), this.latency.getPercentile(90),
+                this.latency.getPercentile(99), this.latency.getPercentile(99.9), this.latency.getMax());
+    }
+
+    void reset() {
+        synchronized (this) {
+            this.current.reset();
+            this.previous.reset();
+            this.windowStart = System.nanoTime();
+        }
+        this.latency.reset();
+        this.errors.set(0);
+    }
+
+    /* Current window, starting a new one in the spare histogram when it is over; a window older than that is dropped */
+    private Histogram rotate(long now) {
+
+        if (now - this.windowStart < WINDOW_NANOS) {
+            return this.current;
+        }
+
+        synchronized (this) {
+            long elapsed = now - this.windowStart;
+            if (elapsed >= WINDOW_NANOS) {
+                Histogram next = this.spare;
+                next.reset();
+                if (elapsed < 2 * WINDOW_NANOS) {
+                    this.spare = this.previous;
+                    this.previous = this.current;
+                } else {
+                    this.spare = this.current;
+                    this.previous.reset();
+                }
+                this.current = next;
+                this.windowStart = now;
+            }
+            return this.current;
+        }
+    }
+}
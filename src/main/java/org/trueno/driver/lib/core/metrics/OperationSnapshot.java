@@ -0,0 +1,76 @@
+package org.trueno.driver.lib.core.metrics;
+
+/**
+ * Point-in-time latency summary of one operation, in nanoseconds.
+ */
+public class OperationSnapshot {
+
+    /* Private properties */
+    private final String name;
+    private final long count;
+    private final long errors;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    /* Constructor with Parameters */
+    public OperationSnapshot(String name, long count, long errors, double mean, long p50, long p90, long p99,
+                             long p999, long max) {
+        this.name = name;
+        this.count = count;
+        this.errors = errors;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    /* Getters */
+    public String getName() {
+        return this.name;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+
+    public double getMean() {
+        return this.mean;
+    }
+
+    public long getP50() {
+        return this.p50;
+    }
+
+    public long getP90() {
+        return this.p90;
+    }
+
+    public long getP99() {
+        return this.p99;
+    }
+
+    public long getP999() {
+        return this.p999;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + "{count=" + this.count + ", errors=" + this.errors + ", mean=" + (long) this.mean
+                + "ns, p50=" + this.p50 + "ns, p90=" + this.p90 + "ns, p99=" + this.p99 + "ns, p99.9=" + this.p999
+                + "ns, max=" + this.max + "ns}";
+    }
+}
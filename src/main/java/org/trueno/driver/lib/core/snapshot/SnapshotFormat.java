@@ -0,0 +1,113 @@
+package org.trueno.driver.lib.core.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a snapshot file, shared by {@link SnapshotWriter} and {@link SnapshotReader}.
+ *
+ * A file starts with the magic bytes, the format version and the graph id, followed by
+ * blocks of up to a few thousand components of one kind and an END block holding the
+ * component counts. A block is its kind, its number of rows and its length in bytes,
+ * then one column per field: the ids, for edges the endpoints and labels, then one
+ * column per attribute, per computed value and, from version 2, per meta key. A value
+ * column is its name, its type, a bitmap of the rows holding a value and the values of
+ * those rows, so a key present in few components costs little. A key holding values of
+ * several types gets one column per type.
+ *
+ * Lengths and integers are variable-length, integers zigzag encoded; doubles are 8 bytes.
+ * Maps, lists and other values are stored as JSON text. Blocks are read by their length,
+ * so a file can be larger than a single mapping.
+ */
+final class SnapshotFormat {
+
+    /* File header */
+    static final byte[] MAGIC = "TRNOSNAP".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+
+    /* Oldest version still read, without meta columns */
+    static final int FIRST_VERSION = 1;
+
+    /* Block kinds */
+    static final byte END = 0;
+    static final byte GRAPH = 1;
+    static final byte VERTEX = 2;
+    static final byte EDGE = 3;
+
+    /* Value types */
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+    static final byte BOOLEAN = 4;
+    static final byte STRING = 5;
+    static final byte JSON = 6;
+
+    /* Bytes a variable-length value takes at most */
+    static final int MAX_VARINT = 10;
+
+    /* Bytes of a block header: kind, rows and length */
+    static final int BLOCK_HEADER = 9;
+
+    /* Bytes of the END block: kind, vertex and edge counts */
+    static final int TRAILER = 17;
+
+    private SnapshotFormat() {
+    }
+
+    /* Type of a value, JSON for anything that is not a number, boolean or string */
+    static byte typeOf(Object value) {
+
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return INT;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Double || value instanceof Float) {
+            return DOUBLE;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value instanceof String) {
+            return STRING;
+        }
+
+        return JSON;
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static String getString(ByteBuffer buffer) {
+
+        int length = (int) getVarLong(buffer);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes, 0, length);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
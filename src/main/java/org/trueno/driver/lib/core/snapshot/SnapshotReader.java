@@ -0,0 +1,287 @@
+package org.trueno.driver.lib.core.snapshot;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+import org.trueno.driver.lib.core.data_structures.Component;
+import org.trueno.driver.lib.core.data_structures.Edge;
+import org.trueno.driver.lib.core.data_structures.Graph;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a snapshot file written by {@link SnapshotWriter}. Blocks are found by their
+ * headers and memory mapped one at a time, so files of any size are read and iterating
+ * the vertices of a large graph holds a single block of components; iterating vertices
+ * skips the edge blocks by their length, and the other way round. Components are
+ * returned unmodified, ready to be sent back to a server.
+ */
+public class SnapshotReader implements Closeable {
+
+    /* Sections of the value columns, in the order they are written */
+    private static final int ATTRIBUTES = 0;
+    private static final int COMPUTED = 1;
+    private static final int META = 2;
+
+    /* Private properties */
+    private final FileChannel channel;
+    private final String graphid;
+    private final int version;
+    private final long start;
+    private final long end;
+    private final long vertexCount;
+    private final long edgeCount;
+
+    /* Constructor with Parameters */
+    public SnapshotReader(Path file) throws IOException {
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = this.channel.size();
+
+            /* Header, then the graph id once its length is known */
+            int fixed = SnapshotFormat.MAGIC.length + 4;
+            ByteBuffer buffer = this.read(0, (int) Math.min(size, fixed + SnapshotFormat.MAX_VARINT));
+            byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, SnapshotFormat.MAGIC)) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            this.version = buffer.getInt();
+            if (this.version < SnapshotFormat.FIRST_VERSION || this.version > SnapshotFormat.VERSION) {
+                throw new IOException("Unsupported snapshot version " + this.version);
+            }
+            int length = (int) SnapshotFormat.getVarLong(buffer);
+            if (length < 0) {
+                throw new EOFException();
+            }
+            byte[] graphid = new byte[length];
+            this.read(buffer.position(), length).get(graphid);
+            this.graphid = new String(graphid, StandardCharsets.UTF_8);
+            this.start = buffer.position() + length;
+
+            /* Trailer, the END block closes the file */
+            this.end = size - SnapshotFormat.TRAILER;
+            if (this.end < this.start) {
+                throw new EOFException();
+            }
+            ByteBuffer trailer = this.read(this.end, SnapshotFormat.TRAILER);
+            if (trailer.get() != SnapshotFormat.END) {
+                throw new EOFException();
+            }
+            this.vertexCount = trailer.getLong();
+            this.edgeCount = trailer.getLong();
+        } catch (BufferUnderflowException | IllegalArgumentException | EOFException e) {
+            this.channel.close();
+            throw new IOException("Truncated snapshot file: " + file, e);
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    public String getGraphid() {
+        return this.graphid;
+    }
+
+    public long getVertices() {
+        return this.vertexCount;
+    }
+
+    public long getEdges() {
+        return this.edgeCount;
+    }
+
+    /* The graph written to the snapshot, null if none was */
+    public Graph getGraph() {
+        Iterator<Component> it = new Blocks(SnapshotFormat.GRAPH);
+        return it.hasNext() ? (Graph) it.next() : null;
+    }
+
+    public Iterator<Vertex> vertices() {
+        return (Iterator) new Blocks(SnapshotFormat.VERTEX);
+    }
+
+    public Iterator<Edge> edges() {
+        return (Iterator) new Blocks(SnapshotFormat.EDGE);
+    }
+
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /* Reads length bytes at the position of the file */
+    private ByteBuffer read(long position, int length) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /* Decodes the blocks of one kind, a block at a time */
+    private class Blocks implements Iterator<Component> {
+
+        private final byte kind;
+        private long position;
+        private Component[] block;
+        private int next;
+
+        Blocks(byte kind) {
+            this.kind = kind;
+            this.position = start;
+            this.block = new Component[0];
+        }
+
+        public boolean hasNext() {
+
+            try {
+                while (this.next == this.block.length) {
+                    if (this.position >= end) {
+                        return false;
+                    }
+                    ByteBuffer header = read(this.position, SnapshotFormat.BLOCK_HEADER);
+                    byte kind = header.get();
+                    int rows = header.getInt();
+                    int length = header.getInt();
+                    long body = this.position + SnapshotFormat.BLOCK_HEADER;
+                    if (kind == SnapshotFormat.END || length < 0 || body + length > end) {
+                        throw new IOException("Malformed snapshot block at " + this.position);
+                    }
+                    this.position = body + length;
+
+                    if (kind != this.kind) {
+                        continue;
+                    }
+                    this.block = decode(channel.map(FileChannel.MapMode.READ_ONLY, body, length), kind, rows);
+                    this.next = 0;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return true;
+        }
+
+        public Component next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Component c = this.block[this.next];
+            this.block[this.next++] = null;
+            return c;
+        }
+    }
+
+    private Component[] decode(ByteBuffer buffer, byte kind, int rows) {
+
+        Component[] block = new Component[rows];
+
+        /* Identifier columns */
+        for (int row = 0; row < rows; row++) {
+            Component c = kind == SnapshotFormat.EDGE ? new Edge() : kind == SnapshotFormat.GRAPH ? new Graph() : new Vertex();
+            c.setGraphid(this.graphid);
+            c.setId(SnapshotFormat.getString(buffer));
+            block[row] = c;
+        }
+        if (kind == SnapshotFormat.EDGE) {
+            for (int row = 0; row < rows; row++) {
+                ((Edge) block[row]).setFrom(SnapshotFormat.getString(buffer));
+            }
+            for (int row = 0; row < rows; row++) {
+                ((Edge) block[row]).setTo(SnapshotFormat.getString(buffer));
+            }
+            for (int row = 0; row < rows; row++) {
+                ((Edge) block[row]).setLabel(SnapshotFormat.getString(buffer));
+            }
+        }
+
+        this.decodeColumns(buffer, block, ATTRIBUTES);
+        this.decodeColumns(buffer, block, COMPUTED);
+        if (this.version >= 2) {
+            this.decodeColumns(buffer, block, META);
+        }
+
+        /* Fresh from the file, nothing to send back yet */
+        for (Component c : block) {
+            c.clear();
+        }
+
+        return block;
+    }
+
+    private void decodeColumns(ByteBuffer buffer, Component[] block, int section) {
+
+        int rows = block.length;
+        long columns = SnapshotFormat.getVarLong(buffer);
+
+        for (long i = 0; i < columns; i++) {
+            String algo = section == COMPUTED ? SnapshotFormat.getString(buffer) : null;
+            String name = SnapshotFormat.getString(buffer);
+            byte type = buffer.get();
+            byte[] bitmap = new byte[(rows + 7) >>> 3];
+            buffer.get(bitmap);
+
+            for (int row = 0; row < rows; row++) {
+                if ((bitmap[row >>> 3] & (1 << (row & 7))) == 0) {
+                    continue;
+                }
+                Component c = block[row];
+                if (section == ATTRIBUTES && type == SnapshotFormat.INT) {
+                    /* Attributes keep their primitive type in the compact store */
+                    c.setAttribute(name, (int) SnapshotFormat.unzigzag(SnapshotFormat.getVarLong(buffer)));
+                } else if (section == ATTRIBUTES && type == SnapshotFormat.LONG) {
+                    c.setAttribute(name, SnapshotFormat.unzigzag(SnapshotFormat.getVarLong(buffer)));
+                } else if (section == ATTRIBUTES && type == SnapshotFormat.DOUBLE) {
+                    c.setAttribute(name, buffer.getDouble());
+                } else if (section == ATTRIBUTES) {
+                    c.setAttribute(name, value(type, buffer));
+                } else if (section == COMPUTED) {
+                    c.setComputedAttribute(algo, name, value(type, buffer));
+                } else {
+                    c.setMetaAttribute(name, value(type, buffer));
+                }
+            }
+        }
+    }
+
+    private static Object value(byte type, ByteBuffer buffer) {
+
+        switch (type) {
+            case SnapshotFormat.INT:
+                return (int) SnapshotFormat.unzigzag(SnapshotFormat.getVarLong(buffer));
+            case SnapshotFormat.LONG:
+                return SnapshotFormat.unzigzag(SnapshotFormat.getVarLong(buffer));
+            case SnapshotFormat.DOUBLE:
+                return buffer.getDouble();
+            case SnapshotFormat.BOOLEAN:
+                return buffer.get() != 0;
+            case SnapshotFormat.STRING:
+                return SnapshotFormat.getString(buffer);
+            default:
+                String text = SnapshotFormat.getString(buffer);
+                try {
+                    return new JSONTokener(text).nextValue();
+                } catch (JSONException e) {
+                    return text;
+                }
+        }
+    }
+}
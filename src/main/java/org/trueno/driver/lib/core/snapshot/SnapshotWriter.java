@@ -0,0 +1,376 @@
+package org.trueno.driver.lib.core.snapshot;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.trueno.driver.lib.core.ListCursor;
+import org.trueno.driver.lib.core.TruenoBlocking;
+import org.trueno.driver.lib.core.data_structures.Component;
+import org.trueno.driver.lib.core.data_structures.Edge;
+import org.trueno.driver.lib.core.data_structures.Graph;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes components to a snapshot file in the columnar layout of {@link SnapshotFormat}.
+ * Components are held until a block of their kind is full, then encoded into one buffer
+ * and written to the file channel, so memory is bounded by the block size however large
+ * the graph. {@link #export} streams a whole graph from the server page by page.
+ */
+public class SnapshotWriter implements Closeable {
+
+    /* Private properties */
+    private final FileChannel channel;
+    private final int blockRows;
+    private final ArrayList<Component> graphs;
+    private final ArrayList<Component> vertices;
+    private final ArrayList<Component> edges;
+    private ByteBuffer buffer;
+    private long vertexCount;
+    private long edgeCount;
+    private boolean closed;
+
+    /* Constructor with Parameters, writing blocks of 4096 components */
+    public SnapshotWriter(Path file, String graphid) throws IOException {
+        this(file, graphid, 4096);
+    }
+
+    /* Constructor with Parameters, the file is replaced if it exists */
+    public SnapshotWriter(Path file, String graphid, int blockRows) throws IOException {
+
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("blockRows must be at least 1");
+        }
+
+        /* Set parameters */
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.blockRows = blockRows;
+        this.graphs = new ArrayList<Component>();
+        this.vertices = new ArrayList<Component>(blockRows);
+        this.edges = new ArrayList<Component>(blockRows);
+        this.buffer = ByteBuffer.allocate(64 * 1024);
+
+        /* Header */
+        this.ensure(SnapshotFormat.MAGIC.length + 4);
+        this.buffer.put(SnapshotFormat.MAGIC);
+        this.buffer.putInt(SnapshotFormat.VERSION);
+        this.putString(graphid != null ? graphid : "");
+        this.drain();
+    }
+
+    /* Streams the graph, its vertices and its edges from the server into the file, returning the number of components written */
+    public static long export(TruenoBlocking trueno, Graph g, Path file, int pageSize) throws IOException {
+
+        SnapshotWriter writer = new SnapshotWriter(file, g.getGraphid());
+        try {
+            writer.write(trueno.getGraph(g));
+
+            Vertex v = new Vertex();
+            v.setGraphid(g.getGraphid());
+            ListCursor<Vertex> vertices = trueno.iterateVertexList(v, pageSize);
+            try {
+                while (vertices.hasNext()) {
+                    writer.write(vertices.next());
+                }
+            } finally {
+                vertices.close();
+            }
+
+            Edge e = new Edge();
+            e.setGraphid(g.getGraphid());
+            ListCursor<Edge> edges = trueno.iterateEdgeList(e, pageSize);
+            try {
+                while (edges.hasNext()) {
+                    writer.write(edges.next());
+                }
+            } finally {
+                edges.close();
+            }
+        } finally {
+            writer.close();
+        }
+
+        return 1 + writer.getVertices() + writer.getEdges();
+    }
+
+    /* Adds the component to the block of its kind, writing the block once full */
+    public void write(Component c) throws IOException {
+
+        if (this.closed) {
+            throw new IOException("Snapshot writer is closed");
+        }
+        if (c == null) {
+            return;
+        }
+
+        if (c instanceof Edge) {
+            this.edges.add(c);
+            this.edgeCount++;
+            if (this.edges.size() == this.blockRows) {
+                this.writeBlock(SnapshotFormat.EDGE, this.edges);
+            }
+        } else if (c instanceof Graph) {
+            this.graphs.add(c);
+            this.writeBlock(SnapshotFormat.GRAPH, this.graphs);
+        } else {
+            this.vertices.add(c);
+            this.vertexCount++;
+            if (this.vertices.size() == this.blockRows) {
+                this.writeBlock(SnapshotFormat.VERTEX, this.vertices);
+            }
+        }
+    }
+
+    /* Writes the partial blocks and the END block, then closes the file */
+    public void close() throws IOException {
+
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        try {
+            this.writeBlock(SnapshotFormat.VERTEX, this.vertices);
+            this.writeBlock(SnapshotFormat.EDGE, this.edges);
+
+            this.buffer.clear();
+            this.buffer.put(SnapshotFormat.END);
+            this.buffer.putLong(this.vertexCount);
+            this.buffer.putLong(this.edgeCount);
+            this.drain();
+            this.channel.force(false);
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    public long getVertices() {
+        return this.vertexCount;
+    }
+
+    public long getEdges() {
+        return this.edgeCount;
+    }
+
+    private void writeBlock(byte kind, ArrayList<Component> rows) throws IOException {
+
+        int count = rows.size();
+        if (count == 0) {
+            return;
+        }
+
+        this.buffer.clear();
+        this.buffer.put(kind);
+        this.buffer.putInt(count);
+        int lengthAt = this.buffer.position();
+        this.buffer.putInt(0);
+
+        /* Identifier columns */
+        for (Component c : rows) {
+            this.putString(c.getId());
+        }
+        if (kind == SnapshotFormat.EDGE) {
+            for (Component c : rows) {
+                this.putString(((Edge) c).getFrom());
+            }
+            for (Component c : rows) {
+                this.putString(((Edge) c).getTo());
+            }
+            for (Component c : rows) {
+                this.putString(((Edge) c).getLabel());
+            }
+        }
+
+        /* Attribute columns */
+        LinkedHashMap<String, Column> attributes = new LinkedHashMap<String, Column>();
+        for (int row = 0; row < count; row++) {
+            for (Object entry : rows.get(row).getAttributes().entrySet()) {
+                Map.Entry e = (Map.Entry) entry;
+                this.add(attributes, null, String.valueOf(e.getKey()), e.getValue(), row, count);
+            }
+        }
+        this.putColumns(attributes, false, count);
+
+        /* Computed columns, one per algorithm and attribute */
+        LinkedHashMap<String, Column> computed = new LinkedHashMap<String, Column>();
+        for (int row = 0; row < count; row++) {
+            for (Map.Entry<String, HashMap> algo : ((Map<String, HashMap>) rows.get(row).getComputed()).entrySet()) {
+                if (algo.getValue() == null) {
+                    continue;
+                }
+                for (Object entry : algo.getValue().entrySet()) {
+                    Map.Entry e = (Map.Entry) entry;
+                    this.add(computed, algo.getKey(), String.valueOf(e.getKey()), e.getValue(), row, count);
+                }
+            }
+        }
+        this.putColumns(computed, true, count);
+
+        /* Meta columns */
+        LinkedHashMap<String, Column> meta = new LinkedHashMap<String, Column>();
+        for (int row = 0; row < count; row++) {
+            for (Object entry : rows.get(row).getMeta().entrySet()) {
+                Map.Entry e = (Map.Entry) entry;
+                this.add(meta, null, String.valueOf(e.getKey()), e.getValue(), row, count);
+            }
+        }
+        this.putColumns(meta, false, count);
+
+        this.buffer.putInt(lengthAt, this.buffer.position() - lengthAt - 4);
+        this.drain();
+        rows.clear();
+    }
+
+    private void add(LinkedHashMap<String, Column> columns, String algo, String name, Object value, int row, int rows) {
+
+        if (value == null) {
+            return;
+        }
+
+        byte type = SnapshotFormat.typeOf(value);
+        String key = (algo != null ? algo + '\u0000' : "") + name + '\u0000' + type;
+        Column column = columns.get(key);
+        if (column == null) {
+            column = new Column(algo, name, type, rows);
+            columns.put(key, column);
+        }
+        column.values[row] = value;
+    }
+
+    private void putColumns(LinkedHashMap<String, Column> columns, boolean computed, int rows) {
+
+        this.ensure(SnapshotFormat.MAX_VARINT);
+        SnapshotFormat.putVarLong(this.buffer, columns.size());
+
+        for (Column column : columns.values()) {
+            if (computed) {
+                this.putString(column.algo);
+            }
+            this.putString(column.name);
+
+            /* Type and bitmap of the rows holding a value */
+            byte[] bitmap = new byte[(rows + 7) >>> 3];
+            for (int row = 0; row < rows; row++) {
+                if (column.values[row] != null) {
+                    bitmap[row >>> 3] |= 1 << (row & 7);
+                }
+            }
+            this.ensure(1 + bitmap.length);
+            this.buffer.put(column.type);
+            this.buffer.put(bitmap);
+
+            for (int row = 0; row < rows; row++) {
+                Object value = column.values[row];
+                if (value != null) {
+                    this.putValue(column.type, value);
+                }
+            }
+        }
+    }
+
+    private void putValue(byte type, Object value) {
+
+        switch (type) {
+            case SnapshotFormat.INT:
+            case SnapshotFormat.LONG:
+                this.ensure(SnapshotFormat.MAX_VARINT);
+                SnapshotFormat.putVarLong(this.buffer, SnapshotFormat.zigzag(((Number) value).longValue()));
+                break;
+            case SnapshotFormat.DOUBLE:
+                this.ensure(8);
+                this.buffer.putDouble(((Number) value).doubleValue());
+                break;
+            case SnapshotFormat.BOOLEAN:
+                this.ensure(1);
+                this.buffer.put((byte) (((Boolean) value) ? 1 : 0));
+                break;
+            case SnapshotFormat.STRING:
+                this.putString((String) value);
+                break;
+            default:
+                this.putString(json(value));
+        }
+    }
+
+    /* JSON text of a value that is not a number, boolean or string */
+    private static String json(Object value) {
+
+        if (value instanceof Map) {
+            return new JSONObject((Map) value).toString();
+        } else if (value instanceof Collection) {
+            return new JSONArray((Collection) value).toString();
+        } else if (value.getClass().isArray()) {
+            try {
+                return new JSONArray(value).toString();
+            } catch (JSONException e) {
+                return JSONObject.quote(value.toString());
+            }
+        } else if (value instanceof JSONObject || value instanceof JSONArray || value instanceof Number
+                || value == JSONObject.NULL) {
+            return value.toString();
+        }
+
+        return JSONObject.quote(value.toString());
+    }
+
+    private void putString(String s) {
+
+        byte[] bytes = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+        this.ensure(SnapshotFormat.MAX_VARINT + bytes.length);
+        SnapshotFormat.putVarLong(this.buffer, bytes.length);
+        this.buffer.put(bytes);
+    }
+
+    /* Grows the buffer so it has room for the given number of bytes */
+    private void ensure(int bytes) {
+
+        if (this.buffer.remaining() >= bytes) {
+            return;
+        }
+
+        int capacity = Math.max(this.buffer.capacity() * 2, this.buffer.position() + bytes);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        this.buffer.flip();
+        grown.put(this.buffer);
+        this.buffer = grown;
+    }
+
+    /* Writes the buffer to the file */
+    private void drain() throws IOException {
+
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /* Values of one key and type across the rows of a block, null where a row has none */
+    private static final class Column {
+
+        final String algo;
+        final String name;
+        final byte type;
+        final Object[] values;
+
+        Column(String algo, String name, byte type, int rows) {
+            this.algo = algo;
+            this.name = name;
+            this.type = type;
+            this.values = new Object[rows];
+        }
+    }
+}
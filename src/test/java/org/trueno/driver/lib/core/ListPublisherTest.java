@@ -0,0 +1,235 @@
+package org.trueno.driver.lib.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.trueno.driver.lib.core.communication.Loopback;
+import org.trueno.driver.lib.core.communication.transport.Reply;
+import org.trueno.driver.lib.core.communication.transport.RequestHandler;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streamed lists over a loopback connection to a server that pages its answers: pages are
+ * fetched only for outstanding demand, and cancelling stops the fetching.
+ */
+public class ListPublisherTest {
+
+    private final AtomicInteger pages = new AtomicInteger();
+    private Trueno trueno;
+    /* Vertices the server leaves out of its pages, as if filtered */
+    private int hiddenFrom;
+    private int hiddenTo;
+    /* Whether the server answers with an object where the page belongs */
+    private boolean malformed;
+
+    @After
+    public void disconnect() {
+        if (this.trueno != null) {
+            this.trueno.disconnect();
+        }
+    }
+
+    @Test
+    public void emitsOnlyWhatWasRequested() throws Exception {
+
+        this.connect(25);
+
+        Signals signals = this.subscribe(3);
+
+        assertEquals(Arrays.asList("0", "1", "2"), signals.await(3));
+        Thread.sleep(50);
+        assertEquals(3, signals.size());
+        assertEquals(1, this.pages.get());
+    }
+
+    @Test
+    public void walksEveryPageThenCompletes() throws Exception {
+
+        this.connect(25);
+
+        Signals signals = this.subscribe(Long.MAX_VALUE);
+
+        assertTrue(signals.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(25, signals.size());
+        assertEquals("24", signals.items.get(24));
+        assertEquals(3, this.pages.get());
+    }
+
+    @Test
+    public void followsEmptyPagesThatHaveACursor() throws Exception {
+
+        this.hiddenFrom = 10;
+        this.hiddenTo = 20;
+        this.connect(25);
+
+        Signals signals = this.subscribe(Long.MAX_VALUE);
+
+        assertTrue(signals.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(15, signals.size());
+        assertEquals("20", signals.items.get(10));
+        assertEquals(3, this.pages.get());
+    }
+
+    @Test
+    public void pagesThatAreNotArraysFailTheSubscription() throws Exception {
+
+        this.malformed = true;
+        this.connect(25);
+
+        Signals signals = this.subscribe(3);
+
+        assertTrue(signals.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, signals.size());
+        assertEquals(1, signals.errors.size());
+        assertTrue(signals.errors.get(0) instanceof TruenoException);
+    }
+
+    @Test
+    public void cancelStopsFetchingPages() throws Exception {
+
+        this.connect(25);
+
+        Signals signals = this.subscribe(3);
+        signals.await(3);
+        signals.subscription.cancel();
+        signals.subscription.request(20);
+
+        Thread.sleep(50);
+        assertEquals(3, signals.size());
+        assertEquals(1, this.pages.get());
+        assertEquals(0, signals.errors.size());
+    }
+
+    @Test
+    public void nonPositiveDemandFailsTheSubscription() throws Exception {
+
+        this.connect(25);
+
+        Signals signals = this.subscribe(0);
+
+        assertTrue(signals.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, signals.size());
+        assertEquals(1, signals.errors.size());
+        assertTrue(signals.errors.get(0) instanceof IllegalArgumentException);
+        assertEquals(0, this.pages.get());
+    }
+
+    /* Driver answered by a server listing vertices 0 to count - 1, a page at a time */
+    private void connect(final int count) throws InterruptedException {
+
+        /* This object reference */
+        final ListPublisherTest self = this;
+
+        this.trueno = Loopback.connect(new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                try {
+                    reply.call(self.page((JSONObject) request, count));
+                } catch (JSONException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+
+    private JSONObject page(JSONObject request, int count) throws JSONException {
+
+        this.pages.incrementAndGet();
+
+        JSONObject meta = request.getJSONObject("_meta");
+        JSONObject paging = meta.getJSONObject("_page");
+        int from = paging.has("_cursor") ? paging.getInt("_cursor") : 0;
+        int to = Math.min(count, from + paging.getInt("_size"));
+
+        JSONArray items = new JSONArray();
+        for (int i = from; i < to; i++) {
+            if (i >= this.hiddenFrom && i < this.hiddenTo) {
+                continue;
+            }
+            JSONObject property = new JSONObject();
+            property.put("_id", String.valueOf(i));
+            property.put("_graphid", "g");
+            items.put(new JSONObject().put("_property", property));
+        }
+
+        JSONObject replyMeta = new JSONObject().put("_rid", meta.get("_rid"));
+        if (to < count) {
+            replyMeta.put("_cursor", to);
+        }
+
+        Object payload = this.malformed ? new JSONObject().put("_items", items) : items;
+
+        return new JSONObject().put("_meta", replyMeta).put("_payload", payload).put("_status", "success");
+    }
+
+    private Signals subscribe(long request) {
+
+        Vertex filter = new Vertex();
+        filter.setGraphid("g");
+
+        Signals signals = new Signals(request);
+        new TruenoAsync(this.trueno).streamVertexList(filter, 10).subscribe(signals);
+
+        return signals;
+    }
+
+    /* Records the signals of a subscription, requesting the initial demand on subscribe */
+    private static final class Signals implements Flow.Subscriber<Vertex> {
+
+        final long initial;
+        final List<String> items = Collections.synchronizedList(new ArrayList<String>());
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+
+        Signals(long initial) {
+            this.initial = initial;
+        }
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(this.initial);
+        }
+
+        public void onNext(Vertex item) {
+            this.items.add(item.getId());
+        }
+
+        public void onError(Throwable throwable) {
+            this.errors.add(throwable);
+            this.completed.countDown();
+        }
+
+        public void onComplete() {
+            this.completed.countDown();
+        }
+
+        int size() {
+            return this.items.size();
+        }
+
+        /* Items once count of them arrived */
+        List<String> await(int count) throws InterruptedException {
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (this.items.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            return new ArrayList<String>(this.items);
+        }
+    }
+}
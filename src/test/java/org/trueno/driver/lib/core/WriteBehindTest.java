@@ -0,0 +1,161 @@
+package org.trueno.driver.lib.core;
+
+import org.jdeferred.Promise;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.trueno.driver.lib.core.communication.Loopback;
+import org.trueno.driver.lib.core.communication.WriteBehindPolicy;
+import org.trueno.driver.lib.core.communication.transport.EchoHandler;
+import org.trueno.driver.lib.core.communication.transport.Reply;
+import org.trueno.driver.lib.core.communication.transport.RequestHandler;
+import org.trueno.driver.lib.core.data_structures.Vertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Buffered updates over a loopback connection whose replies arrive late: merging,
+ * ordering against deletes, and deadlines.
+ */
+public class WriteBehindTest {
+
+    private final ScheduledExecutorService server = Executors.newScheduledThreadPool(2);
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    private final List<JSONObject> requests = Collections.synchronizedList(new ArrayList<JSONObject>());
+    private Trueno trueno;
+
+    @After
+    public void disconnect() {
+        if (this.trueno != null) {
+            this.trueno.disconnect();
+        }
+        this.server.shutdownNow();
+    }
+
+    @Test
+    public void wholeSectionsReplaceWhatWasMergedBefore() throws Exception {
+
+        this.connect(100, new WriteBehindPolicy(1024, 50));
+
+        Vertex v = vertex("1");
+        v.setAttribute("a", 1);
+        Promise first = this.trueno.updateVertex(v);
+        HashMap<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put("b", 2);
+        v.setAttributes(attributes);
+        Promise second = this.trueno.updateVertex(v);
+
+        Loopback.resolved(first);
+        Loopback.resolved(second);
+        assertEquals(1, this.requests.size());
+        JSONObject sent = attributes(this.requests.get(0));
+        assertEquals(2, sent.getInt("b"));
+        assertFalse(sent.has("a"));
+    }
+
+    @Test
+    public void laterDeltasKeepTheKeysTheyDoNotChange() throws Exception {
+
+        this.connect(100, new WriteBehindPolicy(1024, 50));
+
+        Vertex x = vertex("2");
+        x.setAttribute("a", 1);
+        Promise first = this.trueno.updateVertex(x);
+        Vertex y = vertex("2");
+        y.setAttribute("b", 2);
+        Promise second = this.trueno.updateVertex(y);
+
+        Loopback.resolved(first);
+        Loopback.resolved(second);
+        assertEquals(1, this.requests.size());
+        JSONObject sent = attributes(this.requests.get(0));
+        assertEquals(1, sent.getInt("a"));
+        assertEquals(2, sent.getInt("b"));
+    }
+
+    @Test
+    public void deletesWaitForTheBufferedUpdates() throws Exception {
+
+        this.connect(100, new WriteBehindPolicy(1, 50));
+
+        Vertex v = vertex("3");
+        v.setAttribute("a", 1);
+        this.trueno.updateVertex(v);
+        Thread.sleep(10);
+        v.setAttribute("b", 2);
+        this.trueno.updateVertex(v);
+
+        Loopback.resolved(this.trueno.deleteVertex(v));
+        assertEquals(Arrays.asList("ex_updateVertex", "ex_updateVertex", "ex_deleteVertex"), this.events);
+    }
+
+    @Test
+    public void deletesWithoutBufferedUpdatesAreSentAtOnce() throws Exception {
+
+        this.connect(0, new WriteBehindPolicy(1024, 50));
+
+        Loopback.resolved(this.trueno.deleteVertex(vertex("4")));
+        assertEquals(Collections.singletonList("ex_deleteVertex"), this.events);
+    }
+
+    @Test
+    public void updatesKeepTheDeadlineOfTheirCall() throws Exception {
+
+        this.connect(300, new WriteBehindPolicy(1024, 50));
+
+        Vertex v = vertex("5");
+        v.setAttribute("a", 1);
+
+        long start = System.nanoTime();
+        Object reason = Loopback.rejected(this.trueno.withTimeout(100).updateVertex(v));
+
+        assertTrue(reason instanceof TimeoutException);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    /* Driver with write-behind, answered by an echo server after the delay */
+    private void connect(final long delayMillis, WriteBehindPolicy policy) throws InterruptedException {
+
+        /* This object reference */
+        final WriteBehindTest self = this;
+
+        this.trueno = Loopback.connect(new RequestHandler() {
+            public void handle(final String event, final Object request, final Reply reply) {
+                self.events.add(event);
+                self.requests.add((JSONObject) request);
+                self.server.schedule(new Runnable() {
+                    public void run() {
+                        new EchoHandler().handle(event, request, reply);
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        this.trueno.setWriteBehind(policy);
+    }
+
+    private static Vertex vertex(String id) {
+
+        Vertex v = new Vertex();
+        v.setGraphid("g");
+        v.setId(id);
+
+        return v;
+    }
+
+    private static JSONObject attributes(JSONObject request) throws JSONException {
+        return request.getJSONObject("_payload").getJSONObject("_property").getJSONObject("_attributes");
+    }
+}
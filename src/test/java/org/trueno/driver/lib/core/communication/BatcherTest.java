@@ -0,0 +1,159 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.jdeferred.Promise;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.trueno.driver.lib.core.TruenoException;
+import org.trueno.driver.lib.core.communication.codec.DeflateCodec;
+import org.trueno.driver.lib.core.communication.codec.MessagePackCodec;
+import org.trueno.driver.lib.core.communication.transport.EchoHandler;
+import org.trueno.driver.lib.core.communication.transport.Reply;
+import org.trueno.driver.lib.core.communication.transport.RequestHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batched calls over a loopback connection: one frame per batch, and every call settled
+ * by its slot of the reply, or failed when the reply has none for it.
+ */
+public class BatcherTest {
+
+    private final RPC rpc = new RPC();
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void disconnect() {
+        this.rpc.disconnect();
+    }
+
+    @Test
+    public void sendsOneFramePerBatch() throws Exception {
+
+        this.connect(new EchoHandler(), 3);
+
+        Promise[] calls = this.calls(3);
+
+        for (int i = 0; i < calls.length; i++) {
+            assertEquals("v" + i, ((JSONObject) Loopback.resolved(calls[i])).getString("_id"));
+        }
+        assertEquals(Collections.singletonList(Batcher.BATCH_EVENT), this.events);
+    }
+
+    @Test
+    public void flushesBatchesAfterTheLinger() throws Exception {
+
+        this.connect(new EchoHandler(), 100);
+
+        Promise[] calls = this.calls(2);
+
+        assertEquals("v1", ((JSONObject) Loopback.resolved(calls[1])).getString("_id"));
+        assertEquals(1, this.events.size());
+    }
+
+    @Test
+    public void failsCallsTheReplyHasNoSlotFor() throws Exception {
+
+        this.connect(new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                try {
+                    JSONObject first = ((JSONObject) request).getJSONArray(Batcher.BATCH_FIELD).getJSONObject(0);
+                    JSONArray replies = new JSONArray();
+                    replies.put(RPCTest.success(first.getJSONObject(Batcher.PAYLOAD_FIELD)));
+                    reply.call(replies);
+                } catch (JSONException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, 3);
+
+        Promise[] calls = this.calls(3);
+
+        assertEquals("v0", ((JSONObject) Loopback.resolved(calls[0])).getString("_id"));
+        assertTrue(Loopback.rejected(calls[1]) instanceof TruenoException);
+        assertTrue(Loopback.rejected(calls[2]) instanceof TruenoException);
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    @Test
+    public void failsEveryCallOfAnAcknowledgementWithoutReplies() throws Exception {
+
+        this.connect(new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                reply.call(new JSONObject());
+            }
+        }, 3);
+
+        for (Promise call : this.calls(3)) {
+            assertTrue(Loopback.rejected(call) instanceof TruenoException);
+        }
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    @Test
+    public void failsEveryCallOfAnEmptyAcknowledgement() throws Exception {
+
+        this.connect(new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                reply.call();
+            }
+        }, 2);
+
+        for (Promise call : this.calls(2)) {
+            assertTrue(Loopback.rejected(call) instanceof TruenoException);
+        }
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    @Test
+    public void roundTripsCompressedEntries() throws Exception {
+
+        this.rpc.setCodec(new DeflateCodec(new MessagePackCodec()));
+        this.connect(new EchoHandler(), 2);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("abc ");
+        }
+        Message large = RPCTest.message("large");
+        large.getPayload().put("text", text.toString());
+
+        Promise first = this.rpc.call("ex_createVertex", large);
+        Promise second = this.rpc.call("ex_createVertex", RPCTest.message("small"));
+
+        JSONObject echoed = (JSONObject) Loopback.resolved(first);
+        assertEquals(text.toString(), echoed.getString("text"));
+        assertEquals("small", ((JSONObject) Loopback.resolved(second)).getString("_id"));
+    }
+
+    private void connect(final RequestHandler handler, int maxItems) throws InterruptedException {
+
+        /* This object reference */
+        final BatcherTest self = this;
+
+        Loopback.connect(this.rpc, new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                self.events.add(event);
+                handler.handle(event, request, reply);
+            }
+        });
+        this.rpc.setBatchPolicy(new BatchPolicy(maxItems, 0, 1000));
+    }
+
+    private Promise[] calls(int count) throws JSONException {
+
+        Promise[] calls = new Promise[count];
+        for (int i = 0; i < count; i++) {
+            calls[i] = this.rpc.call("ex_getVertex", RPCTest.message("v" + i));
+        }
+
+        return calls;
+    }
+}
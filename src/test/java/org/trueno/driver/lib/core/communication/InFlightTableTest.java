@@ -0,0 +1,73 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.jdeferred.impl.DeferredObject;
+import org.junit.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class InFlightTableTest {
+
+    @Test
+    public void removesEachRequestOnce() throws Exception {
+
+        InFlightTable table = new InFlightTable();
+        DeferredObject first = new DeferredObject();
+        DeferredObject second = new DeferredObject();
+
+        long a = table.register(first);
+        long b = table.register(second);
+
+        assertNotEquals(a, b);
+        assertSame(second, table.remove(b));
+        assertNull(table.remove(b));
+        assertSame(first, table.remove(a));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void unknownIdsAreIgnored() throws Exception {
+
+        InFlightTable table = new InFlightTable(1, Backpressure.FAIL);
+        table.register(new DeferredObject());
+
+        assertNull(table.remove(42));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void failsCallsBeyondTheWindow() throws Exception {
+
+        InFlightTable table = new InFlightTable(2, Backpressure.FAIL);
+        long a = table.register(new DeferredObject());
+        table.register(new DeferredObject());
+
+        try {
+            table.register(new DeferredObject());
+            fail("Expected the window to be full");
+        } catch (RejectedExecutionException e) {
+            /* expected */
+        }
+
+        /* A duplicate removal releases the slot only once */
+        table.remove(a);
+        table.remove(a);
+        table.register(new DeferredObject());
+        try {
+            table.register(new DeferredObject());
+            fail("Expected the window to be full");
+        } catch (RejectedExecutionException e) {
+            /* expected */
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeLimits() {
+        new InFlightTable(-1, Backpressure.BLOCK);
+    }
+}
@@ -0,0 +1,113 @@
+package org.trueno.driver.lib.core.communication;
+
+import com.github.nkzawa.socketio.client.Socket;
+import org.jdeferred.DoneCallback;
+import org.jdeferred.FailCallback;
+import org.jdeferred.Promise;
+import org.trueno.driver.lib.core.Trueno;
+import org.trueno.driver.lib.core.communication.transport.LoopbackTransport;
+import org.trueno.driver.lib.core.communication.transport.RequestHandler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Connections over a {@link LoopbackTransport} for the tests, and waiting on promises.
+ */
+public final class Loopback {
+
+    private Loopback() {
+    }
+
+    /* Connection answered by the handler, already open */
+    static RPC connect(RPC rpc, RequestHandler handler) throws InterruptedException {
+
+        final CountDownLatch opened = new CountDownLatch(1);
+
+        rpc.setTransport(new LoopbackTransport(handler));
+        rpc.connect(new Callback() {
+            public void method(Socket socket) {
+                opened.countDown();
+            }
+        }, new Callback() {
+            public void method(Socket socket) {
+            }
+        });
+
+        assertTrue("Loopback connection did not open", opened.await(5, TimeUnit.SECONDS));
+
+        return rpc;
+    }
+
+    /* Driver over a single loopback connection answered by the handler, already open */
+    public static Trueno connect(RequestHandler handler) throws InterruptedException {
+
+        final CountDownLatch opened = new CountDownLatch(1);
+
+        Trueno trueno = new Trueno("http://localhost", 1, 1, LoadBalancing.ROUND_ROBIN, LoopbackTransport.factory(handler));
+        trueno.connect(new Callback() {
+            public void method(Socket socket) {
+                opened.countDown();
+            }
+        }, new Callback() {
+            public void method(Socket socket) {
+            }
+        });
+
+        assertTrue("Loopback connection did not open", opened.await(5, TimeUnit.SECONDS));
+
+        return trueno;
+    }
+
+    /* Value the promise resolved with, failing the test if it was rejected */
+    public static Object resolved(Promise promise) throws Exception {
+
+        Outcome outcome = settle(promise);
+        if (!outcome.resolved) {
+            throw new AssertionError("Expected the call to resolve, it was rejected with " + outcome.value);
+        }
+
+        return outcome.value;
+    }
+
+    /* Reason the promise was rejected with, failing the test if it resolved */
+    public static Object rejected(Promise promise) throws Exception {
+
+        Outcome outcome = settle(promise);
+        if (outcome.resolved) {
+            throw new AssertionError("Expected the call to be rejected, it resolved with " + outcome.value);
+        }
+
+        return outcome.value;
+    }
+
+    private static Outcome settle(Promise promise) throws Exception {
+
+        final CompletableFuture<Outcome> future = new CompletableFuture<Outcome>();
+        promise.then(new DoneCallback() {
+            public void onDone(Object o) {
+                future.complete(new Outcome(true, o));
+            }
+        }, new FailCallback() {
+            public void onFail(Object o) {
+                future.complete(new Outcome(false, o));
+            }
+        });
+
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static final class Outcome {
+
+        final boolean resolved;
+        final Object value;
+
+        Outcome(boolean resolved, Object value) {
+            this.resolved = resolved;
+            this.value = value;
+        }
+    }
+}
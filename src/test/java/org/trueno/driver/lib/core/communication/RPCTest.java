@@ -0,0 +1,165 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.jdeferred.Promise;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.trueno.driver.lib.core.TruenoException;
+import org.trueno.driver.lib.core.communication.transport.EchoHandler;
+import org.trueno.driver.lib.core.communication.transport.Reply;
+import org.trueno.driver.lib.core.communication.transport.RequestHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Calls over a loopback connection: replies are matched to their call by the request id
+ * they echo, and every call ends up settled with its in-flight slot released.
+ */
+public class RPCTest {
+
+    private final RPC rpc = new RPC();
+
+    @After
+    public void disconnect() {
+        this.rpc.disconnect();
+    }
+
+    @Test
+    public void echoesThePayload() throws Exception {
+
+        Loopback.connect(this.rpc, new EchoHandler());
+
+        JSONObject reply = (JSONObject) Loopback.resolved(this.rpc.call("ex_getVertex", message("a")));
+
+        assertEquals("a", reply.getString("_id"));
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    @Test
+    public void matchesRepliesByRequestId() throws Exception {
+
+        final List<JSONObject> requests = new ArrayList<JSONObject>();
+        final List<Reply> acks = new ArrayList<Reply>();
+        Loopback.connect(this.rpc, new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                requests.add((JSONObject) request);
+                acks.add(reply);
+            }
+        });
+
+        Promise first = this.rpc.call("ex_getVertex", message("a"));
+        Promise second = this.rpc.call("ex_getVertex", message("b"));
+
+        /* Each acknowledgement carries the reply to the other call */
+        acks.get(0).call(success(requests.get(1)));
+        acks.get(1).call(success(requests.get(0)));
+
+        assertEquals("a", ((JSONObject) Loopback.resolved(first)).getString("_id"));
+        assertEquals("b", ((JSONObject) Loopback.resolved(second)).getString("_id"));
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    @Test
+    public void ignoresDuplicateReplies() throws Exception {
+
+        Loopback.connect(this.rpc, new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                try {
+                    reply.call(success((JSONObject) request));
+                    reply.call(success((JSONObject) request));
+                } catch (JSONException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        this.rpc.setMaxInFlight(1, Backpressure.FAIL);
+
+        assertEquals("a", ((JSONObject) Loopback.resolved(this.rpc.call("ex_getVertex", message("a")))).getString("_id"));
+        assertEquals("b", ((JSONObject) Loopback.resolved(this.rpc.call("ex_getVertex", message("b")))).getString("_id"));
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    @Test
+    public void rejectsAcknowledgementsWithoutReply() throws Exception {
+
+        Loopback.connect(this.rpc, new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                reply.call();
+            }
+        });
+
+        Object reason = Loopback.rejected(this.rpc.call("ex_getVertex", message("a")));
+
+        assertTrue(reason instanceof TruenoException);
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    @Test
+    public void rejectsErrorReplies() throws Exception {
+
+        Loopback.connect(this.rpc, new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+                try {
+                    JSONObject error = success((JSONObject) request);
+                    error.put("_status", "error");
+                    error.put("_payload", "no such vertex");
+                    reply.call(error);
+                } catch (JSONException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        assertEquals("no such vertex", Loopback.rejected(this.rpc.call("ex_getVertex", message("a"))));
+    }
+
+    @Test
+    public void missingRepliesTimeOutAndFreeTheirSlot() throws Exception {
+
+        Loopback.connect(this.rpc, new RequestHandler() {
+            public void handle(String event, Object request, Reply reply) {
+            }
+        });
+        this.rpc.setDefaultTimeout(50);
+        this.rpc.setMaxInFlight(1, Backpressure.BLOCK);
+
+        /* The second call only gets a slot once the first timed out */
+        Promise first = this.rpc.call("ex_getVertex", message("a"));
+        assertTrue(Loopback.rejected(first) instanceof TimeoutException);
+        Promise second = this.rpc.call("ex_getVertex", message("b"));
+        assertTrue(Loopback.rejected(second) instanceof TimeoutException);
+
+        assertEquals(0, this.rpc.getInFlight());
+    }
+
+    static Message message(String id) throws JSONException {
+
+        JSONObject payload = new JSONObject();
+        payload.put("_id", id);
+
+        Message msg = new Message();
+        msg.setPayload(payload);
+
+        return msg;
+    }
+
+    /* Success reply to the request, echoing its request id and payload */
+    static JSONObject success(JSONObject request) throws JSONException {
+
+        JSONObject meta = new JSONObject();
+        meta.put("_rid", request.getJSONObject("_meta").get("_rid"));
+
+        JSONObject reply = new JSONObject();
+        reply.put("_meta", meta);
+        reply.put("_payload", request.get("_payload"));
+        reply.put("_status", "success");
+
+        return reply;
+    }
+}
@@ -0,0 +1,110 @@
+package org.trueno.driver.lib.core.communication;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    /* Runs the expired tasks on the timer thread */
+    private static final Executor INLINE = new Executor() {
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    @Test
+    public void runsTasksOnceTheirDelayElapsed() throws Exception {
+
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "test-timer", INLINE);
+        final CountDownLatch ran = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        final long[] elapsed = new long[1];
+
+        TimingWheel.Timeout timeout = wheel.schedule(new Runnable() {
+            public void run() {
+                elapsed[0] = System.nanoTime() - start;
+                ran.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(elapsed[0] >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void runsDelaysLongerThanOneTurnOfTheWheel() throws Exception {
+
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 8, "test-timer", INLINE);
+        final CountDownLatch ran = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        final long[] elapsed = new long[1];
+
+        wheel.schedule(new Runnable() {
+            public void run() {
+                elapsed[0] = System.nanoTime() - start;
+                ran.countDown();
+            }
+        }, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(elapsed[0] >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void cancelledTasksNeverRun() throws Exception {
+
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "test-timer", INLINE);
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+
+        TimingWheel.Timeout cancelled = wheel.schedule(task, 10, TimeUnit.MILLISECONDS);
+        final CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(new Runnable() {
+            public void run() {
+                later.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.size());
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertFalse(cancelled.isExpired());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void runsTasksOnTheExecutor() throws Exception {
+
+        final CountDownLatch ran = new CountDownLatch(1);
+        final Thread[] thread = new Thread[1];
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, 64, "test-timer", DaemonThreads.cached("test-task"));
+
+        wheel.schedule(new Runnable() {
+            public void run() {
+                thread[0] = Thread.currentThread();
+                ran.countDown();
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(thread[0].getName().startsWith("test-task"));
+    }
+}
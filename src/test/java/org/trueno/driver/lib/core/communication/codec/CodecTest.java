@@ -0,0 +1,249 @@
+package org.trueno.driver.lib.core.communication.codec;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.trueno.driver.lib.core.communication.Message;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Round trips of messages and batch frames through the codecs, as they would cross a
+ * socket: text frames are serialized and parsed again, binary ones are copied.
+ */
+public class CodecTest {
+
+    @Test
+    public void jsonRoundTrip() throws Exception {
+        this.roundTrip(new JsonCodec(), message(3, 10));
+    }
+
+    @Test
+    public void messagePackRoundTrip() throws Exception {
+
+        JSONObject msg = message(3, 10);
+        msg.getJSONObject("_payload").put("values", new JSONArray(Arrays.asList(1, -200, 70000, 5000000000L, 1.5, true)));
+        msg.getJSONObject("_payload").put("nothing", JSONObject.NULL);
+
+        this.roundTrip(new MessagePackCodec(), msg);
+    }
+
+    @Test
+    public void messagePackKeepsUnknownKeys() throws Exception {
+
+        JSONObject msg = message(1, 1);
+        msg.getJSONObject("_payload").put("not_a_dictionary_key", "x");
+
+        this.roundTrip(new MessagePackCodec(), msg);
+    }
+
+    @Test
+    public void messagePackReadsUint64PastTheLongRange() throws Exception {
+
+        byte[] document = {
+                (byte) 0x82,
+                (byte) 0xa3, 'b', 'i', 'g', (byte) 0xcf, -1, -1, -1, -1, -1, -1, -1, -1,
+                (byte) 0xa5, 's', 'm', 'a', 'l', 'l', (byte) 0xcf, 0, 0, 0, 0, 0, 0, 0, 7};
+
+        JSONObject decoded = (JSONObject) new MessagePackCodec().decode(document);
+
+        assertEquals(new BigInteger("18446744073709551615"), decoded.get("big"));
+        assertEquals(Integer.valueOf(7), decoded.get("small"));
+    }
+
+    @Test
+    public void deflateLeavesSmallMessages() throws Exception {
+
+        DeflateCodec codec = new DeflateCodec(new JsonCodec());
+        JSONObject frame = (JSONObject) codec.encode(message(1, 10));
+
+        assertFalse(frame.getJSONObject("_meta").has(DeflateCodec.COMPRESSION_FIELD));
+    }
+
+    @Test
+    public void deflateCompressesLargeMessages() throws Exception {
+
+        for (Codec inner : new Codec[] {new JsonCodec(), new MessagePackCodec()}) {
+            DeflateCodec codec = new DeflateCodec(inner);
+            JSONObject msg = message(7, 1000);
+            String before = msg.toString();
+
+            Object frame = codec.encode(msg);
+            if (frame instanceof JSONObject) {
+                JSONObject sent = (JSONObject) frame;
+                assertEquals(DeflateCodec.ALGORITHM, sent.getJSONObject("_meta").getString(DeflateCodec.COMPRESSION_FIELD));
+                assertEquals(7, sent.getJSONObject("_meta").getLong("_rid"));
+            } else {
+                assertTrue(((byte[]) frame).length < before.length() / 4);
+            }
+
+            assertSameDocument(msg, codec.decode(wire(frame)));
+            /* The caller's message is left as it is */
+            assertEquals(before, msg.toString());
+        }
+    }
+
+    @Test
+    public void deflateCompressesBatchEntriesEachOnItsOwn() throws Exception {
+
+        for (Codec inner : new Codec[] {new JsonCodec(), new MessagePackCodec()}) {
+            DeflateCodec codec = new DeflateCodec(inner);
+            JSONObject batch = batch(message(1, 10), message(2, 1000), message(3, 5));
+            String before = batch.toString();
+
+            Object frame = codec.encode(batch);
+            if (frame instanceof JSONObject) {
+                JSONArray entries = ((JSONObject) frame).getJSONArray("_batch");
+                assertFalse(compressed(entries.getJSONObject(0)));
+                assertTrue(compressed(entries.getJSONObject(1)));
+                assertFalse(compressed(entries.getJSONObject(2)));
+            }
+
+            assertSameDocument(batch, codec.decode(wire(frame)));
+            assertEquals(before, batch.toString());
+        }
+    }
+
+    @Test
+    public void deflateInflatesBatchReplies() throws Exception {
+
+        for (Codec inner : new Codec[] {new JsonCodec(), new MessagePackCodec()}) {
+            DeflateCodec codec = new DeflateCodec(inner);
+            JSONArray replies = new JSONArray();
+            replies.put(message(1, 1000));
+            replies.put(message(2, 1));
+
+            /* The other side compresses each reply as a message of its own */
+            JSONArray sent = new JSONArray();
+            for (int i = 0; i < replies.length(); i++) {
+                Object reply = codec.encode(replies.getJSONObject(i));
+                sent.put(reply instanceof byte[] ? inner.decode(reply) : wire(reply));
+            }
+            assertTrue(compressed(new JSONObject().put("_payload", sent.getJSONObject(0))));
+
+            assertSameDocument(replies, codec.decode(wire(inner.encode(sent))));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void deflateRejectsUnknownAlgorithms() throws Exception {
+
+        JSONObject msg = message(1, 1);
+        msg.getJSONObject("_meta").put(DeflateCodec.COMPRESSION_FIELD, "lz4");
+
+        new DeflateCodec(new JsonCodec()).decode(msg);
+    }
+
+    @Test
+    public void jsonSizeStopsAtTheBound() throws Exception {
+
+        JSONArray words = new JSONArray();
+        for (int i = 0; i < 10000; i++) {
+            words.put("word");
+        }
+
+        assertTrue(JsonSize.estimate(words, Long.MAX_VALUE) >= 60000);
+        assertTrue(JsonSize.estimate(words, 100) < 200);
+    }
+
+    private void roundTrip(Codec codec, JSONObject msg) throws Exception {
+
+        String before = msg.toString();
+
+        assertSameDocument(msg, codec.decode(wire(codec.encode(msg))));
+        assertSameDocument(batch(msg), codec.decode(wire(codec.encode(batch(msg)))));
+        assertEquals(before, msg.toString());
+    }
+
+    /* Message of the request id with a payload of about 4 bytes per word */
+    private static JSONObject message(long rid, int words) throws JSONException {
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append("abc ");
+        }
+
+        JSONObject payload = new JSONObject();
+        payload.put("_id", "v" + rid);
+        payload.put("text", text.toString());
+
+        Message msg = new Message();
+        msg.setPayload(payload);
+        msg.setRequestId(rid);
+
+        return msg;
+    }
+
+    private static JSONObject batch(JSONObject... messages) throws JSONException {
+
+        JSONArray entries = new JSONArray();
+        for (JSONObject msg : messages) {
+            JSONObject entry = new JSONObject();
+            entry.put("_method", "ex_getVertex");
+            entry.put("_payload", msg);
+            entries.put(entry);
+        }
+
+        JSONObject batch = new JSONObject();
+        batch.put("_batch", entries);
+
+        return batch;
+    }
+
+    private static boolean compressed(JSONObject entry) throws JSONException {
+        return entry.getJSONObject("_payload").getJSONObject("_meta").has(DeflateCodec.COMPRESSION_FIELD);
+    }
+
+    /* The frame as the other side receives it */
+    private static Object wire(Object frame) throws JSONException {
+
+        if (frame instanceof byte[]) {
+            return ((byte[]) frame).clone();
+        } else if (frame instanceof JSONArray) {
+            return new JSONArray(frame.toString());
+        }
+
+        return new JSONObject(frame.toString());
+    }
+
+    private static void assertSameDocument(Object expected, Object actual) throws JSONException {
+
+        if (expected instanceof JSONObject) {
+            assertTrue("Expected an object, was " + actual, actual instanceof JSONObject);
+            JSONObject a = (JSONObject) expected;
+            JSONObject b = (JSONObject) actual;
+            assertEquals(a.length(), b.length());
+            Iterator keys = a.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                assertTrue("Missing " + key, b.has(key));
+                assertSameDocument(a.get(key), b.get(key));
+            }
+        } else if (expected instanceof JSONArray) {
+            assertTrue("Expected an array, was " + actual, actual instanceof JSONArray);
+            JSONArray a = (JSONArray) expected;
+            JSONArray b = (JSONArray) actual;
+            assertEquals(a.length(), b.length());
+            for (int i = 0; i < a.length(); i++) {
+                assertSameDocument(a.get(i), b.get(i));
+            }
+        } else if (expected instanceof Number && actual instanceof Number) {
+            assertEquals(((Number) expected).doubleValue(), ((Number) actual).doubleValue(), 0);
+        } else if (expected == JSONObject.NULL || actual == JSONObject.NULL) {
+            if (expected != actual && expected != null && actual != null) {
+                fail("Expected " + expected + ", was " + actual);
+            }
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+}